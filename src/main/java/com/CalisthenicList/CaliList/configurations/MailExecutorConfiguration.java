@@ -0,0 +1,65 @@
+package com.CalisthenicList.CaliList.configurations;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+@Configuration
+//INFO - executor for @Async("mailExecutor") work, kept apart from Spring's default async executor
+// so a signup spike cannot queue without bound or delay password upgrades and MX pre-warming
+public class MailExecutorConfiguration {
+	public static final String MAIL_EXECUTOR = "mailExecutor";
+	private final Logger logger = Logger.getLogger(MailExecutorConfiguration.class.getName());
+	private final AtomicLong rejected = new AtomicLong();
+
+	@Bean(name = MAIL_EXECUTOR, destroyMethod = "shutdown")
+	//INFO - mail work is blocking SMTP and JDBC I/O, virtual threads make each worker cheap but the pool still caps concurrency.
+	// Backpressure: a full queue discards the task. Mail tasks only wake the outbox dispatcher, the email itself is already
+	// committed to email_outbox as PENDING and the outbox poll delivers it.
+	public ThreadPoolExecutor mailExecutor(@Value("${mail.executor.threads}") int threads,
+										   @Value("${mail.executor.queue-capacity}") int queueCapacity,
+										   @Value("${mail.executor.virtual-threads}") boolean virtualThreads) {
+		ThreadFactory threadFactory;
+		if(virtualThreads) {
+			threadFactory = Thread.ofVirtual().name("mail-", 1).factory();
+		} else {
+			AtomicInteger threadNumber = new AtomicInteger();
+			threadFactory = runnable -> {
+				Thread thread = new Thread(runnable, "mail-" + threadNumber.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			};
+		}
+		return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queueCapacity),
+				threadFactory,
+				(runnable, executor) -> {
+					rejected.incrementAndGet();
+					logger.warning("Mail executor queue is full, dispatch deferred to the next outbox poll.");
+				});
+	}
+
+	@Bean
+	//INFO - executor.active, executor.queued, executor.completed and executor.rejected tagged name=mailExecutor
+	public MeterBinder mailExecutorMetrics(@Qualifier(MAIL_EXECUTOR) ThreadPoolExecutor mailExecutor) {
+		return registry -> {
+			new ExecutorServiceMetrics(mailExecutor, MAIL_EXECUTOR, Tags.empty()).bindTo(registry);
+			FunctionCounter.builder("executor.rejected", rejected, AtomicLong::get)
+					.tag("name", MAIL_EXECUTOR)
+					.register(registry);
+		};
+	}
+}
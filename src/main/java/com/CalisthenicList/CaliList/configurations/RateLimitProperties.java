@@ -0,0 +1,34 @@
+package com.CalisthenicList.CaliList.configurations;
+
+import com.CalisthenicList.CaliList.enums.RateLimitCount;
+import com.CalisthenicList.CaliList.enums.RateLimitKey;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "rate-limit")
+//INFO - policy table for UserValidationRateLimitingFilter, every policy gets its own token buckets.
+// Path is an exact URI or "/prefix/*" for a single trailing path variable.
+// A FAILURES policy only counts requests answered with 4xx or 5xx, so nobody can use up the limit of someone else's key.
+public class RateLimitProperties {
+	private long maximumKeys = 100_000;
+	private Map<String, Policy> policies = new LinkedHashMap<>();
+
+	@Getter
+	@Setter
+	public static class Policy {
+		private String path;
+		private RateLimitKey key = RateLimitKey.IP;
+		private RateLimitCount count = RateLimitCount.REQUESTS;
+		private int capacity;
+		private Duration refillPeriod;
+	}
+}
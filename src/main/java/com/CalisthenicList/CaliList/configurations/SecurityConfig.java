@@ -2,18 +2,23 @@ package com.CalisthenicList.CaliList.configurations;
 
 import com.CalisthenicList.CaliList.filter.AccessTokenAuthFilter;
 import com.CalisthenicList.CaliList.filter.UserValidationRateLimitingFilter;
+import com.CalisthenicList.CaliList.service.PasswordHashingService;
+import com.CalisthenicList.CaliList.utils.Argon2Calibrator;
+import com.CalisthenicList.CaliList.utils.TunableArgon2PasswordEncoder;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
+import java.time.Duration;
+
 @Configuration
 @EnableWebSecurity
 @RequiredArgsConstructor
@@ -24,13 +29,33 @@ public class SecurityConfig {
 	private final AuthEntryPointJwt authEntryPointJwt;
 
 	@Bean
-	public PasswordEncoder passwordEncoder() {
+	//INFO - Argon2 runs on a bounded pool, threads = 0 means one thread per available core.
+	// Changing the Argon2 parameters re-encodes stored hashes on the next successful login.
+	public PasswordHashingService passwordEncoder(@Value("${passwordHashing.threads}") int threads,
+												  @Value("${passwordHashing.queue-capacity}") int queueCapacity,
+												  @Value("${passwordHashing.retry-after.seconds}") long retryAfterSeconds,
+												  @Value("${passwordHashing.argon2.parallelism}") int parallelism,
+												  @Value("${passwordHashing.argon2.memory-kib}") int memory,
+												  @Value("${passwordHashing.argon2.iterations}") int iterations,
+												  @Value("${passwordHashing.calibration.enabled}") boolean calibrate,
+												  @Value("${passwordHashing.calibration.latency-budget.ms}") long latencyBudgetMs,
+												  @Value("${passwordHashing.calibration.memory-budget-kib}") int memoryBudgetKib) {
 		int saltLength = 16;
 		int hashLength = 32;
-		int parallelism = 1;
-		int memory = 12_288;
-		int iterations = 3;
-		return new Argon2PasswordEncoder(saltLength, hashLength, parallelism, memory, iterations);
+		if(calibrate) {
+			//Opt-in: measure the grid on this host and use the strongest parameters within budget
+			Argon2Calibrator.Parameters configured = new Argon2Calibrator.Parameters(memory, iterations, parallelism);
+			Argon2Calibrator.Parameters chosen = new Argon2Calibrator(Duration.ofMillis(latencyBudgetMs), memoryBudgetKib, 20)
+					.calibrate(Argon2Calibrator.grid(
+							new int[]{12_288, 19_456, 47_104, 65_536},
+							new int[]{1, 2, 3, 4},
+							new int[]{parallelism}), configured);
+			memory = chosen.memory();
+			iterations = chosen.iterations();
+		}
+		PasswordEncoder argon2 = new TunableArgon2PasswordEncoder(saltLength, hashLength, parallelism, memory, iterations);
+		int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+		return new PasswordHashingService(argon2, poolSize, queueCapacity, retryAfterSeconds);
 	}
 
 	@Bean
@@ -46,6 +71,9 @@ public class SecurityConfig {
 						session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
 				.authorizeHttpRequests(requests -> requests
 						.requestMatchers("/api/delete/**").authenticated()
+						.requestMatchers("/api/sessions/**").authenticated()
+						.requestMatchers("/actuator/health").permitAll()
+						.requestMatchers("/actuator/**").hasRole("ADMIN")
 						.anyRequest().permitAll()
 				)
 				.addFilterBefore(accessTokenAuthFilter, UsernamePasswordAuthenticationFilter.class)
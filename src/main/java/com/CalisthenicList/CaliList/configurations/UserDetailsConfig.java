@@ -2,6 +2,7 @@ package com.CalisthenicList.CaliList.configurations;
 
 import com.CalisthenicList.CaliList.constants.Messages;
 import com.CalisthenicList.CaliList.repositories.UserRepository;
+import com.CalisthenicList.CaliList.service.UserDetailsCache;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -13,10 +14,11 @@ import org.springframework.security.core.userdetails.UsernameNotFoundException;
 public class UserDetailsConfig {
 
 	private final UserRepository userRepository;
+	private final UserDetailsCache userDetailsCache;
 
 	@Bean
 	public UserDetailsService userDetailsService() {
-		return username -> userRepository.findByEmail(username)
-				.orElseThrow(() -> new UsernameNotFoundException(Messages.USER_NOT_FOUND));
+		return username -> userDetailsCache.get(username, email -> userRepository.findByEmail(email)
+				.orElseThrow(() -> new UsernameNotFoundException(Messages.USER_NOT_FOUND)));
 	}
 }
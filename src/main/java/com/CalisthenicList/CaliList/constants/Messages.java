@@ -27,13 +27,17 @@ public final class Messages {
 
 	// System / General
 	public static final String SERVICE_ERROR = "Service error. Contact support.";
+	public static final String SERVICE_BUSY = "Service is busy. Please try again later.";
 	public static final String USER_NOT_FOUND = "User not found.";
 	public static final String UNAUTHORIZED = "Error: Unauthorized";
 	public static final String USER_REGISTERED_SUCCESS = "User registered successfully.";
 	public static final String USER_REGISTERED_FAILED = "User registration failed.";
+	public static final String USER_ALREADY_EXISTS_ERROR = "Username or email already exists.";
 	public static final String LOGIN_SUCCESS = "Login successful.";
 	public static final String USER_DELETED = "User deleted successfully";
 	public static final String REFRESH_TOKEN_SUCCESS = "Token refreshed successfully";
+	public static final String SESSION_NOT_FOUND = "Session not found.";
+	public static final String SESSION_REVOKED = "Session revoked successfully.";
 	public static final String VALIDATION_FAILED = "Validation failed.";
 	public static final String INVALID_INPUT = "Invalid input.";
 
@@ -0,0 +1,12 @@
+package com.CalisthenicList.CaliList.constants;
+
+import lombok.experimental.UtilityClass;
+
+@UtilityClass
+public final class TokenConstants {
+	// Access token claims
+	public static final String USER_ID_CLAIM = "uid";
+	public static final String ROLE_CLAIM = "role";
+	// Refresh token claims, also copied into access tokens issued by a refresh
+	public static final String FAMILY_CLAIM = "fid";
+}
@@ -8,8 +8,11 @@ import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.UUID;
+
 @RestController
 @RequiredArgsConstructor
 public class AuthController {
@@ -20,6 +23,8 @@ public class AuthController {
 	public static final String logoutUrl = "/api/logout";
 	public static final String emailVerificationUrl = "/api/email-verification/{token}";
 	public static final String refreshTokenUrl = "/api/refreshToken";
+	public static final String sessionsUrl = "/api/sessions";
+	public static final String sessionUrl = "/api/sessions/{id}";
 	private final AuthService authService;
 	private final EmailService emailService;
 	private final RefreshTokenService refreshTokenService;
@@ -69,4 +74,17 @@ public class AuthController {
 										  HttpServletResponse response) {
 		return refreshTokenService.refreshAccessToken(refreshToken, response);
 	}
-}
\ No newline at end of file
+
+	@GetMapping(sessionsUrl)
+	//INFO list the signed-in devices of the authenticated user, the one sending the request is marked as current
+	public ResponseEntity<ApiResponse<Object>> listSessions(@AuthenticationPrincipal Object principal,
+															@CookieValue(name = "refreshToken", required = false) String refreshToken) {
+		return refreshTokenService.listSessions(principal, refreshToken);
+	}
+
+	@DeleteMapping(sessionUrl)
+	public ResponseEntity<ApiResponse<Object>> revokeSession(@AuthenticationPrincipal Object principal,
+															 @PathVariable("id") UUID sessionId) {
+		return refreshTokenService.revokeSession(principal, sessionId);
+	}
+}
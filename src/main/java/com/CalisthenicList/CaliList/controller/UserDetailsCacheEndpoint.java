@@ -0,0 +1,32 @@
+package com.CalisthenicList.CaliList.controller;
+
+import com.CalisthenicList.CaliList.service.UserDetailsCache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Component
+@Endpoint(id = "userdetailscache")
+@RequiredArgsConstructor
+//INFO - GET /actuator/userdetailscache
+public class UserDetailsCacheEndpoint {
+	private final UserDetailsCache userDetailsCache;
+
+	@ReadOperation
+	public Map<String, Object> stats() {
+		CacheStats stats = userDetailsCache.stats();
+		Map<String, Object> response = new LinkedHashMap<>();
+		response.put("enabled", userDetailsCache.isEnabled());
+		response.put("size", userDetailsCache.size());
+		response.put("hitCount", stats.hitCount());
+		response.put("missCount", stats.missCount());
+		response.put("hitRate", stats.hitRate());
+		response.put("evictionCount", stats.evictionCount());
+		return response;
+	}
+}
@@ -0,0 +1,6 @@
+package com.CalisthenicList.CaliList.enums;
+
+//INFO - what registration does when the email domain check misses its deadline
+public enum DnsTimeoutPolicy {
+	ACCEPT, REJECT, ACCEPT_AND_RECHECK
+}
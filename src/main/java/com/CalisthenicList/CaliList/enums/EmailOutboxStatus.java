@@ -0,0 +1,5 @@
+package com.CalisthenicList.CaliList.enums;
+
+public enum EmailOutboxStatus {
+	PENDING, SENDING, SENT, FAILED
+}
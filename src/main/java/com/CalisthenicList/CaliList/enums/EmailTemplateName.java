@@ -0,0 +1,16 @@
+package com.CalisthenicList.CaliList.enums;
+
+import lombok.Getter;
+
+//INFO - file name under email-templates/<locale>/, each template has .subject, .txt and .html parts
+@Getter
+public enum EmailTemplateName {
+	VERIFICATION("verification"),
+	PASSWORD_RECOVERY("password-recovery");
+
+	private final String fileName;
+
+	EmailTemplateName(String fileName) {
+		this.fileName = fileName;
+	}
+}
@@ -0,0 +1,6 @@
+package com.CalisthenicList.CaliList.enums;
+
+//INFO - which requests a rate-limit policy takes from its limit: every admitted one, or only those answered with an error
+public enum RateLimitCount {
+	REQUESTS, FAILURES
+}
@@ -0,0 +1,6 @@
+package com.CalisthenicList.CaliList.enums;
+
+//INFO - what a rate-limit policy counts requests by
+public enum RateLimitKey {
+	IP, EMAIL, REFRESH_TOKEN_SUBJECT
+}
@@ -2,6 +2,7 @@ package com.CalisthenicList.CaliList.exceptions;
 
 import com.CalisthenicList.CaliList.constants.Messages;
 import com.CalisthenicList.CaliList.model.ApiResponse;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.BadCredentialsException;
@@ -47,6 +48,21 @@ public class GlobalExceptionHandler {
 		);
 	}
 
+	//Handle password hashing overload, the client should retry instead of waiting on a busy server
+	@ExceptionHandler(PasswordHashingUnavailableException.class)
+	public ResponseEntity<ApiResponse<Object>> handlePasswordHashingUnavailable(PasswordHashingUnavailableException ex) {
+		logger.log(Level.WARNING, ex.getMessage());
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+				.header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+				.body(
+						ApiResponse.builder()
+								.success(false)
+								.message(ex.getMessage())
+								.data(ex.getMessage())
+								.build()
+				);
+	}
+
 	//Handle errors during login
 	@ExceptionHandler(UsernameNotFoundException.class)
 	public ResponseEntity<ApiResponse<Object>> handleUserNotFound(UsernameNotFoundException ex) {
@@ -0,0 +1,15 @@
+package com.CalisthenicList.CaliList.exceptions;
+
+import com.CalisthenicList.CaliList.constants.Messages;
+import lombok.Getter;
+
+@Getter
+//INFO - thrown when the password hashing queue is full, mapped to 503 with Retry-After
+public class PasswordHashingUnavailableException extends RuntimeException {
+	private final long retryAfterSeconds;
+
+	public PasswordHashingUnavailableException(long retryAfterSeconds) {
+		super(Messages.SERVICE_BUSY);
+		this.retryAfterSeconds = retryAfterSeconds;
+	}
+}
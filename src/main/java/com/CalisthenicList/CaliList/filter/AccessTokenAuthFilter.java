@@ -1,14 +1,26 @@
 package com.CalisthenicList.CaliList.filter;
 
 
+import com.CalisthenicList.CaliList.model.AccessTokenPrincipal;
+import com.CalisthenicList.CaliList.model.JwtToken;
+import com.CalisthenicList.CaliList.service.tokens.AccessTokenRevocationService;
+import com.CalisthenicList.CaliList.service.tokens.AccessTokenService;
+import com.CalisthenicList.CaliList.service.tokens.TokenFamilyRevocationService;
 import com.CalisthenicList.CaliList.utils.JwtUtils;
 import io.micrometer.common.lang.NonNull;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.server.PathContainer;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -16,17 +28,78 @@ import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.Logger;
 
 @Component
 @RequiredArgsConstructor
 //INFO - Intercepts incoming requests, validates JWT tokens, and authenticates users if a valid token is present
-public class AccessTokenAuthFilter extends OncePerRequestFilter {
+public class AccessTokenAuthFilter extends OncePerRequestFilter implements MeterBinder {
 	private final Logger logger = Logger.getLogger(AccessTokenAuthFilter.class.getName());
 	private final JwtUtils jwtUtils;
 	private final UserDetailsService userDetailsService;
+	private final AccessTokenService accessTokenService;
+	private final AccessTokenRevocationService accessTokenRevocationService;
+	private final TokenFamilyRevocationService tokenFamilyRevocationService;
+	//INFO - when enabled, tokens carrying user id and role claims are authenticated without a database lookup
+	@Value("${accessToken.stateless}")
+	private boolean statelessPrincipal;
+	//INFO - routes that never need authentication, the filter does not parse tokens sent to them
+	@Value("${accessToken.filter.public-paths}")
+	private String[] publicPaths;
+	private List<PathPattern> publicPathPatterns = List.of();
+	private final Map<String, LongAdder> skippedTokenParses = new LinkedHashMap<>();
+
+	@PostConstruct
+	public void compilePublicPaths() {
+		PathPatternParser parser = PathPatternParser.defaultInstance;
+		publicPathPatterns = Arrays.stream(publicPaths)
+				.map(String::trim)
+				.filter(path -> !path.isEmpty())
+				.map(parser::parse)
+				.toList();
+		skippedTokenParses.clear();
+		publicPathPatterns.forEach(pattern -> skippedTokenParses.put(pattern.getPatternString(), new LongAdder()));
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		skippedTokenParses.forEach((path, counter) ->
+				FunctionCounter.builder("accessToken.filter.skipped", counter, LongAdder::sum)
+						.description("Access token parses avoided on public routes")
+						.tag("path", path)
+						.register(registry));
+	}
+
+	@Override
+	protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+		PathContainer path = PathContainer.parsePath(request.getRequestURI());
+		for(PathPattern pattern : publicPathPatterns) {
+			if(pattern.matches(path)) {
+				String authHeader = request.getHeader("Authorization");
+				if(authHeader != null && authHeader.startsWith("Bearer ")) {
+					skippedTokenParses.get(pattern.getPatternString()).increment();
+				}
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public long skippedTokenParses(String path) {
+		LongAdder counter = skippedTokenParses.get(path);
+		return counter == null ? 0 : counter.sum();
+	}
 
 	@Override
 	protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
@@ -42,14 +115,28 @@ public class AccessTokenAuthFilter extends OncePerRequestFilter {
 		}
 		//Validate jwt token and authenticate the user if valid
 		try {
-			String accessTokenSubject = jwtUtils.extractSubject(accessToken);
-			if(accessTokenSubject != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-				UserDetails userDetails = userDetailsService.loadUserByUsername(accessTokenSubject);
-				if(jwtUtils.validateIfJwtSubjectMatchTheUser(accessTokenSubject, userDetails)) {
-					UsernamePasswordAuthenticationToken authToken =
-							new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
-					authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-					SecurityContextHolder.getContext().setAuthentication(authToken);
+			JwtToken token = jwtUtils.parse(accessToken);
+			String accessTokenSubject = token.subject();
+			if(tokenFamilyRevocationService.isRevoked(token)) {
+				//Issued from a refresh token family revoked after reuse, checked in memory on both paths
+				logger.warning("Access token of a revoked token family. Cannot set user authentication.");
+			} else if(accessTokenSubject != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+				Optional<AccessTokenPrincipal> principal = statelessPrincipal
+						? accessTokenService.toPrincipal(token)
+						: Optional.empty();
+				if(principal.isPresent()) {
+					//Stateless path - relies on the short token TTL plus the in-memory revocation list
+					AccessTokenPrincipal tokenPrincipal = principal.get();
+					if(accessTokenRevocationService.isRevoked(tokenPrincipal.id(), token)) {
+						logger.warning("Revoked access token. Cannot set user authentication.");
+					} else {
+						authenticate(request, tokenPrincipal, tokenPrincipal.getAuthorities());
+					}
+				} else {
+					UserDetails userDetails = userDetailsService.loadUserByUsername(accessTokenSubject);
+					if(jwtUtils.validateIfJwtSubjectMatchTheUser(accessTokenSubject, userDetails)) {
+						authenticate(request, userDetails, userDetails.getAuthorities());
+					}
 				}
 			}
 		} catch(UsernameNotFoundException e) {
@@ -59,4 +146,12 @@ public class AccessTokenAuthFilter extends OncePerRequestFilter {
 		}
 		filterChain.doFilter(request, response);
 	}
+
+	private void authenticate(HttpServletRequest request, Object principal,
+							  Collection<? extends GrantedAuthority> authorities) {
+		UsernamePasswordAuthenticationToken authToken =
+				new UsernamePasswordAuthenticationToken(principal, null, authorities);
+		authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+		SecurityContextHolder.getContext().setAuthentication(authToken);
+	}
 }
\ No newline at end of file
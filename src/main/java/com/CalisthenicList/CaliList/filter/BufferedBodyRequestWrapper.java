@@ -0,0 +1,98 @@
+package com.CalisthenicList.CaliList.filter;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+//INFO: reads the beginning of the request body once, so a filter can inspect it and the controller can still read it.
+// Only up to maxBufferedBytes is kept in memory, the rest of a larger body is streamed from the original request.
+class BufferedBodyRequestWrapper extends HttpServletRequestWrapper {
+	private final byte[] bufferedBody;
+	private final ServletInputStream inputStream;
+
+	BufferedBodyRequestWrapper(HttpServletRequest request, int maxBufferedBytes) throws IOException {
+		super(request);
+		ServletInputStream original = request.getInputStream();
+		byte[] head = original.readNBytes(maxBufferedBytes + 1);
+		boolean buffered = head.length <= maxBufferedBytes;
+		this.bufferedBody = buffered ? head : null;
+		//A fully buffered body left the original stream at its end, only a larger body still reads from it
+		this.inputStream = new ReplayingInputStream(new ByteArrayInputStream(head), buffered ? null : original);
+	}
+
+	//Returns null when the body is larger than the buffer
+	byte[] getBufferedBody() {
+		return bufferedBody;
+	}
+
+	@Override
+	public ServletInputStream getInputStream() {
+		return inputStream;
+	}
+
+	@Override
+	public BufferedReader getReader() {
+		String encoding = getCharacterEncoding();
+		Charset charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8;
+		return new BufferedReader(new InputStreamReader(inputStream, charset));
+	}
+
+	private static class ReplayingInputStream extends ServletInputStream {
+		private final ByteArrayInputStream head;
+		private final ServletInputStream rest;
+
+		private ReplayingInputStream(ByteArrayInputStream head, ServletInputStream rest) {
+			this.head = head;
+			this.rest = rest;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if(head.available() > 0) {
+				return head.read();
+			}
+			return rest != null ? rest.read() : -1;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			if(head.available() > 0) {
+				return head.read(buffer, offset, length);
+			}
+			return rest != null ? rest.read(buffer, offset, length) : -1;
+		}
+
+		@Override
+		public boolean isFinished() {
+			return head.available() == 0 && (rest == null || rest.isFinished());
+		}
+
+		@Override
+		public boolean isReady() {
+			return head.available() > 0 || rest == null || rest.isReady();
+		}
+
+		//A buffered body is all in memory, the listener is told right away. A larger body waits for the container,
+		// which calls the listener once the rest of the body arrives, the listener reads the buffered head first
+		@Override
+		public void setReadListener(ReadListener readListener) {
+			if(rest != null) {
+				rest.setReadListener(readListener);
+				return;
+			}
+			try {
+				if(!isFinished()) {
+					readListener.onDataAvailable();
+				}
+				readListener.onAllDataRead();
+			} catch(IOException e) {
+				readListener.onError(e);
+			}
+		}
+	}
+}
@@ -0,0 +1,18 @@
+package com.CalisthenicList.CaliList.filter;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+@Component
+@ConditionalOnProperty(prefix = "rate-limit", name = "store", havingValue = "memory", matchIfMissing = true)
+//INFO: default store, every instance limits on its own with lock-free token buckets
+public class InMemoryRateLimitStore implements RateLimitStore {
+
+	@Override
+	public RateLimiter create(String policyName, int capacity, Duration refillPeriod, long maximumKeys, LongSupplier clock) {
+		return new TokenBucketRateLimiter(capacity, refillPeriod, maximumKeys, clock);
+	}
+}
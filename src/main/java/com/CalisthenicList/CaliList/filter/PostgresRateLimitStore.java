@@ -0,0 +1,312 @@
+package com.CalisthenicList.CaliList.filter;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.common.lang.NonNull;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.logging.Logger;
+
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "rate-limit", name = "store", havingValue = "postgres")
+//INFO: cluster-wide rate limiting, all instances share their counters through rate_limit_counters
+// (db/migration/rate_limit_counters.sql). While the table is missing every sync fails and instances limit on their own.
+// An instance admits a request from the last known cluster count plus its own unsynced hits, so requests never wait
+// for the database. Unsynced hits of all policies are pushed with one batched upsert every sync interval.
+// Limits are fixed windows of refillPeriod. Other instances can admit at most one sync delay of extra hits per window.
+// Syncs run on their own thread, so other scheduled jobs never delay them. The next sync starts sync-interval-ms after
+// the previous one ended, which waits at most the pool's connection timeout (Hikari default 30 s) plus sync-timeout-seconds.
+// Worst-case sync delay is therefore sync-interval-ms + 30 s + sync-timeout-seconds, normally interval plus one round trip.
+public class PostgresRateLimitStore implements RateLimitStore, MeterBinder {
+	private static final Logger logger = Logger.getLogger(PostgresRateLimitStore.class.getName());
+	static final String UPSERT = """
+			INSERT INTO rate_limit_counters (policy, rate_key, window_start, hits, expires_at)
+			SELECT policy, rate_key, window_start, hits, to_timestamp(expires_at / 1000.0)
+			FROM unnest(?::varchar[], ?::varchar[], ?::bigint[], ?::bigint[], ?::bigint[])
+				AS batch(policy, rate_key, window_start, hits, expires_at)
+			ON CONFLICT (policy, rate_key, window_start)
+			DO UPDATE SET hits = rate_limit_counters.hits + EXCLUDED.hits
+			RETURNING policy, rate_key, window_start, hits""";
+	//Cluster-wide key of the cleanup, only the instance holding it deletes
+	static final long CLEANUP_LOCK_KEY = 3_871_552_094_617_203_659L;
+	static final String TRY_LOCK = "SELECT pg_try_advisory_xact_lock(?)";
+	//The inner query walks rate_limit_counters_expires_at_idx, every batch is one short transaction
+	static final String DELETE_EXPIRED_BATCH = "DELETE FROM rate_limit_counters WHERE ctid IN " +
+			"(SELECT ctid FROM rate_limit_counters WHERE expires_at < now() LIMIT ?)";
+	private final JdbcTemplate jdbcTemplate;
+	private final TransactionTemplate transactionTemplate;
+	private final List<PostgresRateLimiter> rateLimiters = new CopyOnWriteArrayList<>();
+	@Value("${rate-limit.postgres.sync-interval-ms}")
+	private long syncIntervalMillis;
+	@Value("${rate-limit.postgres.sync-timeout-seconds}")
+	private int syncTimeoutSeconds;
+	@Value("${rate-limit.postgres.cleanup.batch-size}")
+	private int cleanupBatchSize;
+	@Value("${rate-limit.postgres.cleanup.max-batches}")
+	private int cleanupMaxBatches;
+	private ScheduledExecutorService syncExecutor;
+	private Timer syncTimer;
+	private Counter syncFailures;
+
+	record CounterKey(String policy, String key, long windowStart) {
+	}
+
+	record CounterRow(CounterKey counterKey, long hits) {
+	}
+
+	private record PendingSync(WindowCounter counter, long sentHits) {
+	}
+
+	@PostConstruct
+	public void init() {
+		syncExecutor = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("rate-limit-sync").daemon().factory());
+		syncExecutor.scheduleWithFixedDelay(this::scheduledSync, syncIntervalMillis, syncIntervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		if(syncExecutor != null) {
+			syncExecutor.shutdownNow();
+		}
+	}
+
+	@Override
+	public RateLimiter create(String policyName, int capacity, Duration refillPeriod, long maximumKeys, LongSupplier clock) {
+		PostgresRateLimiter rateLimiter = new PostgresRateLimiter(policyName, capacity, refillPeriod.toMillis(), maximumKeys, clock);
+		rateLimiters.add(rateLimiter);
+		return rateLimiter;
+	}
+
+	@Override
+	public void bindTo(@NonNull MeterRegistry registry) {
+		syncTimer = Timer.builder("rateLimit.postgres.sync").register(registry);
+		syncFailures = Counter.builder("rateLimit.postgres.sync.failures").register(registry);
+	}
+
+	//A task that throws is never run again by the executor, so nothing may escape
+	private void scheduledSync() {
+		try {
+			sync();
+		} catch(RuntimeException e) {
+			logger.warning("Rate-limit sync failed: " + e.getMessage());
+		}
+	}
+
+	public void sync() {
+		Map<CounterKey, PendingSync> batch = new HashMap<>();
+		for(PostgresRateLimiter rateLimiter : rateLimiters) {
+			rateLimiter.collect(batch);
+		}
+		if(batch.isEmpty()) {
+			return;
+		}
+		long start = System.nanoTime();
+		try {
+			for(CounterRow row : upsert(batch)) {
+				PendingSync pending = batch.get(row.counterKey());
+				if(pending != null) {
+					//Cluster count first, then drop the local copy, so for a moment the hits are counted twice, never zero times
+					pending.counter().clusterHits = row.hits();
+					pending.counter().pendingHits.addAndGet(-pending.sentHits());
+				}
+			}
+		} catch(DataAccessException e) {
+			//Unsent hits stay pending and go with the next sync, meanwhile instances limit on their own
+			batch.values().forEach(pending -> pending.counter().touched = true);
+			if(syncFailures != null) {
+				syncFailures.increment();
+			}
+			logger.warning("Rate-limit sync failed: " + e.getMessage());
+		} finally {
+			if(syncTimer != null) {
+				syncTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+			}
+		}
+	}
+
+	//Every instance runs the cleanup, a batch only deletes under the lock, so instances never delete side by side
+	@Scheduled(fixedDelay = 60_000)
+	public void deleteExpired() {
+		try {
+			int deleted = 0;
+			for(int batch = 1; batch <= cleanupMaxBatches; batch++) {
+				Integer batchDeleted = transactionTemplate.execute(status -> tryCleanupLock()
+						? jdbcTemplate.update(DELETE_EXPIRED_BATCH, cleanupBatchSize)
+						: null);
+				if(batchDeleted == null) {
+					logger.fine("Rate-limit cleanup skipped, another instance holds the lock.");
+					break;
+				}
+				deleted += batchDeleted;
+				if(batchDeleted < cleanupBatchSize) {
+					break;
+				}
+			}
+			logger.fine("Deleted " + deleted + " expired rate-limit counters.");
+		} catch(DataAccessException e) {
+			logger.warning("Rate-limit cleanup failed: " + e.getMessage());
+		}
+	}
+
+	//Transaction level advisory lock, released on commit. False when another instance holds it
+	private boolean tryCleanupLock() {
+		return Boolean.TRUE.equals(jdbcTemplate.queryForObject(TRY_LOCK, Boolean.class, CLEANUP_LOCK_KEY));
+	}
+
+	//One round trip for the whole batch, RETURNING gives the cluster-wide count of every sent counter
+	private List<CounterRow> upsert(Map<CounterKey, PendingSync> batch) {
+		int size = batch.size();
+		String[] policies = new String[size];
+		String[] keys = new String[size];
+		Long[] windowStarts = new Long[size];
+		Long[] hits = new Long[size];
+		Long[] expiresAt = new Long[size];
+		int i = 0;
+		for(Map.Entry<CounterKey, PendingSync> entry : batch.entrySet()) {
+			policies[i] = entry.getKey().policy();
+			keys[i] = entry.getKey().key();
+			windowStarts[i] = entry.getKey().windowStart();
+			hits[i] = entry.getValue().sentHits();
+			expiresAt[i] = entry.getValue().counter().expiresAt;
+			i++;
+		}
+		return jdbcTemplate.query(connection -> {
+			PreparedStatement statement = connection.prepareStatement(UPSERT);
+			statement.setQueryTimeout(syncTimeoutSeconds);
+			statement.setArray(1, connection.createArrayOf("varchar", policies));
+			statement.setArray(2, connection.createArrayOf("varchar", keys));
+			statement.setArray(3, connection.createArrayOf("bigint", windowStarts));
+			statement.setArray(4, connection.createArrayOf("bigint", hits));
+			statement.setArray(5, connection.createArrayOf("bigint", expiresAt));
+			return statement;
+		}, (resultSet, rowNum) -> new CounterRow(
+				new CounterKey(resultSet.getString(1), resultSet.getString(2), resultSet.getLong(3)), resultSet.getLong(4)));
+	}
+
+	static final class WindowCounter {
+		private final long windowStart;
+		private final long expiresAt;
+		//Hits of the whole cluster as of the last sync, this instance's synced hits included
+		private volatile long clusterHits;
+		//Hits admitted here that the database does not know about yet
+		private final AtomicLong pendingHits = new AtomicLong();
+		//Set on every access, so counters that are only being rejected still learn the cluster count
+		private volatile boolean touched = true;
+
+		private WindowCounter(long windowStart, long windowMillis) {
+			this.windowStart = windowStart;
+			this.expiresAt = windowStart + windowMillis;
+		}
+
+		private boolean tryAcquire(int capacity) {
+			touched = true;
+			while(true) {
+				long pending = pendingHits.get();
+				if(clusterHits + pending >= capacity) {
+					return false;
+				}
+				if(pendingHits.compareAndSet(pending, pending + 1)) {
+					return true;
+				}
+			}
+		}
+
+		private long used() {
+			return clusterHits + pendingHits.get();
+		}
+	}
+
+	final class PostgresRateLimiter implements RateLimiter {
+		private final String policyName;
+		private final int capacity;
+		private final long windowMillis;
+		private final LongSupplier clock;
+		private final Cache<String, WindowCounter> counters;
+
+		private PostgresRateLimiter(String policyName, int capacity, long windowMillis, long maximumKeys, LongSupplier clock) {
+			this.policyName = policyName;
+			this.capacity = capacity;
+			this.windowMillis = windowMillis;
+			this.clock = clock;
+			this.counters = Caffeine.newBuilder()
+					.maximumSize(maximumKeys)
+					.expireAfterAccess(Duration.ofMillis(windowMillis))
+					.ticker(() -> TimeUnit.MILLISECONDS.toNanos(clock.getAsLong()))
+					.executor(Runnable::run)
+					.recordStats()
+					.build();
+		}
+
+		@Override
+		public boolean tryAcquire(String key) {
+			long windowStart = currentWindowStart();
+			WindowCounter counter = counters.get(key, k -> new WindowCounter(windowStart, windowMillis));
+			if(counter.windowStart != windowStart) {
+				//New window: replace the counter once, racing threads get the same fresh instance
+				counter = counters.asMap().compute(key, (k, old) ->
+						old == null || old.windowStart != windowStart ? new WindowCounter(windowStart, windowMillis) : old);
+			}
+			return counter.tryAcquire(capacity);
+		}
+
+		@Override
+		public long availableTokens(String key) {
+			WindowCounter counter = counters.policy().getIfPresentQuietly(key);
+			if(counter == null || counter.windowStart != currentWindowStart()) {
+				return capacity;
+			}
+			return Math.max(0, capacity - counter.used());
+		}
+
+		@Override
+		public void cleanUp() {
+			counters.cleanUp();
+		}
+
+		@Override
+		public void bindTo(MeterRegistry registry, String name) {
+			CaffeineCacheMetrics.monitor(registry, counters, name);
+		}
+
+		private void collect(Map<CounterKey, PendingSync> batch) {
+			long windowStart = currentWindowStart();
+			counters.asMap().forEach((key, counter) -> {
+				long pending = counter.pendingHits.get();
+				//Unsent hits are always sent, counters that only reject are refreshed while their window lasts
+				if(pending > 0 || (counter.touched && counter.windowStart == windowStart)) {
+					counter.touched = false;
+					batch.put(new CounterKey(policyName, key, counter.windowStart), new PendingSync(counter, pending));
+				}
+			});
+		}
+
+		private long currentWindowStart() {
+			long now = clock.getAsLong();
+			return now - Math.floorMod(now, windowMillis);
+		}
+	}
+}
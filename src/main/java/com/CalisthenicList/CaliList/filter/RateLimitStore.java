@@ -0,0 +1,9 @@
+package com.CalisthenicList.CaliList.filter;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+//INFO: where rate-limit state lives, selected with the rate-limit.store property (memory or postgres)
+public interface RateLimitStore {
+	RateLimiter create(String policyName, int capacity, Duration refillPeriod, long maximumKeys, LongSupplier clock);
+}
@@ -0,0 +1,16 @@
+package com.CalisthenicList.CaliList.filter;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+//INFO: admission control for a single rate-limit policy, created by a RateLimitStore
+public interface RateLimiter {
+	//Takes one request from the key's limit, returns false when the limit is reached
+	boolean tryAcquire(String key);
+
+	long availableTokens(String key);
+
+	//Releases local state of idle keys
+	void cleanUp();
+
+	void bindTo(MeterRegistry registry, String name);
+}
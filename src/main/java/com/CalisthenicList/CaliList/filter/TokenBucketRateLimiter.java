@@ -0,0 +1,128 @@
+package com.CalisthenicList.CaliList.filter;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+//INFO: lock-free token bucket per key with continuous refill.
+// The whole bucket state is one long updated with CAS:
+// - upper 24 bits: available tokens in thousandths of a token,
+// - lower 40 bits: last refill time in milliseconds since the limiter was created (~34 years of range).
+// Buckets live in a size-capped cache, so the number of tracked keys never exceeds maximumKeys.
+// A bucket idle for a whole refill period is full again and expires, which is the same as never having seen the key.
+public class TokenBucketRateLimiter implements RateLimiter {
+	private static final int TIMESTAMP_BITS = 40;
+	private static final long TIMESTAMP_MASK = (1L << TIMESTAMP_BITS) - 1;
+	private static final long MAX_UNITS = (1L << (Long.SIZE - TIMESTAMP_BITS)) - 1;
+	private static final long UNITS_PER_TOKEN = 1_000;
+
+	private final long capacityUnits;
+	private final long refillPeriodMillis;
+	private final LongSupplier clock;
+	private final long epochMillis;
+	private final Cache<String, AtomicLong> buckets;
+
+	public TokenBucketRateLimiter(int capacity, Duration refillPeriod, long maximumKeys) {
+		this(capacity, refillPeriod, maximumKeys, System::currentTimeMillis);
+	}
+
+	public TokenBucketRateLimiter(int capacity, Duration refillPeriod, long maximumKeys, LongSupplier clock) {
+		if(capacity <= 0 || capacity * UNITS_PER_TOKEN > MAX_UNITS) {
+			throw new IllegalArgumentException("Capacity must be between 1 and " + MAX_UNITS / UNITS_PER_TOKEN);
+		}
+		if(refillPeriod.toMillis() <= 0) {
+			throw new IllegalArgumentException("Refill period must be at least 1 ms");
+		}
+		this.capacityUnits = capacity * UNITS_PER_TOKEN;
+		this.refillPeriodMillis = refillPeriod.toMillis();
+		this.clock = clock;
+		this.epochMillis = clock.getAsLong();
+		this.buckets = Caffeine.newBuilder()
+				.maximumSize(maximumKeys)
+				.expireAfterAccess(refillPeriod)
+				.ticker(() -> TimeUnit.MILLISECONDS.toNanos(clock.getAsLong()))
+				//Maintenance runs on the calling thread, so evictions keep up with a flood of new keys
+				.executor(Runnable::run)
+				.recordStats()
+				.build();
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry, String name) {
+		CaffeineCacheMetrics.monitor(registry, buckets, name);
+	}
+
+	@Override
+	//Takes one token for the key, returns false when the bucket is empty
+	public boolean tryAcquire(String key) {
+		long now = now();
+		AtomicLong bucket = buckets.get(key, k -> new AtomicLong(pack(capacityUnits, now)));
+		while(true) {
+			long state = bucket.get();
+			long refilled = refill(state, now);
+			long tokens = refilled >>> TIMESTAMP_BITS;
+			if(tokens < UNITS_PER_TOKEN) {
+				//Rejections do not write, so a blocked client cannot create CAS contention
+				return false;
+			}
+			if(bucket.compareAndSet(state, refilled - (UNITS_PER_TOKEN << TIMESTAMP_BITS))) {
+				return true;
+			}
+		}
+	}
+
+	@Override
+	public long availableTokens(String key) {
+		//Quiet read, so checking a bucket does not extend its idle expiry
+		AtomicLong bucket = buckets.policy().getIfPresentQuietly(key);
+		if(bucket == null) {
+			return capacityUnits / UNITS_PER_TOKEN;
+		}
+		return (refill(bucket.get(), now()) >>> TIMESTAMP_BITS) / UNITS_PER_TOKEN;
+	}
+
+	@Override
+	//Removes expired buckets now instead of waiting for the next cache write
+	public void cleanUp() {
+		buckets.cleanUp();
+	}
+
+	public long size() {
+		return buckets.estimatedSize();
+	}
+
+	public long evictionCount() {
+		return buckets.stats().evictionCount();
+	}
+
+	private long refill(long state, long now) {
+		long tokens = state >>> TIMESTAMP_BITS;
+		long lastRefill = state & TIMESTAMP_MASK;
+		//A full period always refills the bucket, capping elapsed time also keeps the multiplication below from overflowing
+		long elapsed = Math.min(Math.max(0, now - lastRefill), refillPeriodMillis);
+		long refillUnits = elapsed * capacityUnits / refillPeriodMillis;
+		if(refillUnits == 0) {
+			return state;
+		}
+		if(tokens + refillUnits >= capacityUnits) {
+			return pack(capacityUnits, now);
+		}
+		//Advance the timestamp only by the time that was converted into tokens, so rounding never loses refill
+		long consumedMillis = refillUnits * refillPeriodMillis / capacityUnits;
+		return pack(tokens + refillUnits, lastRefill + consumedMillis);
+	}
+
+	private long now() {
+		return (clock.getAsLong() - epochMillis) & TIMESTAMP_MASK;
+	}
+
+	private static long pack(long units, long timestamp) {
+		return (units << TIMESTAMP_BITS) | (timestamp & TIMESTAMP_MASK);
+	}
+}
@@ -1,62 +1,217 @@
 package com.CalisthenicList.CaliList.filter;
 
-import com.CalisthenicList.CaliList.controller.AuthController;
+import com.CalisthenicList.CaliList.configurations.RateLimitProperties;
+import com.CalisthenicList.CaliList.enums.RateLimitCount;
+import com.CalisthenicList.CaliList.enums.RateLimitKey;
+import com.CalisthenicList.CaliList.utils.JwtUtils;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.JwtException;
 import io.micrometer.common.lang.NonNull;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
 
 import java.io.IOException;
-import java.util.Date;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.time.Duration;
+import java.util.*;
+import java.util.function.LongSupplier;
 
 @Component
 @EnableScheduling
 //INFO: in-memory rate-limiting mechanism
 // protect API from abuse, ensures fair resource usage, and prevents Denial of Service (DoS) attacks
-public class UserValidationRateLimitingFilter extends OncePerRequestFilter {
+// Every costly route has its own policies (see RateLimitProperties), sized to what the route costs.
+public class UserValidationRateLimitingFilter extends OncePerRequestFilter implements MeterBinder {
+	private static final int MAX_BUFFERED_BODY_BYTES = 8 * 1024;
+	private static final String WILDCARD_SUFFIX = "/*";
+	private static final ObjectMapper objectMapper = new ObjectMapper();
+	private final JwtUtils jwtUtils;
+	private final Map<String, Policy> policiesByName = new LinkedHashMap<>();
+	//INFO: a route is matched with at most two map lookups: the exact URI, then its parent path for "/prefix/*" policies
+	private final Map<String, List<Policy>> exactRoutes = new HashMap<>();
+	private final Map<String, List<Policy>> wildcardRoutes = new HashMap<>();
 
-	public final int MAX_HEAVY_REQUESTS_PER_MINUTE = 10;
-	public final int REFILL_PERIOD = 60_000;
-	public final Map<String, Integer> requestCounts = new ConcurrentHashMap<>();
+	private record Policy(String name, RateLimitKey key, RateLimitCount count, int capacity, Duration refillPeriod,
+						  RateLimiter rateLimiter) {
+	}
+
+	@Autowired
+	public UserValidationRateLimitingFilter(JwtUtils jwtUtils, RateLimitProperties properties, RateLimitStore rateLimitStore) {
+		this(jwtUtils, properties, rateLimitStore, System::currentTimeMillis);
+	}
+
+	UserValidationRateLimitingFilter(JwtUtils jwtUtils, RateLimitProperties properties, RateLimitStore rateLimitStore,
+									 LongSupplier clock) {
+		this.jwtUtils = jwtUtils;
+		properties.getPolicies().forEach((name, config) -> {
+			if(config.getPath() == null || config.getRefillPeriod() == null) {
+				throw new IllegalStateException("Rate-limit policy '" + name + "' needs path and refill-period");
+			}
+			//The key cap is a hard memory ceiling: a flood of spoofed addresses evicts idle keys instead of growing the heap
+			Policy policy = new Policy(name, config.getKey(), config.getCount(), config.getCapacity(), config.getRefillPeriod(),
+					rateLimitStore.create(name, config.getCapacity(), config.getRefillPeriod(), properties.getMaximumKeys(), clock));
+			policiesByName.put(name, policy);
+			String path = config.getPath();
+			if(path.endsWith(WILDCARD_SUFFIX)) {
+				String parent = path.substring(0, path.length() - WILDCARD_SUFFIX.length());
+				wildcardRoutes.computeIfAbsent(parent, p -> new ArrayList<>()).add(policy);
+			} else {
+				exactRoutes.computeIfAbsent(path, p -> new ArrayList<>()).add(policy);
+			}
+		});
+	}
+
+	@Override
+	public void bindTo(@NonNull MeterRegistry registry) {
+		//Exposes rateLimit.<policy> size (tracked keys) and evictions
+		policiesByName.values().forEach(policy -> policy.rateLimiter().bindTo(registry, "rateLimit." + policy.name()));
+	}
+
+	@Scheduled(fixedDelay = 60_000)
+	public void evictIdleBuckets() {
+		//Idle buckets also expire on cache writes, this only releases them when there is no traffic
+		policiesByName.values().forEach(policy -> policy.rateLimiter().cleanUp());
+	}
 
-	@Scheduled(fixedDelay = REFILL_PERIOD)
-	public void rateLimitingTimer() {
-		//Reset limit every minute
-		requestCounts.clear();
-		logger.info("Rate-limiting bucket has been reset. " + new Date());
+	public int capacity(String policyName) {
+		return getPolicy(policyName).capacity();
+	}
+
+	public Duration refillPeriod(String policyName) {
+		return getPolicy(policyName).refillPeriod();
+	}
+
+	public long availableRequests(String policyName, String key) {
+		return getPolicy(policyName).rateLimiter().availableTokens(key);
 	}
 
 	@Override
-	//INFO: Rate limit mechanism for every user IP
+	//INFO: Rate limit mechanism for every policy matching the request URI
 	protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse httpResponse,
 									@NonNull FilterChain filterChain) throws ServletException, IOException {
-		if(AuthController.loginUrl.equals(request.getRequestURI())) {
-			// Get the client's IP address
-			String clientIp = request.getRemoteAddr();
-			// Initialize the count if the IP is new, otherwise get the current count
-			requestCounts.putIfAbsent(clientIp, 0);
-			int requestCount = requestCounts.get(clientIp);
-
-			// If the count exceeds the limit, return a "Too Many Requests" response
-			if(requestCount >= MAX_HEAVY_REQUESTS_PER_MINUTE) {
-				httpResponse.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
-				httpResponse.setContentType("application/json");
-				httpResponse.setCharacterEncoding("UTF-8");
-				httpResponse.getWriter().write("Too many requests. Please try again later.");
-				logger.warn("Too many requests. Please try again later.");
+		List<Policy> policies = findPolicies(request.getRequestURI());
+		if(policies.isEmpty()) {
+			filterChain.doFilter(request, httpResponse);
+			return;
+		}
+		HttpServletRequest filteredRequest = request;
+		String email = null;
+		if(policies.stream().anyMatch(policy -> policy.key() == RateLimitKey.EMAIL)) {
+			BufferedBodyRequestWrapper bufferedRequest = new BufferedBodyRequestWrapper(request, MAX_BUFFERED_BODY_BYTES);
+			email = extractEmail(bufferedRequest.getBufferedBody());
+			filteredRequest = bufferedRequest;
+		}
+		String[] keys = new String[policies.size()];
+		for(int i = 0; i < keys.length; i++) {
+			keys[i] = resolveKey(policies.get(i).key(), request, email);
+		}
+		//Every policy is checked before any takes a token, so a request rejected by one policy does not drain the others
+		for(int i = 0; i < keys.length; i++) {
+			if(policies.get(i).rateLimiter().availableTokens(keys[i]) <= 0) {
+				rejectRequest(httpResponse, policies.get(i));
+				return;
+			}
+		}
+		//Only a concurrent request taking the last token in between can still fail here
+		for(int i = 0; i < keys.length; i++) {
+			Policy policy = policies.get(i);
+			if(policy.count() == RateLimitCount.REQUESTS && !policy.rateLimiter().tryAcquire(keys[i])) {
+				rejectRequest(httpResponse, policy);
 				return;
 			}
-			// Otherwise, increment the request count and proceed with the request
-			requestCounts.put(clientIp, requestCount + 1);
 		}
-		filterChain.doFilter(request, httpResponse);
+		try {
+			filterChain.doFilter(filteredRequest, httpResponse);
+		} finally {
+			countFailure(policies, keys, httpResponse.getStatus());
+		}
+	}
+
+	//FAILURES policies take their token once the response is known, successful requests leave the limit untouched
+	private void countFailure(List<Policy> policies, String[] keys, int status) {
+		if(status < HttpStatus.BAD_REQUEST.value()) {
+			return;
+		}
+		for(int i = 0; i < keys.length; i++) {
+			if(policies.get(i).count() == RateLimitCount.FAILURES) {
+				policies.get(i).rateLimiter().tryAcquire(keys[i]);
+			}
+		}
+	}
+
+	// If any bucket is empty, return a "Too Many Requests" response
+	private void rejectRequest(HttpServletResponse httpResponse, Policy policy) throws IOException {
+		httpResponse.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+		httpResponse.setContentType("application/json");
+		httpResponse.setCharacterEncoding("UTF-8");
+		httpResponse.getWriter().write("Too many requests. Please try again later.");
+		logger.warn("Too many requests. Please try again later. Policy: " + policy.name());
+	}
+
+	private Policy getPolicy(String policyName) {
+		Policy policy = policiesByName.get(policyName);
+		if(policy == null) {
+			throw new IllegalArgumentException("Unknown rate-limit policy: " + policyName);
+		}
+		return policy;
+	}
+
+	private List<Policy> findPolicies(String uri) {
+		List<Policy> policies = exactRoutes.get(uri);
+		if(policies != null) {
+			return policies;
+		}
+		int lastSlash = uri.lastIndexOf('/');
+		if(lastSlash > 0) {
+			policies = wildcardRoutes.get(uri.substring(0, lastSlash));
+		}
+		return policies != null ? policies : List.of();
+	}
+
+	//Falls back to the client's IP address when the request has no usable email or refresh token
+	private String resolveKey(RateLimitKey key, HttpServletRequest request, String email) {
+		String resolved = switch(key) {
+			case IP -> null;
+			case EMAIL -> email;
+			case REFRESH_TOKEN_SUBJECT -> extractRefreshTokenSubject(request);
+		};
+		return resolved != null ? resolved : request.getRemoteAddr();
+	}
+
+	private String extractEmail(byte[] body) {
+		if(body == null || body.length == 0) {
+			return null;
+		}
+		try {
+			JsonNode email = objectMapper.readTree(body).path("email");
+			return email.isTextual() ? email.asText().trim().toLowerCase(Locale.ROOT) : null;
+		} catch(IOException e) {
+			//Malformed body is rejected later by the controller
+			return null;
+		}
+	}
+
+	private String extractRefreshTokenSubject(HttpServletRequest request) {
+		Cookie cookie = WebUtils.getCookie(request, "refreshToken");
+		if(cookie == null || cookie.getValue() == null || cookie.getValue().isBlank()) {
+			return null;
+		}
+		try {
+			return jwtUtils.parse(cookie.getValue()).subject();
+		} catch(JwtException | IllegalArgumentException e) {
+			return null;
+		}
 	}
 }
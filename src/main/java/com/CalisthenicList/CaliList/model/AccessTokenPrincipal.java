@@ -0,0 +1,23 @@
+package com.CalisthenicList.CaliList.model;
+
+import com.CalisthenicList.CaliList.enums.Roles;
+import org.springframework.security.core.AuthenticatedPrincipal;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+//INFO - principal built straight from verified access token claims, without loading the User row
+public record AccessTokenPrincipal(UUID id, String email, Roles role) implements AuthenticatedPrincipal {
+
+	@Override
+	public String getName() {
+		return email;
+	}
+
+	public Collection<? extends GrantedAuthority> getAuthorities() {
+		return List.of(new SimpleGrantedAuthority(role.name()));
+	}
+}
@@ -0,0 +1,41 @@
+package com.CalisthenicList.CaliList.model;
+
+import com.CalisthenicList.CaliList.enums.Roles;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+//INFO - immutable copy of the User columns the security principal needs. Cached and shared across requests,
+// so it must not be the managed entity: changes to the principal would leak into the cache, lazy associations would fail
+public record CachedUserDetails(UUID id, String username, String email, String password, Roles role)
+		implements UserDetails {
+
+	public static CachedUserDetails from(User user) {
+		return new CachedUserDetails(user.getId(), user.getUsername(), user.getEmail(), user.getPassword(), user.getRole());
+	}
+
+	@Override
+	public String getUsername() {
+		return username;
+	}
+
+	@Override
+	public String getPassword() {
+		return password;
+	}
+
+	@Override
+	public Collection<? extends GrantedAuthority> getAuthorities() {
+		return List.of(new SimpleGrantedAuthority(role.name()));
+	}
+
+	//Keeps the password hash out of logs
+	@Override
+	public String toString() {
+		return "CachedUserDetails{id=" + id + ", username='" + username + "', email='" + email + "', role=" + role + "}";
+	}
+}
@@ -0,0 +1,68 @@
+package com.CalisthenicList.CaliList.model;
+
+import com.CalisthenicList.CaliList.enums.EmailOutboxStatus;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+import java.util.UUID;
+
+//INFO - email waiting for delivery, written in the same transaction as the change that caused it
+@Getter
+@Setter
+@Entity
+@NoArgsConstructor
+@Table(name = "email_outbox", indexes = @Index(name = "idx_email_outbox_status_next_attempt", columnList = "status, next_attempt_at"))
+public class EmailOutbox {
+	@Id
+	@GeneratedValue(strategy = GenerationType.UUID)
+	private UUID id;
+
+	@Column(nullable = false)
+	private String recipient;
+
+	@Column(nullable = false)
+	private String subject;
+
+	@Column(nullable = false, columnDefinition = "TEXT")
+	private String body;
+
+	//Sent as the HTML alternative of a multipart message, plain text only when null
+	@Column(columnDefinition = "TEXT")
+	private String htmlBody = null;
+
+	@Enumerated(EnumType.STRING)
+	@Column(nullable = false)
+	private EmailOutboxStatus status = EmailOutboxStatus.PENDING;
+
+	@Column(nullable = false)
+	private int attempts = 0;
+
+	@Column(nullable = false)
+	private Instant nextAttemptAt;
+
+	@Column(nullable = false, updatable = false)
+	private Instant createdAt;
+
+	private Instant sentAt = null;
+
+	//Set while SENDING, a row whose dispatcher died mid-send is claimed again once it passes
+	private Instant lockedUntil = null;
+
+	private String lastError = null;
+
+	public EmailOutbox(String recipient, String subject, String body, Instant createdAt) {
+		this.recipient = recipient;
+		this.subject = subject;
+		this.body = body;
+		this.createdAt = createdAt;
+		this.nextAttemptAt = createdAt;
+	}
+
+	public EmailOutbox(String recipient, String subject, String body, String htmlBody, Instant createdAt) {
+		this(recipient, subject, body, createdAt);
+		this.htmlBody = htmlBody;
+	}
+}
@@ -0,0 +1,21 @@
+package com.CalisthenicList.CaliList.model;
+
+import java.time.Instant;
+import java.util.Map;
+
+//INFO - immutable view of a verified JWT. Built once by JwtUtils.parse, so callers never verify the signature twice
+public record JwtToken(String subject, Instant issuedAt, Instant expiration, Map<String, Object> claims) {
+
+	public JwtToken {
+		claims = claims == null ? Map.of() : Map.copyOf(claims);
+	}
+
+	public boolean isExpired() {
+		return expiration != null && expiration.isBefore(Instant.now());
+	}
+
+	public <T> T getClaim(String name, Class<T> type) {
+		Object value = claims.get(name);
+		return type.isInstance(value) ? type.cast(value) : null;
+	}
+}
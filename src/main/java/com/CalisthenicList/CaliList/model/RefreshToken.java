@@ -1,7 +1,7 @@
 package com.CalisthenicList.CaliList.model;
 
+import com.CalisthenicList.CaliList.utils.HashUtils;
 import jakarta.persistence.*;
-import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -12,21 +12,59 @@ import java.util.UUID;
 @Getter
 @Setter
 @NoArgsConstructor
-@AllArgsConstructor
 @Entity
-@Table(name = "refresh_tokens")
+//INFO - one row per signed-in device, a user keeps at most refreshToken.max-sessions of them
+@Table(name = "refresh_tokens", indexes = {
+		@Index(name = "idx_refresh_tokens_user_last_used", columnList = "user_id, last_used"),
+		@Index(name = "idx_refresh_tokens_expiry_date", columnList = "expiry_date")})
 public class RefreshToken {
 	@Id
 	@GeneratedValue(strategy = GenerationType.UUID)
 	private UUID id;
 
-	@OneToOne
-	@JoinColumn(name = "user_id", referencedColumnName = "id")
+	@ManyToOne(fetch = FetchType.LAZY, optional = false)
+	@JoinColumn(name = "user_id", referencedColumnName = "id", nullable = false)
 	private User user;
 
-	@Column(nullable = false, unique = true)
+	//INFO - SHA-256 of the token (bytea), a fixed 32-byte key keeps the unique index small and no usable token is stored
+	@Column(name = "token_hash", nullable = false, unique = true, length = 32)
+	private byte[] tokenHash;
+
+	//Plain token, only known right after it was issued, never loaded from the database
+	@Transient
 	private String token;
 
-	@Column(nullable = false)
+	//INFO - shared by every token rotated from one sign-in and sent as the fid claim, replaying a rotated token revokes the family
+	@Column(name = "family_id", nullable = false, unique = true)
+	private UUID familyId = UUID.randomUUID();
+
+	//INFO - hash of the token this one replaced, a replay of it within the grace window is a concurrent refresh, not theft
+	@Column(name = "previous_token_hash", length = 32)
+	private byte[] previousTokenHash;
+
+	//Set with previousTokenHash, a replay shortly after it is a concurrent refresh of the same client
+	@Column(name = "rotated_at")
+	private Instant rotatedAt;
+
+	@Column(name = "expiry_date", nullable = false)
 	private Instant expiryDate;
+
+	@Column(nullable = false, updatable = false)
+	private Instant createdAt = Instant.now();
+
+	//Moved forward on every refresh, the session with the oldest value is evicted first
+	@Column(name = "last_used", nullable = false)
+	private Instant lastUsed = createdAt;
+
+	public RefreshToken(UUID id, User user, String token, Instant expiryDate) {
+		this.id = id;
+		this.user = user;
+		this.expiryDate = expiryDate;
+		setToken(token);
+	}
+
+	public void setToken(String token) {
+		this.token = token;
+		this.tokenHash = HashUtils.sha256(token);
+	}
 }
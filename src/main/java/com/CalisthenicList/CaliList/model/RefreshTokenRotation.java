@@ -0,0 +1,11 @@
+package com.CalisthenicList.CaliList.model;
+
+import com.CalisthenicList.CaliList.enums.Roles;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+//INFO - user columns returned by the refresh token rotation, everything the refresh response needs
+public record RefreshTokenRotation(UUID userId, String username, String email, Roles role, boolean emailVerified,
+								   LocalDate birthdate, LocalDate caliStartDate, String avatarKey) {
+}
@@ -0,0 +1,8 @@
+package com.CalisthenicList.CaliList.model;
+
+import java.time.Instant;
+import java.util.UUID;
+
+//INFO - one signed-in device as listed to its owner, current marks the session of the cookie sent with the request
+public record SessionDTO(UUID id, Instant createdAt, Instant lastUsed, Instant expiryDate, boolean current) {
+}
@@ -0,0 +1,5 @@
+package com.CalisthenicList.CaliList.model;
+
+//INFO - projection of the unique columns of User, used by the registration uniqueness check
+public record UserIdentity(String username, String email) {
+}
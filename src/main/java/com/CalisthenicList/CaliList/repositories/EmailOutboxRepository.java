@@ -0,0 +1,46 @@
+package com.CalisthenicList.CaliList.repositories;
+
+import com.CalisthenicList.CaliList.model.EmailOutbox;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutbox, UUID> {
+	//INFO - rows stay locked until the caller's transaction ends, SKIP LOCKED lets other instances claim the next rows instead of waiting.
+	// The caller marks them SENDING before it commits, a SENDING row is only claimed again after its lease ran out
+	@Query(value = "SELECT * FROM email_outbox WHERE (status = 'PENDING' AND next_attempt_at <= :now) " +
+			"OR (status = 'SENDING' AND locked_until <= :now) " +
+			"ORDER BY next_attempt_at LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+	List<EmailOutbox> claimBatch(@Param("now") Instant now, @Param("limit") int limit);
+
+	//Transaction level advisory lock, released on commit. False when another instance holds it
+	@Query(value = "SELECT pg_try_advisory_xact_lock(:key)", nativeQuery = true)
+	boolean tryTransactionLock(@Param("key") long key);
+
+	//INFO - a held row is a pending row whose next attempt lies in the future, releasing it makes it due now.
+	// Both are no-ops once the hold expired and the dispatcher took the row
+	@Modifying
+	@Transactional
+	@Query("UPDATE EmailOutbox e SET e.nextAttemptAt = :now WHERE e.id = :id " +
+			"AND e.status = com.CalisthenicList.CaliList.enums.EmailOutboxStatus.PENDING AND e.nextAttemptAt > :now")
+	int releaseHeld(@Param("id") UUID id, @Param("now") Instant now);
+
+	@Modifying
+	@Transactional
+	@Query("DELETE FROM EmailOutbox e WHERE e.id = :id " +
+			"AND e.status = com.CalisthenicList.CaliList.enums.EmailOutboxStatus.PENDING AND e.nextAttemptAt > :now")
+	int deleteHeld(@Param("id") UUID id, @Param("now") Instant now);
+
+	@Modifying
+	@Transactional
+	@Query("DELETE FROM EmailOutbox e WHERE e.status = com.CalisthenicList.CaliList.enums.EmailOutboxStatus.SENT AND e.sentAt < :before")
+	int deleteSentBefore(@Param("before") Instant before);
+}
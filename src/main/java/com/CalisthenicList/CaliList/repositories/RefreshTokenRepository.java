@@ -1,14 +1,47 @@
 package com.CalisthenicList.CaliList.repositories;
 
 import com.CalisthenicList.CaliList.model.RefreshToken;
+import com.CalisthenicList.CaliList.utils.HashUtils;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 @Repository
-public interface RefreshTokenRepository extends JpaRepository<RefreshToken, UUID> {
-	Optional<RefreshToken> findByToken(String token);
-	Optional<RefreshToken> findByUserEmail(String email);
-}
\ No newline at end of file
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, UUID>, RefreshTokenRotationRepository {
+	Optional<RefreshToken> findByTokenHash(byte[] tokenHash);
+	//Served by the family_id unique constraint, the live session of a token family
+	Optional<RefreshToken> findByFamilyId(UUID familyId);
+	List<RefreshToken> findByUserEmail(String email);
+	//Served by idx_refresh_tokens_user_last_used, most recently used session first
+	List<RefreshToken> findByUserIdOrderByLastUsedDesc(UUID userId);
+
+	//Tokens are stored as SHA-256 digests, the cookie value is hashed before the lookup
+	default Optional<RefreshToken> findByToken(String token) {
+		return findByTokenHash(HashUtils.sha256(token));
+	}
+
+	//INFO - keeps the `keep` most recently used sessions of the user and deletes the rest, oldest first
+	@Modifying
+	@Transactional
+	@Query(value = "DELETE FROM refresh_tokens WHERE id IN (SELECT id FROM refresh_tokens WHERE user_id = :userId " +
+			"ORDER BY last_used DESC OFFSET :keep ROWS)", nativeQuery = true)
+	int deleteOldestSessions(@Param("userId") UUID userId, @Param("keep") int keep);
+
+	//The user id condition keeps a user from revoking another user's session
+	@Modifying
+	@Transactional
+	@Query("DELETE FROM RefreshToken t WHERE t.id = :id AND t.user.id = :userId")
+	int deleteSession(@Param("id") UUID id, @Param("userId") UUID userId);
+
+	@Modifying
+	@Transactional
+	@Query("DELETE FROM RefreshToken t WHERE t.user.id = :userId")
+	int deleteAllByUserId(@Param("userId") UUID userId);
+}
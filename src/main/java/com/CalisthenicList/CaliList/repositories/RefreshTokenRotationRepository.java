@@ -0,0 +1,15 @@
+package com.CalisthenicList.CaliList.repositories;
+
+import com.CalisthenicList.CaliList.model.RefreshTokenRotation;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+//INFO - Spring Data fragment of RefreshTokenRepository, implemented with plain JDBC in RefreshTokenRotationRepositoryImpl
+public interface RefreshTokenRotationRepository {
+	//Replaces the token only if it is current, unexpired and belongs to the email. Empty when nothing was rotated.
+	// familyId is the fid of the new token, tokens issued before families existed join a new family here
+	Optional<RefreshTokenRotation> rotate(byte[] oldTokenHash, byte[] newTokenHash, UUID familyId, Instant newExpiryDate,
+										  Instant now, String email);
+}
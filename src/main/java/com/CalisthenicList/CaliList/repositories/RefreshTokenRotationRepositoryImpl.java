@@ -0,0 +1,45 @@
+package com.CalisthenicList.CaliList.repositories;
+
+import com.CalisthenicList.CaliList.enums.Roles;
+import com.CalisthenicList.CaliList.model.RefreshTokenRotation;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.UUID;
+
+@RequiredArgsConstructor
+//INFO - one conditional UPDATE ... RETURNING instead of find, validate, save and reload.
+// Only the presented session's row is touched. The row lock makes the WHERE clause re-check the new token_hash, so of two concurrent refreshes with one cookie only the first wins.
+// The replaced hash is kept in previous_token_hash, so a concurrent refresh with it is told apart from a replay.
+public class RefreshTokenRotationRepositoryImpl implements RefreshTokenRotationRepository {
+	static final String ROTATE_SQL = "UPDATE refresh_tokens t SET previous_token_hash = t.token_hash, rotated_at = ?, " +
+			"token_hash = ?, family_id = ?, expiry_date = ?, last_used = ? " +
+			"FROM users u " +
+			"WHERE t.user_id = u.id AND t.token_hash = ? AND t.expiry_date > ? AND u.email = ? " +
+			"RETURNING u.id, u.username, u.email, u.role, u.email_verified, u.birthdate, u.cali_start_date, u.avatar_key";
+	static final RowMapper<RefreshTokenRotation> ROTATION_MAPPER = (rs, rowNum) -> new RefreshTokenRotation(
+			rs.getObject("id", UUID.class),
+			rs.getString("username"),
+			rs.getString("email"),
+			Roles.valueOf(rs.getString("role")),
+			rs.getBoolean("email_verified"),
+			rs.getObject("birthdate", LocalDate.class),
+			rs.getObject("cali_start_date", LocalDate.class),
+			rs.getString("avatar_key"));
+	private final JdbcTemplate jdbcTemplate;
+
+	@Override
+	public Optional<RefreshTokenRotation> rotate(byte[] oldTokenHash, byte[] newTokenHash, UUID familyId, Instant newExpiryDate,
+												 Instant now, String email) {
+		return jdbcTemplate.query(ROTATE_SQL, ROTATION_MAPPER,
+						Timestamp.from(now), newTokenHash, familyId, Timestamp.from(newExpiryDate), Timestamp.from(now),
+						oldTokenHash, Timestamp.from(now), email)
+				.stream()
+				.findFirst();
+	}
+}
@@ -1,9 +1,15 @@
 package com.CalisthenicList.CaliList.repositories;
 
 import com.CalisthenicList.CaliList.model.User;
+import com.CalisthenicList.CaliList.model.UserIdentity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -14,4 +20,15 @@ public interface UserRepository extends JpaRepository<User, UUID> {
 
 	boolean existsByUsername(String username);
 	boolean existsByEmail(String email);
+
+	//Both unique constraints checked with one query, at most two rows are returned
+	@Query("SELECT new com.CalisthenicList.CaliList.model.UserIdentity(u.username, u.email) FROM User u " +
+			"WHERE u.email = :email OR u.username = :username")
+	List<UserIdentity> findIdentitiesByEmailOrUsername(@Param("email") String email, @Param("username") String username);
+
+	@Modifying
+	@Transactional
+	@Query("UPDATE User u SET u.password = :newPassword WHERE u.id = :id AND u.password = :oldPassword")
+	int updatePasswordIfUnchanged(@Param("id") UUID id, @Param("oldPassword") String oldPassword,
+								  @Param("newPassword") String newPassword);
 }
@@ -1,15 +1,19 @@
 package com.CalisthenicList.CaliList.service;
 
 import com.CalisthenicList.CaliList.constants.Messages;
+import com.CalisthenicList.CaliList.enums.DnsTimeoutPolicy;
 import com.CalisthenicList.CaliList.exceptions.UserRegistrationException;
 import com.CalisthenicList.CaliList.model.*;
 import com.CalisthenicList.CaliList.repositories.UserRepository;
+import com.CalisthenicList.CaliList.service.tokens.AccessTokenRevocationService;
 import com.CalisthenicList.CaliList.service.tokens.AccessTokenService;
 import com.CalisthenicList.CaliList.service.tokens.RefreshTokenService;
 import com.CalisthenicList.CaliList.utils.JwtUtils;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseCookie;
@@ -18,9 +22,14 @@ import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Logger;
 
 @Service
@@ -32,11 +41,21 @@ public class AuthService {
 	private final EmailService emailService;
 	private final RefreshTokenService refreshTokenService;
 	private final AccessTokenService accessTokenService;
+	private final AccessTokenRevocationService accessTokenRevocationService;
+	private final UserDetailsCache userDetailsCache;
+	private final PasswordUpgradeService passwordUpgradeService;
 	private final JwtUtils jwtUtils;
+	private final TransactionTemplate transactionTemplate;
+	@Value("${registration.dns.timeout.ms}")
+	private long dnsTimeoutMillis;
+	@Value("${registration.dns.timeout-policy}")
+	private DnsTimeoutPolicy dnsTimeoutPolicy;
 
 	public ResponseEntity<ApiResponse<Object>> registerUser(UserRegistrationDTO userDto, HttpServletResponse response) {
-		//Validate user input
-		handleRegistrationErrors(userDto);
+		//Validate user input, a domain check that missed its deadline is only finished after the insert.
+		// The checks run one after another, so a late check must not be lost: its verification email is written as a held
+		// outbox row in the registration transaction below and survives a restart before the check completes
+		CompletableFuture<Boolean> lateDomainCheck = handleRegistrationErrors(userDto);
 		//Encode password
 		String rawPassword = userDto.getPassword();
 		String encodedPassword = encoder.encode(rawPassword);
@@ -46,18 +65,36 @@ public class AuthService {
 		}
 
 		User user = new User(userDto.getUsername(), userDto.getEmail(), encodedPassword);
-		userRepository.save(user);
-
-		//Create cookie with refresh token
 		String userEmail = user.getEmail();
-		ResponseCookie cookieWithRefreshToken = refreshTokenService.createCookieWithRefreshToken(userEmail);
+		ResponseCookie cookieWithRefreshToken;
+		try {
+			//One transaction: the user, its session and the queued verification email commit together or not at all
+			cookieWithRefreshToken = transactionTemplate.execute(status -> {
+				//Unique constraints decide, the pre-checks only keep most duplicates away from Argon2 and DNS
+				userRepository.saveAndFlush(user);
+				if(lateDomainCheck == null) {
+					emailService.postEmailVerificationToUser(userEmail);
+				} else {
+					emailService.postEmailVerificationAfterDomainCheck(userEmail, lateDomainCheck);
+				}
+				return refreshTokenService.createCookieWithRefreshToken(userEmail);
+			});
+		} catch(DataIntegrityViolationException e) {
+			//Looked up after the rollback, Postgres refuses queries in a transaction aborted by the violation
+			logger.warning(Messages.USER_REGISTERED_FAILED);
+			Map<String, String> errors = findUniquenessErrors(userDto.getUsername(), userDto.getEmail());
+			if(errors.isEmpty()) {
+				//The conflicting row is gone again or the violation is not a clash the lookup can name
+				errors.put("user", Messages.USER_ALREADY_EXISTS_ERROR);
+			}
+			throw new UserRegistrationException(errors);
+		}
+
+		//Set cookie with refresh token
 		response.addHeader(HttpHeaders.SET_COOKIE, cookieWithRefreshToken.toString());
 
 		//Create an access token
-		String accessToken = accessTokenService.generateAccessToken(userEmail);
-
-		//Send Async email verification
-		//emailService.postEmailVerificationToUser(userEmail);
+		String accessToken = accessTokenService.generateAccessToken(user);
 
 		//Return response with userDTO and access token
 		logger.info(Messages.USER_REGISTERED_SUCCESS);
@@ -85,6 +122,10 @@ public class AuthService {
 			logger.warning("Invalid password for login attempt.");
 			throw new BadCredentialsException(Messages.INVALID_LOGIN_ERROR);
 		}
+		//Re-encode hashes made with outdated Argon2 parameters, off the request path
+		if(encoder.upgradeEncoding(user.getPassword())) {
+			passwordUpgradeService.upgradePassword(user.getId(), user.getEmail(), userLoginDTO.getPassword(), user.getPassword());
+		}
 
 		//Create cookie with refresh token
 		String userEmail = user.getEmail();
@@ -92,7 +133,7 @@ public class AuthService {
 		response.addHeader(HttpHeaders.SET_COOKIE, cookieWithRefreshToken.toString());
 
 		//Create an access token
-		String accessToken = accessTokenService.generateAccessToken(userEmail);
+		String accessToken = accessTokenService.generateAccessToken(user);
 
 		//Update user
 		user.setTrainingDuration(UserService.calculateTrainingDuration(user.getCaliStartDate()));
@@ -127,7 +168,7 @@ public class AuthService {
 
 	public ResponseEntity<ApiResponse<Object>> passwordRecovery(String jwt, @Valid PasswordRecoveryDTO passwordRecoveryDTO) {
 		//Validate credentials
-		String userEmail = jwtUtils.extractSubject(jwt);
+		String userEmail = jwtUtils.parse(jwt).subject();
 		String rawPassword = passwordRecoveryDTO.getPassword();
 		String rawRepeatedPassword = passwordRecoveryDTO.getConfirmPassword();
 		boolean isValidRepeatablePassword = rawPassword.equals(rawRepeatedPassword);
@@ -153,6 +194,9 @@ public class AuthService {
 		//Update and save user
 		user.setPassword(encodedPassword);
 		userRepository.save(user);
+		userDetailsCache.evict(userEmail);
+		//Access tokens issued before the password change stop working on the stateless path
+		accessTokenRevocationService.revokeAllForUser(user.getId());
 
 		//Return apiResponse
 		logger.info("Password recovered successfully.");
@@ -165,36 +209,71 @@ public class AuthService {
 		);
 	}
 
-	private void handleRegistrationErrors(UserRegistrationDTO userDto) {
+	//Stages run cheapest-first: password comparison, one uniqueness query, DNS lookup only when nothing else failed,
+	// so duplicates never cost a lookup. Waiting for the lookup is bounded by a deadline.
+	// Returns the lookup when ACCEPT_AND_RECHECK accepted it past the deadline, null otherwise.
+	//Cheap checks first, the DNS lookup only runs for a request that passed them. Returns the still running lookup when it
+	// missed its deadline under ACCEPT_AND_RECHECK, the caller hands it to EmailService.postEmailVerificationAfterDomainCheck
+	private CompletableFuture<Boolean> handleRegistrationErrors(UserRegistrationDTO userDto) {
 		Map<String, String> errors = new HashMap<>();
-		String username = userDto.getUsername();
-		String email = userDto.getEmail();
 		String rawPassword = userDto.getPassword();
 		String rawRepeatedPassword = userDto.getConfirmPassword();
-		boolean emailAlreadyExists = userRepository.existsByEmail(email);
-		boolean usernameAlreadyExists = userRepository.existsByUsername(username);
 		boolean validRepeatablePassword = rawPassword.equals(rawRepeatedPassword);
+		if(!validRepeatablePassword) {
+			errors.put("password", Messages.INVALID_CONFIRM_PASSWORD_ERROR);
+		}
+
+		errors.putAll(findUniquenessErrors(userDto.getUsername(), userDto.getEmail()));
 
-		if(emailAlreadyExists) {
-			errors.put("email", Messages.EMAIL_ALREADY_EXISTS_ERROR);
-		} else {
-			boolean emailDomainExists = emailService.dnsEmailLookup(email);
+		CompletableFuture<Boolean> lateDomainCheck = null;
+		if(errors.isEmpty()) {
+			CompletableFuture<Boolean> emailDomainCheck = emailService.dnsEmailLookupAsync(userDto.getEmail());
+			Boolean emailDomainExists = awaitEmailDomainCheck(emailDomainCheck);
+			if(emailDomainExists == null) {
+				logger.warning("Email domain check missed its deadline, applying policy: " + dnsTimeoutPolicy);
+				emailDomainExists = dnsTimeoutPolicy != DnsTimeoutPolicy.REJECT;
+				if(dnsTimeoutPolicy == DnsTimeoutPolicy.ACCEPT_AND_RECHECK) {
+					//The lookup keeps running, its result decides whether the verification email goes out
+					lateDomainCheck = emailDomainCheck;
+				}
+			}
 			if(!emailDomainExists) {
 				errors.put("email", Messages.EMAIL_INVALID_ERROR);
 				logger.warning("Attempted registration with invalid email domain.");
 			}
 		}
-		if(usernameAlreadyExists) {
-			errors.put("username", Messages.USERNAME_ALREADY_EXISTS_ERROR);
-		}
-		if(!validRepeatablePassword) {
-			errors.put("password", Messages.INVALID_CONFIRM_PASSWORD_ERROR);
-		}
 
 		if(!errors.isEmpty()) {
 			logger.warning(Messages.USER_REGISTERED_FAILED);
 			throw new UserRegistrationException(errors);
 		}
+		return lateDomainCheck;
+	}
+
+	//Null when the check missed its deadline or failed
+	private Boolean awaitEmailDomainCheck(CompletableFuture<Boolean> emailDomainCheck) {
+		try {
+			return emailDomainCheck.get(dnsTimeoutMillis, TimeUnit.MILLISECONDS);
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch(TimeoutException | ExecutionException e) {
+			//Slow resolver or saturated DNS pool, registration latency must not depend on DNS health
+		}
+		return null;
+	}
+
+	private Map<String, String> findUniquenessErrors(String username, String email) {
+		Map<String, String> errors = new HashMap<>();
+		for(UserIdentity existing : userRepository.findIdentitiesByEmailOrUsername(email, username)) {
+			//The database decided the match, the comparison only tells which column matched, whatever its collation
+			if(existing.email().equalsIgnoreCase(email)) {
+				errors.put("email", Messages.EMAIL_ALREADY_EXISTS_ERROR);
+			}
+			if(existing.username().equalsIgnoreCase(username)) {
+				errors.put("username", Messages.USERNAME_ALREADY_EXISTS_ERROR);
+			}
+		}
+		return errors;
 	}
 
 }
\ No newline at end of file
@@ -0,0 +1,202 @@
+package com.CalisthenicList.CaliList.service;
+
+import com.CalisthenicList.CaliList.configurations.MailExecutorConfiguration;
+import com.CalisthenicList.CaliList.enums.EmailOutboxStatus;
+import com.CalisthenicList.CaliList.model.EmailOutbox;
+import com.CalisthenicList.CaliList.repositories.EmailOutboxRepository;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.UnsupportedEncodingException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+@Service
+@RequiredArgsConstructor
+//INFO - delivers email_outbox rows in batches. Every batch is claimed with FOR UPDATE SKIP LOCKED and leased as SENDING
+// in a short transaction, so several instances can dispatch at once without sending the same row twice.
+// SMTP runs with no transaction or connection held, the results are written in a second short transaction
+public class EmailOutboxDispatcher {
+	private static final int MAX_ERROR_LENGTH = 255;
+	//Cluster-wide key of the sent email cleanup
+	static final long CLEANUP_LOCK_KEY = 5_203_917_448_160_332_871L;
+	//Built once, MimeMessageHelper only copies it into the From header
+	private static final InternetAddress SENDER = sender();
+	private final Logger logger = Logger.getLogger(EmailOutboxDispatcher.class.getName());
+	private final EmailOutboxRepository emailOutboxRepository;
+	private final JavaMailSender javaMailSender;
+	private final SmtpTransportPool smtpTransportPool;
+	private final TransactionTemplate transactionTemplate;
+	private final AtomicBoolean dispatching = new AtomicBoolean();
+	@Value("${email.outbox.batch-size}")
+	private int batchSize;
+	@Value("${email.outbox.max-attempts}")
+	private int maxAttempts;
+	@Value("${email.outbox.backoff.initial-ms}")
+	private long initialBackoffMillis;
+	@Value("${email.outbox.backoff.max-ms}")
+	private long maxBackoffMillis;
+	@Value("${email.outbox.retention.days}")
+	private long retentionDays;
+	@Value("${email.outbox.lease-ms}")
+	private long leaseMillis;
+
+	//Published by EmailService when a row is written, the row becomes visible to the dispatcher on commit
+	public record EmailEnqueued(UUID outboxId) {
+	}
+
+	@Async(MailExecutorConfiguration.MAIL_EXECUTOR)
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onEmailEnqueued(EmailEnqueued event) {
+		dispatch();
+	}
+
+	//Fallback for kicks lost on a crash or skipped while a dispatch was running, and for retries that became due
+	@Scheduled(fixedDelayString = "${email.outbox.poll-interval-ms}")
+	public void dispatch() {
+		if(!dispatching.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			Integer claimed;
+			do {
+				claimed = dispatchBatch(Instant.now());
+			} while(claimed != null && claimed == batchSize);
+		} catch(RuntimeException e) {
+			logger.warning("Email outbox dispatch failed: " + e.getMessage());
+		} finally {
+			dispatching.set(false);
+		}
+	}
+
+	//Every instance fires at the same time, only the one holding the cleanup lock deletes
+	@Scheduled(cron = "0 0 3 * * *")
+	public void deleteSent() {
+		Integer deleted = transactionTemplate.execute(status -> emailOutboxRepository.tryTransactionLock(CLEANUP_LOCK_KEY)
+				? emailOutboxRepository.deleteSentBefore(Instant.now().minus(Duration.ofDays(retentionDays)))
+				: null);
+		if(deleted == null) {
+			logger.fine("Email outbox cleanup skipped, another instance holds the lock.");
+			return;
+		}
+		logger.info("Deleted " + deleted + " sent emails from the outbox.");
+	}
+
+	//Claims, sends and records one batch, returns the number of claimed rows
+	int dispatchBatch(Instant now) {
+		List<EmailOutbox> batch = transactionTemplate.execute(status -> claim(now));
+		if(batch == null || batch.isEmpty()) {
+			return 0;
+		}
+		Map<MimeMessage, EmailOutbox> messages = new LinkedHashMap<>();
+		for(EmailOutbox email : batch) {
+			try {
+				messages.put(compose(email), email);
+			} catch(MessagingException e) {
+				//A message that cannot be composed will not compose on retry either
+				email.setStatus(EmailOutboxStatus.FAILED);
+				email.setLockedUntil(null);
+				email.setLastError(truncate(e.getMessage()));
+			}
+		}
+
+		Map<MimeMessage, Exception> failedMessages = smtpTransportPool.send(new ArrayList<>(messages.keySet()));
+
+		for(Map.Entry<MimeMessage, EmailOutbox> entry : messages.entrySet()) {
+			Exception failure = failedMessages.get(entry.getKey());
+			if(failure == null) {
+				markSent(entry.getValue(), now);
+			} else {
+				markForRetry(entry.getValue(), now, failure);
+			}
+		}
+		transactionTemplate.executeWithoutResult(status -> emailOutboxRepository.saveAll(batch));
+		logger.info("Email outbox batch dispatched: " + batch.size() + " claimed, " + failedMessages.size() + " failed.");
+		return batch.size();
+	}
+
+	//Leased for email.outbox.lease-ms, which has to outlast the SMTP round trip of a whole batch
+	private List<EmailOutbox> claim(Instant now) {
+		List<EmailOutbox> batch = emailOutboxRepository.claimBatch(now, batchSize);
+		for(EmailOutbox email : batch) {
+			email.setStatus(EmailOutboxStatus.SENDING);
+			email.setLockedUntil(now.plusMillis(leaseMillis));
+		}
+		emailOutboxRepository.saveAll(batch);
+		return batch;
+	}
+
+	private MimeMessage compose(EmailOutbox email) throws MessagingException {
+		MimeMessage message = javaMailSender.createMimeMessage();
+		boolean multipart = email.getHtmlBody() != null;
+		MimeMessageHelper helper = new MimeMessageHelper(message, multipart, "UTF-8");
+		helper.setFrom(SENDER);
+		helper.setTo(email.getRecipient());
+		helper.setSubject(email.getSubject());
+		if(multipart) {
+			//multipart/alternative: clients that cannot show HTML fall back to the text part
+			helper.setText(email.getBody(), email.getHtmlBody());
+		} else {
+			helper.setText(email.getBody());
+		}
+		return message;
+	}
+
+	private static InternetAddress sender() {
+		try {
+			return new InternetAddress("no-reply@CaliList.com", "CaliList", "UTF-8");
+		} catch(UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private void markSent(EmailOutbox email, Instant now) {
+		email.setStatus(EmailOutboxStatus.SENT);
+		email.setLockedUntil(null);
+		email.setSentAt(now);
+		email.setLastError(null);
+	}
+
+	private void markForRetry(EmailOutbox email, Instant now, Exception failure) {
+		int attempts = email.getAttempts() + 1;
+		email.setAttempts(attempts);
+		email.setLockedUntil(null);
+		email.setLastError(truncate(failure.getMessage()));
+		if(attempts >= maxAttempts) {
+			email.setStatus(EmailOutboxStatus.FAILED);
+			logger.warning("Email " + email.getId() + " dropped after " + attempts + " attempts.");
+			return;
+		}
+		email.setStatus(EmailOutboxStatus.PENDING);
+		email.setNextAttemptAt(now.plusMillis(backoffMillis(attempts)));
+	}
+
+	//Exponential: initial, 2x initial, 4x initial... capped at the maximum
+	long backoffMillis(int attempts) {
+		long backoff = initialBackoffMillis;
+		for(int i = 1; i < attempts && backoff < maxBackoffMillis; i++) {
+			backoff *= 2;
+		}
+		return Math.min(backoff, maxBackoffMillis);
+	}
+
+	private String truncate(String error) {
+		if(error == null || error.length() <= MAX_ERROR_LENGTH) {
+			return error;
+		}
+		return error.substring(0, MAX_ERROR_LENGTH);
+	}
+}
@@ -1,30 +1,36 @@
 package com.CalisthenicList.CaliList.service;
 
 import com.CalisthenicList.CaliList.constants.Messages;
+import com.CalisthenicList.CaliList.enums.EmailTemplateName;
 import com.CalisthenicList.CaliList.model.ApiResponse;
 import com.CalisthenicList.CaliList.model.EmailDTO;
+import com.CalisthenicList.CaliList.model.EmailOutbox;
 import com.CalisthenicList.CaliList.model.User;
+import com.CalisthenicList.CaliList.repositories.EmailOutboxRepository;
 import com.CalisthenicList.CaliList.repositories.UserRepository;
+import com.CalisthenicList.CaliList.service.EmailTemplateRenderer.RenderedEmail;
 import com.CalisthenicList.CaliList.service.tokens.AccessTokenService;
 import com.CalisthenicList.CaliList.utils.JwtUtils;
-import jakarta.mail.MessagingException;
-import jakarta.mail.internet.InternetAddress;
-import jakarta.mail.internet.MimeMessage;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.i18n.LocaleContextHolder;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
-import org.xbill.DNS.*;
-import org.xbill.DNS.Record;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Logger;
 
 @Service
@@ -33,36 +39,73 @@ public class EmailService {
 	public final String VERIFICATION_BASE_URL = "http://localhost:8080/email-verification/";
 	public final String PASSWORD_RECOVERY_BASE_URL = "http://localhost:3000/login/passwrod-recovery/";
 	private final Logger logger = Logger.getLogger(EmailService.class.getName());
-	private final JavaMailSender javaMailSender; //INFO - JavaMailSender @Bean is loaded automatically with "spring.mail" properties
+	private final EmailOutboxRepository emailOutboxRepository;
+	private final EmailTemplateRenderer emailTemplateRenderer;
+	private final ApplicationEventPublisher eventPublisher;
 	private final UserRepository userRepository;
 	private final JwtUtils jwtUtils;
 	private final AccessTokenService accessTokenService;
+	private final UserDetailsCache userDetailsCache;
+	private final MxRecordCache mxRecordCache;
+	@Value("${email.outbox.domain-check-hold.ms}")
+	private long domainCheckHoldMillis;
 
-	@Async
+	//Joins the caller's transaction, the email is queued only if the change that caused it commits
+	@Transactional
 	public void postEmailVerificationToUser(String userEmail) {
+		enqueueVerification(userEmail, LocaleContextHolder.getLocale());
+	}
+
+	//For a registration accepted before its domain check finished. The email is written in the caller's transaction but held
+	// for email.outbox.domain-check-hold.ms. Once the check completes after commit it is released, or cancelled for a domain
+	// that accepts no mail, whose account then stays unverified. A check that failed is accepted. If the instance stops
+	// before the check completes, the hold expires and the dispatcher sends the email anyway
+	@Transactional
+	public void postEmailVerificationAfterDomainCheck(String userEmail, CompletableFuture<Boolean> domainCheck) {
+		EmailOutbox held = verificationEmail(userEmail, LocaleContextHolder.getLocale());
+		held.setNextAttemptAt(held.getCreatedAt().plusMillis(domainCheckHoldMillis));
+		UUID outboxId = emailOutboxRepository.save(held).getId();
+		Runnable recheck = () -> domainCheck.whenComplete((valid, error) -> {
+			try {
+				if(Boolean.FALSE.equals(valid)) {
+					emailOutboxRepository.deleteHeld(outboxId, Instant.now());
+					logger.warning("Late email domain check failed, verification email cancelled.");
+					return;
+				}
+				if(emailOutboxRepository.releaseHeld(outboxId, Instant.now()) > 0) {
+					eventPublisher.publishEvent(new EmailOutboxDispatcher.EmailEnqueued(outboxId));
+				}
+			} catch(RuntimeException e) {
+				//The row stays held, the dispatcher sends it when the hold expires
+				logger.warning("Releasing verification email after the domain check failed: " + e.getMessage());
+			}
+		});
+		if(!TransactionSynchronizationManager.isSynchronizationActive()) {
+			recheck.run();
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				recheck.run();
+			}
+		});
+	}
+
+	private void enqueueVerification(String userEmail, Locale locale) {
+		enqueue(verificationEmail(userEmail, locale));
+	}
+
+	private EmailOutbox verificationEmail(String userEmail, Locale locale) {
 		//Generate token
 		String token = accessTokenService.generateAccessToken(userEmail);
-		//Create email
+		//Render email
 		String verifyUrl = VERIFICATION_BASE_URL + URLEncoder.encode(token, StandardCharsets.UTF_8);
-		MimeMessage message = javaMailSender.createMimeMessage();
-		MimeMessageHelper helper = new MimeMessageHelper(message, "UTF-8");
-		try {
-			InternetAddress from = new InternetAddress("no-reply@CaliList.com", "CaliList");
-			helper.setFrom(from);
-			helper.setTo(userEmail);
-			helper.setSubject("Email verification");
-			String content = "Click below to verify your email:\n" + verifyUrl;
-			helper.setText(content);
-		} catch(UnsupportedEncodingException | MessagingException e) {
-			logger.warning("Failed to compose verification email.");
-			throw new IllegalStateException("Failed to compose verification email", e);
-		}
-		//Send email
-		javaMailSender.send(message);
+		return render(userEmail, EmailTemplateName.VERIFICATION, Map.of("verifyUrl", verifyUrl), locale);
 	}
 
 	public ResponseEntity<ApiResponse<Object>> verifyEmail(String jwt) {
-		String jwtUserEmail = jwtUtils.extractSubject(jwt);
+		String jwtUserEmail = jwtUtils.parse(jwt).subject();
 		if(jwtUserEmail == null) {
 			logger.warning("Attempted verification with invalid token.");
 			throw new IllegalArgumentException(Messages.TOKEN_INVALID);
@@ -90,6 +133,7 @@ public class EmailService {
 		//Set email verification to true
 		user.setEmailVerified(true);
 		userRepository.save(user);
+		userDetailsCache.evict(jwtUserEmail);
 		logger.info(Messages.EMAIL_VERIFICATION_SUCCESS);
 		return ResponseEntity.status(HttpStatus.ACCEPTED).body(
 				ApiResponse.builder()
@@ -99,52 +143,32 @@ public class EmailService {
 		);
 	}
 
-	@Async
+	@Transactional
 	public void sendRecoverPasswordEmail(@Valid EmailDTO emailDTO) {
 		String userEmail = emailDTO.getEmail();
 		//Generate token
 		String token = accessTokenService.generateAccessToken(userEmail);
-		//Create email
+		//Queue email
 		String passwordRecoveryUrl = PASSWORD_RECOVERY_BASE_URL + URLEncoder.encode(token, StandardCharsets.UTF_8);
-		MimeMessage message = javaMailSender.createMimeMessage();
-		MimeMessageHelper helper = new MimeMessageHelper(message, "UTF-8");
-		try {
-			InternetAddress from = new InternetAddress("no-reply@CaliList.com", "CaliList");
-			helper.setFrom(from);
-			helper.setTo(userEmail);
-			helper.setSubject("Password recovery");
-			String content = "Click below to set new password:\n" + passwordRecoveryUrl;
-			helper.setText(content);
-		} catch(UnsupportedEncodingException | MessagingException e) {
-			logger.warning("Failed to compose password verification.");
-			throw new IllegalStateException("Failed to compose password verification", e);
-		}
-		//Send email
-		javaMailSender.send(message);
+		enqueue(render(userEmail, EmailTemplateName.PASSWORD_RECOVERY, Map.of("recoveryUrl", passwordRecoveryUrl),
+				LocaleContextHolder.getLocale()));
 	}
 
-	//Validate if email has proper domain
-	public boolean dnsEmailLookup(String email) {
-		String domain = email.substring(email.indexOf("@") + 1);
-		return hasMxRecord(domain);
+	//Rendered in the request's locale (Accept-Language)
+	private EmailOutbox render(String recipient, EmailTemplateName template, Map<String, String> variables, Locale locale) {
+		RenderedEmail rendered = emailTemplateRenderer.render(template, locale, variables);
+		return new EmailOutbox(recipient, rendered.subject(), rendered.text(), rendered.html(), Instant.now());
 	}
 
-	private boolean hasMxRecord(String domain) {
-		try {
-			Lookup lookup = new Lookup(domain, Type.MX);
-			lookup.run();
-			if(lookup.getResult() != Lookup.SUCCESSFUL) {
-				return false;
-			} Record[] records = lookup.getAnswers();
-			for(Record record : records) {
-				if(record.getType() == Type.MX) {
-					MXRecord mx = (MXRecord) record;
-					int priority = mx.getPriority();
-					return priority != 0;
-				}
-			} return false;
-		} catch(TextParseException e) {
-			return false;
-		}
+	//Delivery happens in EmailOutboxDispatcher after commit or on its next poll
+	private void enqueue(EmailOutbox email) {
+		EmailOutbox saved = emailOutboxRepository.save(email);
+		eventPublisher.publishEvent(new EmailOutboxDispatcher.EmailEnqueued(saved.getId()));
+	}
+
+	//Validate if email has proper domain, the lookup runs on the DNS pool and the caller decides how long to wait
+	public CompletableFuture<Boolean> dnsEmailLookupAsync(String email) {
+		String domain = email.substring(email.indexOf("@") + 1);
+		return mxRecordCache.hasValidMxAsync(domain);
 	}
 }
@@ -0,0 +1,72 @@
+package com.CalisthenicList.CaliList.service;
+
+import com.CalisthenicList.CaliList.enums.EmailTemplateName;
+import com.CalisthenicList.CaliList.utils.CompiledTemplate;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.HtmlUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.UnaryOperator;
+
+//INFO - loads every email template for every configured locale once at startup and keeps the compiled form.
+// A missing or malformed template fails the startup instead of the first email.
+@Component
+public class EmailTemplateRenderer {
+	private static final String TEMPLATE_DIRECTORY = "email-templates/";
+	private final Map<EmailTemplateName, Map<String, CompiledEmail>> templates = new EnumMap<>(EmailTemplateName.class);
+	@Value("${email.templates.locales}")
+	private List<String> locales;
+	@Value("${email.templates.default-locale}")
+	private String defaultLocale;
+
+	public record RenderedEmail(String subject, String text, String html) {
+	}
+
+	private record CompiledEmail(CompiledTemplate subject, CompiledTemplate text, CompiledTemplate html) {
+	}
+
+	@PostConstruct
+	public void init() {
+		if(!locales.contains(defaultLocale)) {
+			throw new IllegalStateException("Default email locale " + defaultLocale + " is not in " + locales);
+		}
+		for(EmailTemplateName name : EmailTemplateName.values()) {
+			Map<String, CompiledEmail> byLocale = new HashMap<>();
+			for(String locale : locales) {
+				String path = TEMPLATE_DIRECTORY + locale + "/" + name.getFileName();
+				byLocale.put(locale, new CompiledEmail(
+						CompiledTemplate.compile(load(path + ".subject").strip()),
+						CompiledTemplate.compile(load(path + ".txt")),
+						CompiledTemplate.compile(load(path + ".html"))));
+			}
+			templates.put(name, Map.copyOf(byLocale));
+		}
+	}
+
+	//Falls back to the default locale when the language has no template variant
+	public RenderedEmail render(EmailTemplateName name, Locale locale, Map<String, String> variables) {
+		Map<String, CompiledEmail> byLocale = templates.get(name);
+		CompiledEmail email = byLocale.get(locale.getLanguage());
+		if(email == null) {
+			email = byLocale.get(defaultLocale);
+		}
+		return new RenderedEmail(
+				email.subject().render(variables, UnaryOperator.identity()),
+				email.text().render(variables, UnaryOperator.identity()),
+				email.html().render(variables, HtmlUtils::htmlEscape));
+	}
+
+	private static String load(String path) {
+		try(InputStream input = new ClassPathResource(path).getInputStream()) {
+			return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+		} catch(IOException e) {
+			throw new IllegalStateException("Email template not found: " + path, e);
+		}
+	}
+}
@@ -0,0 +1,190 @@
+package com.CalisthenicList.CaliList.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.common.lang.NonNull;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.xbill.DNS.*;
+import org.xbill.DNS.Record;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+@Service
+//INFO - domain-keyed cache of MX lookups, so registration does not pay a DNS round trip for gmail.com every time.
+// Positive entries live for the MX record TTL, negative entries (NXDOMAIN, no MX, null MX) for the SOA negative TTL.
+// Failed lookups (timeout, SERVFAIL) complete the future exceptionally and are not cached.
+// Lookups run on a small dedicated pool, callers get a future and decide how long to wait for it.
+// Concurrent lookups of the same domain share one DNS query.
+public class MxRecordCache implements MeterBinder {
+	private final Logger logger = Logger.getLogger(MxRecordCache.class.getName());
+	@Value("${dns.mx.cache.maximum-size}")
+	private long maximumSize;
+	@Value("${dns.mx.cache.min-ttl.seconds}")
+	private long minTtlSeconds;
+	@Value("${dns.mx.cache.max-ttl.seconds}")
+	private long maxTtlSeconds;
+	@Value("${dns.mx.cache.negative-ttl.seconds}")
+	private long negativeTtlSeconds;
+	@Value("${dns.mx.cache.prewarm-domains}")
+	private List<String> prewarmDomains;
+	@Value("${dns.mx.resolver.threads}")
+	private int resolverThreads;
+	@Value("${dns.mx.resolver.queue-capacity}")
+	private int resolverQueueCapacity;
+	@Value("${dns.mx.resolver.timeout.ms}")
+	private long resolverTimeoutMs;
+	private Resolver resolver;
+	private final Ticker ticker;
+	private ThreadPoolExecutor resolverExecutor;
+	private AsyncCache<String, MxLookupResult> cache;
+
+	private record MxLookupResult(boolean valid, Duration ttl) {
+	}
+
+	public MxRecordCache() {
+		this(null, Ticker.systemTicker());
+	}
+
+	MxRecordCache(Resolver resolver, Ticker ticker) {
+		this.resolver = resolver;
+		this.ticker = ticker;
+	}
+
+	@PostConstruct
+	public void init() {
+		if(resolver == null) {
+			//Uses the system resolver configuration, the timeout bounds how long a pool thread can be held
+			resolver = new ExtendedResolver();
+			resolver.setTimeout(Duration.ofMillis(resolverTimeoutMs));
+		}
+		AtomicInteger threadNumber = new AtomicInteger();
+		resolverExecutor = new ThreadPoolExecutor(resolverThreads, resolverThreads, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(resolverQueueCapacity),
+				runnable -> {
+					Thread thread = new Thread(runnable, "dns-lookup-" + threadNumber.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				},
+				new ThreadPoolExecutor.AbortPolicy());
+		cache = Caffeine.newBuilder()
+				.maximumSize(maximumSize)
+				.expireAfter(Expiry.<String, MxLookupResult>creating((domain, result) -> result.ttl()))
+				.ticker(ticker)
+				.executor(resolverExecutor)
+				.recordStats()
+				.buildAsync();
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		resolverExecutor.shutdownNow();
+	}
+
+	@Override
+	public void bindTo(@NonNull MeterRegistry registry) {
+		CaffeineCacheMetrics.monitor(registry, cache.synchronous(), "dns.mx");
+		Gauge.builder("dns.mx.cache.hit.ratio", cache, c -> c.synchronous().stats().hitRate()).register(registry);
+		Gauge.builder("dns.mx.resolver.queue.size", resolverExecutor, e -> e.getQueue().size()).register(registry);
+	}
+
+	@Async
+	@EventListener(ApplicationReadyEvent.class)
+	public void prewarm() {
+		//A domain that fails to resolve is looked up again on first use
+		CompletableFuture.allOf(prewarmDomains.stream()
+				.map(domain -> hasValidMxAsync(domain).exceptionally(e -> false))
+				.toArray(CompletableFuture[]::new)).join();
+		logger.info("MX cache pre-warmed with " + cache.synchronous().estimatedSize() + " domains.");
+	}
+
+	//True when the domain publishes at least one MX host that accepts mail.
+	// Completes immediately on a cache hit, completes exceptionally when the lookup fails or the lookup pool is saturated.
+	public CompletableFuture<Boolean> hasValidMxAsync(String domain) {
+		String key = domain.trim().toLowerCase(Locale.ROOT);
+		try {
+			return cache.get(key, this::lookup).thenApply(MxLookupResult::valid);
+		} catch(RejectedExecutionException e) {
+			return CompletableFuture.failedFuture(e);
+		}
+	}
+
+	public boolean hasValidMx(String domain) {
+		return hasValidMxAsync(domain).join();
+	}
+
+	public double hitRate() {
+		return cache.synchronous().stats().hitRate();
+	}
+
+	//Throws for transient failures, Caffeine drops failed futures, so they are not cached.
+	// Every caller sees the failure, whether or not the entry was already removed when it looked
+	private MxLookupResult lookup(String domain) {
+		Name name;
+		try {
+			name = Name.fromString(domain, Name.root);
+		} catch(TextParseException e) {
+			return negative(null);
+		}
+		Message response;
+		try {
+			response = resolver.send(Message.newQuery(Record.newRecord(name, Type.MX, DClass.IN)));
+		} catch(IOException e) {
+			logger.warning("MX lookup failed for domain: " + domain);
+			throw new CompletionException(e);
+		}
+		int rcode = response.getRcode();
+		if(rcode == Rcode.NXDOMAIN) {
+			return negative(response);
+		}
+		if(rcode != Rcode.NOERROR) {
+			throw new CompletionException(new IOException("MX lookup for " + domain + " returned " + Rcode.string(rcode)));
+		}
+		List<MXRecord> mxRecords = response.getSection(Section.ANSWER).stream()
+				.filter(MXRecord.class::isInstance)
+				.map(MXRecord.class::cast)
+				.toList();
+		if(mxRecords.isEmpty()) {
+			return negative(response);
+		}
+		//Null MX (RFC 7505): a single record with target "." means the domain accepts no mail
+		boolean valid = mxRecords.stream().anyMatch(mx -> !Name.root.equals(mx.getTarget()));
+		long ttl = mxRecords.stream().mapToLong(Record::getTTL).min().orElse(minTtlSeconds);
+		return new MxLookupResult(valid, clampTtl(ttl));
+	}
+
+	//Negative TTL is min(SOA TTL, SOA minimum) from the authority section (RFC 2308), or the configured default
+	private MxLookupResult negative(Message response) {
+		long ttl = negativeTtlSeconds;
+		if(response != null) {
+			ttl = response.getSection(Section.AUTHORITY).stream()
+					.filter(SOARecord.class::isInstance)
+					.map(SOARecord.class::cast)
+					.mapToLong(soa -> Math.min(soa.getTTL(), soa.getMinimum()))
+					.findFirst()
+					.orElse(negativeTtlSeconds);
+		}
+		return new MxLookupResult(false, clampTtl(ttl));
+	}
+
+	private Duration clampTtl(long ttlSeconds) {
+		return Duration.ofSeconds(Math.max(minTtlSeconds, Math.min(maxTtlSeconds, ttlSeconds)));
+	}
+}
@@ -0,0 +1,114 @@
+package com.CalisthenicList.CaliList.service;
+
+import com.CalisthenicList.CaliList.exceptions.PasswordHashingUnavailableException;
+import io.micrometer.common.lang.NonNull;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+//INFO - runs password hashing on a fixed pool instead of request threads.
+// Argon2 needs its full memory cost for every hash, so the pool size caps CPU and heap used by hashing,
+// and the bounded queue makes a login burst fail fast with 503 instead of pinning every Tomcat worker.
+public class PasswordHashingService implements PasswordEncoder, MeterBinder {
+	private final PasswordEncoder delegate;
+	private final ThreadPoolExecutor executor;
+	private final long retryAfterSeconds;
+	private Timer encodeTimer;
+	private Timer matchesTimer;
+	private Timer queueWaitTimer;
+	private Counter rejectedCounter;
+
+	public PasswordHashingService(PasswordEncoder delegate, int threads, int queueCapacity, long retryAfterSeconds) {
+		this.delegate = delegate;
+		this.retryAfterSeconds = retryAfterSeconds;
+		AtomicInteger threadNumber = new AtomicInteger();
+		this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queueCapacity),
+				runnable -> {
+					Thread thread = new Thread(runnable, "password-hashing-" + threadNumber.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				},
+				new ThreadPoolExecutor.AbortPolicy());
+	}
+
+	@Override
+	public void bindTo(@NonNull MeterRegistry registry) {
+		Gauge.builder("passwordHashing.queue.size", executor, e -> e.getQueue().size()).register(registry);
+		Gauge.builder("passwordHashing.active", executor, ThreadPoolExecutor::getActiveCount).register(registry);
+		encodeTimer = Timer.builder("passwordHashing.duration").tag("operation", "encode").register(registry);
+		matchesTimer = Timer.builder("passwordHashing.duration").tag("operation", "matches").register(registry);
+		queueWaitTimer = Timer.builder("passwordHashing.queue.wait").register(registry);
+		rejectedCounter = Counter.builder("passwordHashing.rejected").register(registry);
+	}
+
+	@Override
+	public String encode(CharSequence rawPassword) {
+		return submit(() -> delegate.encode(rawPassword), encodeTimer);
+	}
+
+	@Override
+	public boolean matches(CharSequence rawPassword, String encodedPassword) {
+		return submit(() -> delegate.matches(rawPassword, encodedPassword), matchesTimer);
+	}
+
+	@Override
+	public boolean upgradeEncoding(String encodedPassword) {
+		return delegate.upgradeEncoding(encodedPassword);
+	}
+
+	public int queueSize() {
+		return executor.getQueue().size();
+	}
+
+	//Called by Spring on context close
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+	private <T> T submit(Supplier<T> hashing, Timer timer) {
+		long queuedAt = System.nanoTime();
+		Future<T> future;
+		try {
+			future = executor.submit(() -> {
+				long startedAt = System.nanoTime();
+				record(queueWaitTimer, startedAt - queuedAt);
+				try {
+					return hashing.get();
+				} finally {
+					record(timer, System.nanoTime() - startedAt);
+				}
+			});
+		} catch(RejectedExecutionException e) {
+			if(rejectedCounter != null) {
+				rejectedCounter.increment();
+			}
+			throw new PasswordHashingUnavailableException(retryAfterSeconds);
+		}
+		try {
+			return future.get();
+		} catch(InterruptedException e) {
+			future.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new PasswordHashingUnavailableException(retryAfterSeconds);
+		} catch(ExecutionException e) {
+			if(e.getCause() instanceof RuntimeException runtimeException) {
+				throw runtimeException;
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	private static void record(Timer timer, long nanos) {
+		if(timer != null) {
+			timer.record(nanos, TimeUnit.NANOSECONDS);
+		}
+	}
+}
@@ -0,0 +1,40 @@
+package com.CalisthenicList.CaliList.service;
+
+import com.CalisthenicList.CaliList.exceptions.PasswordHashingUnavailableException;
+import com.CalisthenicList.CaliList.repositories.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.UUID;
+import java.util.logging.Logger;
+
+@Service
+@RequiredArgsConstructor
+//INFO - re-encodes a password hash with the current Argon2 parameters after a successful login,
+// so old parameter sets drain out of the user base without forcing a password reset
+public class PasswordUpgradeService {
+	private final Logger logger = Logger.getLogger(PasswordUpgradeService.class.getName());
+	private final PasswordEncoder encoder;
+	private final UserRepository userRepository;
+	private final UserDetailsCache userDetailsCache;
+
+	@Async
+	public void upgradePassword(UUID userId, String email, String rawPassword, String oldPassword) {
+		String newPassword;
+		try {
+			newPassword = encoder.encode(rawPassword);
+		} catch(PasswordHashingUnavailableException e) {
+			//Hashing is overloaded, the next login tries again
+			logger.info("Password upgrade postponed, hashing queue is full.");
+			return;
+		}
+		//Conditional update: a password changed in the meantime (e.g. recovery) is never overwritten
+		int updated = userRepository.updatePasswordIfUnchanged(userId, oldPassword, newPassword);
+		if(updated == 1) {
+			userDetailsCache.evict(email);
+			logger.info("Password hash upgraded to current parameters.");
+		}
+	}
+}
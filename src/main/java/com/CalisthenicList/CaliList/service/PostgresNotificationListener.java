@@ -0,0 +1,159 @@
+package com.CalisthenicList.CaliList.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+@Service
+@RequiredArgsConstructor
+//INFO - one LISTEN connection per instance, shared by the services that keep revocations in memory.
+// The PostgreSQL driver stays a runtime dependency, its notification API is looked up by name once.
+// Postgres does not replay notifications sent while nobody listened, so every subscriber resyncs after each (re)connect.
+public class PostgresNotificationListener {
+	private static final String PG_CONNECTION = "org.postgresql.PGConnection";
+	private static final String PG_NOTIFICATION = "org.postgresql.PGNotification";
+	private final Logger logger = Logger.getLogger(PostgresNotificationListener.class.getName());
+	private final DataSource dataSource;
+	@Value("${postgres.listen.enabled}")
+	private boolean enabled;
+	@Value("${postgres.listen.poll.ms}")
+	private int pollMillis;
+	@Value("${postgres.listen.retry.ms}")
+	private long retryMillis;
+	private final Map<String, Subscription> subscriptions = new ConcurrentHashMap<>();
+	private volatile boolean listening;
+	private Thread listenerThread;
+	private Class<?> pgConnection;
+	private Method getNotifications;
+	private Method getName;
+	private Method getParameter;
+
+	private record Subscription(Consumer<String> handler, Runnable resync) {
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	//Subscribers register from their @PostConstruct, the listener starts once the application is ready
+	public void subscribe(String channel, Consumer<String> handler, Runnable resync) {
+		subscriptions.put(channel, new Subscription(handler, resync));
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void start() {
+		if(!enabled || subscriptions.isEmpty()) {
+			return;
+		}
+		try {
+			pgConnection = Class.forName(PG_CONNECTION);
+			getNotifications = pgConnection.getMethod("getNotifications", int.class);
+			Class<?> pgNotification = Class.forName(PG_NOTIFICATION);
+			getName = pgNotification.getMethod("getName");
+			getParameter = pgNotification.getMethod("getParameter");
+		} catch(ReflectiveOperationException e) {
+			logger.warning("PostgreSQL driver not found, notifications are not received: " + e.getMessage());
+			return;
+		}
+		listening = true;
+		listenerThread = Thread.ofPlatform().name("postgres-listener").daemon().start(this::listenLoop);
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		listening = false;
+		if(listenerThread != null) {
+			listenerThread.interrupt();
+		}
+	}
+
+	void dispatch(String channel, String payload) {
+		Subscription subscription = subscriptions.get(channel);
+		if(subscription != null) {
+			subscription.handler().accept(payload);
+		}
+	}
+
+	private void listenLoop() {
+		Connection connection = null;
+		while(listening) {
+			try {
+				if(connection == null) {
+					connection = connect();
+					if(connection == null) {
+						Thread.sleep(retryMillis);
+					}
+					continue;
+				}
+				Object[] notifications = (Object[]) getNotifications.invoke(connection.unwrap(pgConnection), pollMillis);
+				if(notifications != null) {
+					for(Object notification : notifications) {
+						dispatch((String) getName.invoke(notification), (String) getParameter.invoke(notification));
+					}
+				}
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			} catch(SQLException | ReflectiveOperationException e) {
+				logger.warning("Postgres listen connection lost: " + e.getMessage());
+				close(connection);
+				connection = null;
+			}
+		}
+		close(connection);
+	}
+
+	//Held for the lifetime of the listener, returned to the pool it would lose the LISTEN registration.
+	// LISTEN comes before the resync, a change committed in between is then either loaded or notified. Null when the database is unreachable
+	private Connection connect() {
+		Connection connection = null;
+		try {
+			connection = dataSource.getConnection();
+			try(Statement statement = connection.createStatement()) {
+				for(String channel : subscriptions.keySet()) {
+					statement.execute("LISTEN " + channel);
+				}
+			}
+			subscriptions.values().forEach(this::resync);
+			return connection;
+		} catch(SQLException e) {
+			logger.warning("Listening for Postgres notifications failed: " + e.getMessage());
+			close(connection);
+			return null;
+		}
+	}
+
+	//A subscriber whose resync failed retries on its own schedule, the others keep receiving notifications
+	private void resync(Subscription subscription) {
+		try {
+			subscription.resync().run();
+		} catch(DataAccessException e) {
+			logger.warning("Resync after listening failed: " + e.getMessage());
+		}
+	}
+
+	private void close(Connection connection) {
+		if(connection == null) {
+			return;
+		}
+		try {
+			connection.close();
+		} catch(SQLException e) {
+			logger.fine("Closing Postgres listen connection failed: " + e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,229 @@
+package com.CalisthenicList.CaliList.service;
+
+import io.micrometer.common.lang.NonNull;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.logging.Logger;
+
+//INFO - keeps a few authenticated SMTP sessions open between batches.
+// Opening a session costs a TCP connect, a STARTTLS handshake and AUTH, which is far more than sending one message.
+// Idle sessions are checked with NOOP before reuse and closed by the eviction job once they sit unused too long.
+@Component
+public class SmtpTransportPool implements MeterBinder {
+	private final Logger logger = Logger.getLogger(SmtpTransportPool.class.getName());
+	private final JavaMailSenderImpl mailSender;
+	private final LongSupplier nanoClock;
+	//LIFO, the most recently used session is the most likely to still be alive
+	private final Deque<PooledTransport> idle = new ConcurrentLinkedDeque<>();
+	private Semaphore permits;
+	@Value("${smtp.pool.max-connections}")
+	private int maxConnections;
+	@Value("${smtp.pool.max-messages-per-connection}")
+	private int maxMessagesPerConnection;
+	@Value("${smtp.pool.idle-timeout.ms}")
+	private long idleTimeoutMillis;
+	@Value("${smtp.pool.validate-after-idle.ms}")
+	private long validateAfterIdleMillis;
+	@Value("${smtp.pool.borrow-timeout.ms}")
+	private long borrowTimeoutMillis;
+	private Timer connectTimer;
+	private DistributionSummary messagesPerConnection;
+	private Counter evictedCounter;
+
+	@Autowired
+	public SmtpTransportPool(JavaMailSenderImpl mailSender) {
+		this(mailSender, System::nanoTime);
+	}
+
+	SmtpTransportPool(JavaMailSenderImpl mailSender, LongSupplier nanoClock) {
+		this.mailSender = mailSender;
+		this.nanoClock = nanoClock;
+	}
+
+	private static final class PooledTransport {
+		private final Transport transport;
+		private long lastUsedNanos;
+		private int sent;
+
+		private PooledTransport(Transport transport, long lastUsedNanos) {
+			this.transport = transport;
+			this.lastUsedNanos = lastUsedNanos;
+		}
+	}
+
+	@PostConstruct
+	public void init() {
+		permits = new Semaphore(maxConnections);
+	}
+
+	@Override
+	public void bindTo(@NonNull MeterRegistry registry) {
+		Gauge.builder("smtp.pool.connections.idle", idle, Deque::size).register(registry);
+		Gauge.builder("smtp.pool.connections.active", this, pool -> pool.maxConnections - pool.permits.availablePermits()).register(registry);
+		connectTimer = Timer.builder("smtp.pool.connect").register(registry);
+		messagesPerConnection = DistributionSummary.builder("smtp.pool.messages.per.connection").register(registry);
+		evictedCounter = Counter.builder("smtp.pool.evicted").register(registry);
+	}
+
+	//Sends every message, reusing pooled sessions. Never throws, returns the messages that failed with their cause
+	public Map<MimeMessage, Exception> send(List<MimeMessage> messages) {
+		Map<MimeMessage, Exception> failedMessages = new LinkedHashMap<>();
+		PooledTransport pooled = null;
+		Iterator<MimeMessage> remaining = messages.iterator();
+		try {
+			while(remaining.hasNext()) {
+				MimeMessage message = remaining.next();
+				if(pooled == null) {
+					try {
+						pooled = borrow();
+					} catch(MessagingException e) {
+						//No session available, the rest of the batch cannot be sent either
+						failedMessages.put(message, e);
+						remaining.forEachRemaining(rest -> failedMessages.put(rest, e));
+						break;
+					}
+				}
+				try {
+					if(message.getSentDate() == null) {
+						message.setSentDate(new Date());
+					}
+					message.saveChanges();
+					pooled.transport.sendMessage(message, message.getAllRecipients());
+					pooled.sent++;
+				} catch(SendFailedException e) {
+					//Rejected recipients, the session itself is still usable
+					failedMessages.put(message, e);
+				} catch(MessagingException e) {
+					//Broken session, the next message gets a fresh one
+					failedMessages.put(message, e);
+					release(pooled, true);
+					pooled = null;
+				}
+				if(pooled != null && pooled.sent >= maxMessagesPerConnection) {
+					release(pooled, false);
+					pooled = null;
+				}
+			}
+		} finally {
+			if(pooled != null) {
+				release(pooled, false);
+			}
+		}
+		return failedMessages;
+	}
+
+	@Scheduled(fixedDelayString = "${smtp.pool.eviction-interval-ms}")
+	public void evictIdle() {
+		long now = nanoClock.getAsLong();
+		for(PooledTransport pooled : idle) {
+			if(now - pooled.lastUsedNanos > TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis) && idle.remove(pooled)) {
+				close(pooled);
+				if(evictedCounter != null) {
+					evictedCounter.increment();
+				}
+			}
+		}
+	}
+
+	public int idleConnections() {
+		return idle.size();
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		PooledTransport pooled;
+		while((pooled = idle.pollFirst()) != null) {
+			close(pooled);
+		}
+	}
+
+	private PooledTransport borrow() throws MessagingException {
+		try {
+			if(!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+				throw new MessagingException("All SMTP connections are in use.");
+			}
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MessagingException("Interrupted while waiting for an SMTP connection.", e);
+		}
+		try {
+			PooledTransport pooled;
+			while((pooled = idle.pollFirst()) != null) {
+				if(isHealthy(pooled)) {
+					return pooled;
+				}
+				close(pooled);
+			}
+			return connect();
+		} catch(MessagingException | RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+	}
+
+	//Recently used sessions are trusted, older ones are checked with NOOP (SMTPTransport.isConnected)
+	private boolean isHealthy(PooledTransport pooled) {
+		long idleNanos = nanoClock.getAsLong() - pooled.lastUsedNanos;
+		if(idleNanos <= TimeUnit.MILLISECONDS.toNanos(validateAfterIdleMillis)) {
+			return true;
+		}
+		return pooled.transport.isConnected();
+	}
+
+	private PooledTransport connect() throws MessagingException {
+		String protocol = mailSender.getProtocol() != null ? mailSender.getProtocol() : "smtp";
+		Transport transport = mailSender.getSession().getTransport(protocol);
+		//Latency is wall time, the injected clock only drives idle tracking
+		long startedAt = System.nanoTime();
+		transport.connect(mailSender.getHost(), mailSender.getPort(), mailSender.getUsername(), mailSender.getPassword());
+		if(connectTimer != null) {
+			connectTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+		}
+		return new PooledTransport(transport, nanoClock.getAsLong());
+	}
+
+	private void release(PooledTransport pooled, boolean broken) {
+		try {
+			if(broken || pooled.sent >= maxMessagesPerConnection) {
+				close(pooled);
+			} else {
+				pooled.lastUsedNanos = nanoClock.getAsLong();
+				idle.offerFirst(pooled);
+			}
+		} finally {
+			permits.release();
+		}
+	}
+
+	private void close(PooledTransport pooled) {
+		if(messagesPerConnection != null) {
+			messagesPerConnection.record(pooled.sent);
+		}
+		try {
+			pooled.transport.close();
+		} catch(MessagingException e) {
+			logger.fine("Closing SMTP connection failed: " + e.getMessage());
+		}
+	}
+}
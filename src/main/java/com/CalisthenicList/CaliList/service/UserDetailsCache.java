@@ -0,0 +1,76 @@
+package com.CalisthenicList.CaliList.service;
+
+import com.CalisthenicList.CaliList.model.CachedUserDetails;
+import com.CalisthenicList.CaliList.model.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+@Service
+//INFO - bounded, time-limited cache of UserDetails keyed by email.
+// Entries are immutable CachedUserDetails snapshots, never the managed User entity the loader returns.
+// Services that modify a user evict its entry, so the TTL only bounds staleness between application nodes.
+public class UserDetailsCache implements MeterBinder {
+	@Value("${userDetails.cache.enabled}")
+	private boolean enabled;
+	@Value("${userDetails.cache.maximum-size}")
+	private long maximumSize;
+	@Value("${userDetails.cache.ttl.seconds}")
+	private long ttlSeconds;
+	private Cache<String, CachedUserDetails> cache;
+
+	@PostConstruct
+	public void init() {
+		if(enabled) {
+			cache = Caffeine.newBuilder()
+					.maximumSize(maximumSize)
+					.expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+					.recordStats()
+					.build();
+		}
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		if(cache != null) {
+			CaffeineCacheMetrics.monitor(registry, cache, "userDetails");
+		}
+	}
+
+	public UserDetails get(String email, Function<String, User> loader) {
+		Function<String, CachedUserDetails> snapshotLoader = key -> CachedUserDetails.from(loader.apply(key));
+		if(cache == null) {
+			return snapshotLoader.apply(email);
+		}
+		//UsernameNotFoundException thrown by the loader is propagated and nothing is cached
+		return cache.get(email, snapshotLoader);
+	}
+
+	public void evict(String email) {
+		if(cache != null && email != null) {
+			cache.invalidate(email);
+		}
+	}
+
+	public boolean isEnabled() {
+		return cache != null;
+	}
+
+	public long size() {
+		return cache == null ? 0 : cache.estimatedSize();
+	}
+
+	public CacheStats stats() {
+		return cache == null ? CacheStats.empty() : cache.stats();
+	}
+}
@@ -4,6 +4,7 @@ import com.CalisthenicList.CaliList.constants.Messages;
 import com.CalisthenicList.CaliList.model.*;
 import com.CalisthenicList.CaliList.repositories.RefreshTokenRepository;
 import com.CalisthenicList.CaliList.repositories.UserRepository;
+import com.CalisthenicList.CaliList.service.tokens.AccessTokenRevocationService;
 import com.CalisthenicList.CaliList.service.tokens.AccessTokenService;
 import com.CalisthenicList.CaliList.utils.JwtUtils;
 import jakarta.validation.Valid;
@@ -28,6 +29,8 @@ public class UserService {
 	private final RefreshTokenRepository refreshTokenRepository;
 	private final JwtUtils jwtUtils;
 	private final AccessTokenService accessTokenService;
+	private final AccessTokenRevocationService accessTokenRevocationService;
+	private final UserDetailsCache userDetailsCache;
 
 	public ResponseEntity<ApiResponse<Object>> deleteUserById(UserDeleteByIdDTO userDeleteByIdDto) {
 		UUID id = userDeleteByIdDto.getUserId();
@@ -44,9 +47,11 @@ public class UserService {
 			logger.warning("Invalid password for user deletion attempt.");
 			throw new BadCredentialsException(Messages.SERVICE_ERROR);
 		}
-		//Delete user and refresh token
-		refreshTokenRepository.findByUserEmail(user.getEmail()).ifPresent(refreshTokenRepository::delete);
+		//Delete user and the refresh tokens of all devices
+		refreshTokenRepository.deleteAllByUserId(user.getId());
 		userRepository.delete(user);
+		userDetailsCache.evict(user.getEmail());
+		accessTokenRevocationService.revokeAllForUser(user.getId());
 		logger.info(Messages.USER_DELETED);
 		return ResponseEntity.ok(
 				ApiResponse.builder()
@@ -57,7 +62,7 @@ public class UserService {
 	}
 
 	public ResponseEntity<ApiResponse<Object>> setUserBirthdate(@Valid BirthdateDTO dto, String refreshToken) {
-		String userEmail = jwtUtils.extractSubject(refreshToken);
+		String userEmail = jwtUtils.parse(refreshToken).subject();
 		//Validate if user exists
 		User user = userRepository.findByEmail(userEmail)
 				.orElseThrow(() -> {
@@ -67,9 +72,10 @@ public class UserService {
 
 		user.setBirthdate(dto.getBirthdate());
 		userRepository.save(user);
+		userDetailsCache.evict(userEmail);
 
 		//Create an access token
-		String accessToken = accessTokenService.generateAccessToken(userEmail);
+		String accessToken = accessTokenService.generateAccessToken(user);
 
 		//Return apiResponse
 		UserDTO userDTO = new UserDTO(user);
@@ -84,7 +90,7 @@ public class UserService {
 	}
 
 	public ResponseEntity<ApiResponse<Object>> setUserCaliStartDate(@Valid CaliStartDateDTO dto, String refreshToken) {
-		String userEmail = jwtUtils.extractSubject(refreshToken);
+		String userEmail = jwtUtils.parse(refreshToken).subject();
 		//Validate if user exists
 		User user = userRepository.findByEmail(userEmail)
 				.orElseThrow(() -> {
@@ -99,9 +105,10 @@ public class UserService {
 		//Set trainingDuration
 		user.setTrainingDuration(calculateTrainingDuration(start));
 		userRepository.save(user);
+		userDetailsCache.evict(userEmail);
 
 		//Create an access token
-		String accessToken = accessTokenService.generateAccessToken(userEmail);
+		String accessToken = accessTokenService.generateAccessToken(user);
 
 		//Return apiResponse
 		UserDTO userDTO = new UserDTO(user);
@@ -133,7 +140,7 @@ public class UserService {
 	}
 
 	public ResponseEntity<ApiResponse<Object>> setUserSettings(@Valid UserSettingsDTO dto, String refreshToken) {
-		String userEmail = jwtUtils.extractSubject(refreshToken);
+		String userEmail = jwtUtils.parse(refreshToken).subject();
 		//Validate if user exists
 		User user = userRepository.findByEmail(userEmail)
 				.orElseThrow(() -> {
@@ -141,10 +148,11 @@ public class UserService {
 					return new UsernameNotFoundException(Messages.USER_NOT_FOUND);
 				});
 
-		user.setUserAvatarPath(dto.getUserAvatarPath());
+		user.setAvatarKey(dto.getAvatarKey());
+		userDetailsCache.evict(userEmail);
 
 		//Create an access token
-		String accessToken = accessTokenService.generateAccessToken(userEmail);
+		String accessToken = accessTokenService.generateAccessToken(user);
 
 		//Return apiResponse
 		UserDTO userDTO = new UserDTO(user);
@@ -0,0 +1,126 @@
+package com.CalisthenicList.CaliList.service.tokens;
+
+import com.CalisthenicList.CaliList.model.JwtToken;
+import com.CalisthenicList.CaliList.service.PostgresNotificationListener;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+@Service
+@RequiredArgsConstructor
+//INFO - revocation list for stateless access tokens, checked in memory on every request.
+// A user entry only has to outlive the access tokens issued before it, so it expires after one access token TTL.
+// Revocations are stored in revoked_access_tokens (db/migration/access_token_revocations.sql) and sent to the other
+// instances through LISTEN/NOTIFY. With postgres.listen.enabled=false, or until a load succeeded, they reload the table
+// every accessToken.revocations.reload.ms.
+public class AccessTokenRevocationService {
+	static final String CHANNEL = "access_token_revoked";
+	static final String UPSERT_REVOKED = "INSERT INTO revoked_access_tokens (user_id, revoked_at) VALUES (?, ?) " +
+			"ON CONFLICT (user_id) DO UPDATE SET revoked_at = GREATEST(revoked_access_tokens.revoked_at, EXCLUDED.revoked_at)";
+	static final String NOTIFY = "SELECT pg_notify(?, ?)";
+	static final String SELECT_REVOKED = "SELECT user_id, revoked_at FROM revoked_access_tokens WHERE revoked_at > ?";
+	static final String DELETE_EXPIRED = "DELETE FROM revoked_access_tokens WHERE revoked_at <= ?";
+	private final Logger logger = Logger.getLogger(AccessTokenRevocationService.class.getName());
+	private final JdbcTemplate jdbcTemplate;
+	private final PostgresNotificationListener notificationListener;
+	@Value("${accessToken.expiration.minutes}")
+	private int accessTokenDuration;
+	private Cache<UUID, Instant> revokedUsers;
+	private volatile boolean loaded;
+
+	@PostConstruct
+	public void init() {
+		revokedUsers = Caffeine.newBuilder()
+				.expireAfterWrite(Duration.ofMinutes(accessTokenDuration))
+				.build();
+		//A missing table or an unreachable database must not stop the application, the scheduled reload retries
+		try {
+			reload();
+		} catch(DataAccessException e) {
+			logger.warning("Loading access token revocations failed, retrying on schedule: " + e.getMessage());
+		}
+		notificationListener.subscribe(CHANNEL, this::onNotification, this::reload);
+	}
+
+	//Recorded here first, so this instance rejects the tokens even if storing the revocation fails
+	public void revokeAllForUser(UUID userId) {
+		if(userId == null) {
+			return;
+		}
+		Instant now = Instant.now();
+		record(userId, now);
+		jdbcTemplate.update(UPSERT_REVOKED, userId, Timestamp.from(now));
+		jdbcTemplate.query(NOTIFY, resultSet -> {
+		}, CHANNEL, userId + "," + now.toEpochMilli());
+	}
+
+	public boolean isRevoked(UUID userId, JwtToken token) {
+		Instant revokedAt = revokedUsers.getIfPresent(userId);
+		//issuedAt has second precision, so tokens issued in the same second as the revocation are rejected too
+		return revokedAt != null && (token.issuedAt() == null || !token.issuedAt().isAfter(revokedAt));
+	}
+
+	//Only revocations younger than one access token TTL can still match a valid token
+	public void reload() {
+		Instant since = Instant.now().minus(Duration.ofMinutes(accessTokenDuration));
+		try {
+			jdbcTemplate.query(SELECT_REVOKED, resultSet -> {
+				record(resultSet.getObject("user_id", UUID.class), resultSet.getTimestamp("revoked_at").toInstant());
+			}, Timestamp.from(since));
+			loaded = true;
+		} catch(DataAccessException e) {
+			loaded = false;
+			throw e;
+		}
+	}
+
+	//Without the listener revocations of other instances reach this one within one interval. With it, only a failed load is retried
+	@Scheduled(fixedDelayString = "${accessToken.revocations.reload.ms}", initialDelayString = "${accessToken.revocations.reload.ms}")
+	public void scheduledReload() {
+		if(notificationListener.isEnabled() && loaded) {
+			return;
+		}
+		try {
+			reload();
+		} catch(DataAccessException e) {
+			logger.warning("Access token revocations reload failed: " + e.getMessage());
+		}
+	}
+
+	@Scheduled(cron = "${accessToken.revocations.cleanup.cron}")
+	public void deleteExpired() {
+		try {
+			jdbcTemplate.update(DELETE_EXPIRED, Timestamp.from(Instant.now().minus(Duration.ofMinutes(accessTokenDuration))));
+		} catch(DataAccessException e) {
+			logger.warning("Access token revocations cleanup failed: " + e.getMessage());
+		}
+	}
+
+	//Payload is "<user id>,<revoked at epoch millis>"
+	void onNotification(String payload) {
+		try {
+			int separator = payload.indexOf(',');
+			record(UUID.fromString(payload.substring(0, separator)),
+					Instant.ofEpochMilli(Long.parseLong(payload.substring(separator + 1))));
+		} catch(IllegalArgumentException | IndexOutOfBoundsException e) {
+			logger.warning("Ignored malformed access token revocation notification.");
+		}
+	}
+
+	//A later revocation wins, a reload never moves an entry back
+	private void record(UUID userId, Instant revokedAt) {
+		revokedUsers.asMap().merge(userId, revokedAt, (current, added) -> current.isAfter(added) ? current : added);
+	}
+}
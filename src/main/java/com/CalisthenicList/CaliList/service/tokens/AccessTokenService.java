@@ -1,11 +1,22 @@
 package com.CalisthenicList.CaliList.service.tokens;
 
+import com.CalisthenicList.CaliList.enums.Roles;
+import com.CalisthenicList.CaliList.model.AccessTokenPrincipal;
+import com.CalisthenicList.CaliList.model.JwtToken;
+import com.CalisthenicList.CaliList.model.User;
 import com.CalisthenicList.CaliList.utils.JwtUtils;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static com.CalisthenicList.CaliList.constants.TokenConstants.FAMILY_CLAIM;
+import static com.CalisthenicList.CaliList.constants.TokenConstants.ROLE_CLAIM;
+import static com.CalisthenicList.CaliList.constants.TokenConstants.USER_ID_CLAIM;
 
 @Service
 @RequiredArgsConstructor
@@ -19,4 +30,39 @@ public class AccessTokenService {
 		Duration duration = Duration.ofMinutes(accessTokenDuration);
 		return jwtUtils.generateJwt(email, duration);
 	}
-}
\ No newline at end of file
+
+	public String generateAccessToken(User user) {
+		return generateAccessToken(user.getId(), user.getEmail(), user.getRole());
+	}
+
+	//INFO - user id and role claims let AccessTokenAuthFilter authenticate without loading the user
+	public String generateAccessToken(UUID userId, String email, Roles role) {
+		Duration duration = Duration.ofMinutes(accessTokenDuration);
+		return jwtUtils.generateJwt(email, duration, Map.of(
+				USER_ID_CLAIM, userId.toString(),
+				ROLE_CLAIM, role.name()));
+	}
+
+	//The refresh token family lets AccessTokenAuthFilter reject the token as soon as the family is revoked
+	public String generateAccessToken(UUID userId, String email, Roles role, UUID familyId) {
+		Duration duration = Duration.ofMinutes(accessTokenDuration);
+		return jwtUtils.generateJwt(email, duration, Map.of(
+				USER_ID_CLAIM, userId.toString(),
+				ROLE_CLAIM, role.name(),
+				FAMILY_CLAIM, familyId.toString()));
+	}
+
+	//Returns empty for tokens issued without user id and role claims
+	public Optional<AccessTokenPrincipal> toPrincipal(JwtToken token) {
+		String userId = token.getClaim(USER_ID_CLAIM, String.class);
+		String role = token.getClaim(ROLE_CLAIM, String.class);
+		if(token.subject() == null || userId == null || role == null) {
+			return Optional.empty();
+		}
+		try {
+			return Optional.of(new AccessTokenPrincipal(UUID.fromString(userId), token.subject(), Roles.valueOf(role)));
+		} catch(IllegalArgumentException e) {
+			return Optional.empty();
+		}
+	}
+}
@@ -0,0 +1,126 @@
+package com.CalisthenicList.CaliList.service.tokens;
+
+import io.micrometer.common.lang.NonNull;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "refreshToken.purge", name = "enabled", havingValue = "true", matchIfMissing = true)
+//INFO - deletes expired refresh tokens that nobody presents again, abandoned sessions would otherwise stay forever.
+// Rows go in small autocommitted batches with a pause in between, so no long transaction holds locks or blocks vacuum.
+// The advisory lock is session level, the lock, every batch and the unlock run on one connection.
+public class RefreshTokenPurgeJob implements MeterBinder {
+	//Cluster-wide key of the purge, only the instance holding it purges
+	static final long PURGE_LOCK_KEY = 7_412_064_221_093_845_024L;
+	static final String TRY_LOCK = "SELECT pg_try_advisory_lock(?)";
+	static final String UNLOCK = "SELECT pg_advisory_unlock(?)";
+	//ctid skips the primary key lookup, the inner query walks idx_refresh_tokens_expiry_date
+	static final String DELETE_EXPIRED_BATCH = "DELETE FROM refresh_tokens WHERE ctid IN " +
+			"(SELECT ctid FROM refresh_tokens WHERE expiry_date < ? LIMIT ?)";
+	private final Logger logger = Logger.getLogger(RefreshTokenPurgeJob.class.getName());
+	private final JdbcTemplate jdbcTemplate;
+	@Value("${refreshToken.purge.batch-size}")
+	private int batchSize;
+	@Value("${refreshToken.purge.pause.ms}")
+	private long pauseMillis;
+	@Value("${refreshToken.purge.max-batches}")
+	private int maxBatches;
+	private Timer purgeTimer;
+	private DistributionSummary purgedRows;
+	private Counter skippedRuns;
+
+	@Override
+	public void bindTo(@NonNull MeterRegistry registry) {
+		purgeTimer = Timer.builder("refreshToken.purge").register(registry);
+		purgedRows = DistributionSummary.builder("refreshToken.purge.rows").register(registry);
+		skippedRuns = Counter.builder("refreshToken.purge.skipped").register(registry);
+	}
+
+	@Scheduled(cron = "${refreshToken.purge.cron}")
+	public void purgeExpired() {
+		long start = System.nanoTime();
+		try {
+			Integer purged = jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> purge(connection, Instant.now()));
+			if(purged == null || purged < 0) {
+				if(skippedRuns != null) {
+					skippedRuns.increment();
+				}
+				logger.fine("Refresh token purge skipped, another instance holds the lock.");
+				return;
+			}
+			if(purgedRows != null) {
+				purgedRows.record(purged);
+			}
+			logger.info("Purged " + purged + " expired refresh tokens.");
+		} catch(DataAccessException e) {
+			logger.warning("Refresh token purge failed: " + e.getMessage());
+		} finally {
+			if(purgeTimer != null) {
+				purgeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+			}
+		}
+	}
+
+	//Returns the number of deleted rows, or -1 when another instance is purging
+	int purge(Connection connection, Instant now) throws SQLException {
+		if(!advisoryLock(connection, TRY_LOCK)) {
+			return -1;
+		}
+		int purged = 0;
+		try(PreparedStatement delete = connection.prepareStatement(DELETE_EXPIRED_BATCH)) {
+			delete.setTimestamp(1, Timestamp.from(now));
+			delete.setInt(2, batchSize);
+			for(int batch = 1; batch <= maxBatches; batch++) {
+				int deleted = delete.executeUpdate();
+				purged += deleted;
+				if(deleted < batchSize || batch == maxBatches || !pause()) {
+					break;
+				}
+			}
+		} finally {
+			advisoryLock(connection, UNLOCK);
+		}
+		return purged;
+	}
+
+	private boolean advisoryLock(Connection connection, String sql) throws SQLException {
+		try(PreparedStatement statement = connection.prepareStatement(sql)) {
+			statement.setLong(1, PURGE_LOCK_KEY);
+			try(ResultSet resultSet = statement.executeQuery()) {
+				return resultSet.next() && resultSet.getBoolean(1);
+			}
+		}
+	}
+
+	//Lets autovacuum and concurrent refreshes catch up between batches, false stops the run on shutdown
+	private boolean pause() {
+		try {
+			Thread.sleep(pauseMillis);
+			return true;
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+}
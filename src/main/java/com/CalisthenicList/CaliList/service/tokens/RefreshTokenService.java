@@ -1,14 +1,21 @@
 package com.CalisthenicList.CaliList.service.tokens;
 
 import com.CalisthenicList.CaliList.constants.Messages;
+import com.CalisthenicList.CaliList.model.AccessTokenPrincipal;
+import com.CalisthenicList.CaliList.model.CachedUserDetails;
 import com.CalisthenicList.CaliList.model.ApiResponse;
+import com.CalisthenicList.CaliList.model.JwtToken;
 import com.CalisthenicList.CaliList.model.RefreshToken;
+import com.CalisthenicList.CaliList.model.RefreshTokenRotation;
+import com.CalisthenicList.CaliList.model.SessionDTO;
 import com.CalisthenicList.CaliList.model.User;
 import com.CalisthenicList.CaliList.model.UserDTO;
 import com.CalisthenicList.CaliList.repositories.RefreshTokenRepository;
 import com.CalisthenicList.CaliList.repositories.UserRepository;
 import com.CalisthenicList.CaliList.service.UserService;
+import com.CalisthenicList.CaliList.utils.HashUtils;
 import com.CalisthenicList.CaliList.utils.JwtUtils;
+import io.jsonwebtoken.JwtException;
 import jakarta.annotation.PostConstruct;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
@@ -22,17 +29,31 @@ import org.springframework.stereotype.Service;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import static com.CalisthenicList.CaliList.constants.TokenConstants.FAMILY_CLAIM;
 
 @Service
 @RequiredArgsConstructor
 //INFO - used to get new access tokens when the old ones expire
 public class RefreshTokenService {
+	private final Logger logger = Logger.getLogger(RefreshTokenService.class.getName());
 	@Value("${refreshToken.expiration.days}")
 	private int refreshTokenDuration;
+	@Value("${refreshToken.max-sessions}")
+	private int maxSessions;
+	@Value("${refreshToken.reuse.grace.seconds}")
+	private int reuseGraceSeconds;
 	private final AccessTokenService accessTokenService;
 	private final JwtUtils jwtUtils;
 	private final RefreshTokenRepository refreshTokenRepository;
 	private final UserRepository userRepository;
+	private final TokenFamilyRevocationService tokenFamilyRevocationService;
 	private Duration tokenDuration;
 
 	@PostConstruct
@@ -49,7 +70,11 @@ public class RefreshTokenService {
 
 	public ResponseCookie createCookieWithRefreshToken(String email, User user) {
 		RefreshToken refreshToken = createRefreshToken(email, user);
-		return ResponseCookie.from("refreshToken", refreshToken.getToken())
+		return createCookie(refreshToken.getToken());
+	}
+
+	private ResponseCookie createCookie(String token) {
+		return ResponseCookie.from("refreshToken", token)
 				.httpOnly(true)
 				.secure(true)
 				.sameSite("None")
@@ -58,22 +83,19 @@ public class RefreshTokenService {
 				.build();
 	}
 
+	//Every sign-in is a new session and starts a new token family, other devices keep theirs until the user goes over the limit
 	public RefreshToken createRefreshToken(String email, User user) {
-		String jwt = jwtUtils.generateJwt(email, tokenDuration);
-		//Update or create a refresh token
-		RefreshToken token = refreshTokenRepository.findByUserEmail(email)
-				.map(exists -> {
-					exists.setToken(jwt);
-					exists.setExpiryDate(Instant.now().plus(tokenDuration));
-					return exists;
-				}).orElseGet(() -> {
-					RefreshToken newToken = new RefreshToken();
-					newToken.setUser(user);
-					newToken.setExpiryDate(Instant.now().plus(tokenDuration));
-					newToken.setToken(jwt);
-					return newToken;
-				});
-		return refreshTokenRepository.save(token);
+		RefreshToken token = new RefreshToken();
+		String jwt = jwtUtils.generateJwt(email, tokenDuration, Map.of(FAMILY_CLAIM, token.getFamilyId().toString()));
+		token.setUser(user);
+		token.setExpiryDate(Instant.now().plus(tokenDuration));
+		token.setToken(jwt);
+		//Only the digest is persisted, a merged copy comes back without the plain token the cookie needs
+		RefreshToken saved = refreshTokenRepository.save(token);
+		saved.setToken(jwt);
+		//Over the limit the least recently used sessions are dropped, the new one is the most recent
+		refreshTokenRepository.deleteOldestSessions(user.getId(), maxSessions);
+		return saved;
 	}
 
 	public ResponseEntity<ApiResponse<Object>> refreshAccessToken(String refToken, HttpServletResponse response) {
@@ -83,42 +105,41 @@ public class RefreshTokenService {
 							.message("Unauthorized - no refresh token")
 							.build());
 		}
-		//Check if the refresh token exists
-		RefreshToken refreshToken = refreshTokenRepository.findByToken(refToken)
-				.orElseThrow(() -> new UsernameNotFoundException(Messages.UNAUTHORIZED));
-
-		//Validate refresh token
-		String jwtEmail = jwtUtils.extractSubject(refToken);
-		String userEmail = refreshToken.getUser().getEmail();
-		if(jwtEmail == null || !jwtUtils.validateIfJwtSubjectMatchTheUser(jwtEmail, userEmail)) {
-			return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(ApiResponse.builder()
-							.success(false)
-							.message("Unauthorized - invalid token")
-							.build());
+		//Validate refresh token, signature and subject are checked without touching the database
+		JwtToken jwt;
+		try {
+			jwt = jwtUtils.parse(refToken);
+		} catch(JwtException | IllegalArgumentException e) {
+			return rejectRotation(refToken, null);
 		}
-		if(isRefreshTokenExpired(refreshToken)) {
-			refreshTokenRepository.delete(refreshToken);
-			return ResponseEntity.badRequest().body(ApiResponse.builder()
-							.success(false)
-							.message("Refresh token expired. Please login again.")
-							.build());
+		String jwtEmail = jwt.subject();
+		if(jwtEmail == null) {
+			return unauthorizedInvalidToken();
+		}
+		//Revoked families are known in memory, a replayed family never reaches the database
+		UUID familyId = TokenFamilyRevocationService.familyId(jwt);
+		if(tokenFamilyRevocationService.isRevoked(familyId)) {
+			return unauthorizedInvalidToken();
 		}
 
-		//Create a new refresh token
-		ResponseCookie cookieWithRefreshToken = createCookieWithRefreshToken(jwtEmail);
-		response.addHeader(HttpHeaders.SET_COOKIE, cookieWithRefreshToken.toString());
+		//Rotate in one round trip: conditional update of the current token, returning the user columns
+		UUID newFamilyId = familyId != null ? familyId : UUID.randomUUID();
+		String newToken = jwtUtils.generateJwt(jwtEmail, tokenDuration, Map.of(FAMILY_CLAIM, newFamilyId.toString()));
+		Optional<RefreshTokenRotation> rotation = refreshTokenRepository.rotate(HashUtils.sha256(refToken),
+				HashUtils.sha256(newToken), newFamilyId, Instant.now().plus(tokenDuration), Instant.now(), jwtEmail);
+		if(rotation.isEmpty()) {
+			return rejectRotation(refToken, familyId);
+		}
+		RefreshTokenRotation rotated = rotation.get();
+		response.addHeader(HttpHeaders.SET_COOKIE, createCookie(newToken).toString());
 
 		// Create a new access token
-		String accessToken = accessTokenService.generateAccessToken(jwtEmail);
-
-		//Validate if user exists
-		User user = userRepository.findByEmail(userEmail)
-				.orElseThrow(() -> new UsernameNotFoundException(Messages.UNAUTHORIZED));
-		//Update user
-		user.setTrainingDuration(UserService.calculateTrainingDuration(user.getCaliStartDate()));
+		String accessToken = accessTokenService.generateAccessToken(rotated.userId(), rotated.email(), rotated.role(), newFamilyId);
 
 		//Return userDTO with an access token
-		UserDTO userDTO = new UserDTO(user);
+		UserDTO userDTO = new UserDTO(rotated.userId(), rotated.username(), rotated.email(), rotated.role(),
+				rotated.emailVerified(), rotated.birthdate(),
+				UserService.calculateTrainingDuration(rotated.caliStartDate()), rotated.avatarKey());
 		return ResponseEntity.ok(ApiResponse.builder()
 						.success(true)
 						.message(Messages.REFRESH_TOKEN_SUCCESS)
@@ -127,6 +148,51 @@ public class RefreshTokenService {
 						.build());
 	}
 
+	//Slow path, only after a failed rotation: tells apart an unknown, a replayed, an expired and a foreign token
+	private ResponseEntity<ApiResponse<Object>> rejectRotation(String refToken, UUID familyId) {
+		Optional<RefreshToken> stored = refreshTokenRepository.findByToken(refToken);
+		if(stored.isEmpty()) {
+			//A signed-out, revoked or evicted session is simply gone. A signed token whose family is still live under another
+			// hash was superseded by a rotation, however many rotations ago, so it is a replay
+			Optional<RefreshToken> live = familyId != null ? refreshTokenRepository.findByFamilyId(familyId) : Optional.empty();
+			if(live.isEmpty()) {
+				throw new UsernameNotFoundException(Messages.UNAUTHORIZED);
+			}
+			RefreshToken rotated = live.get();
+			if(isConcurrentRefresh(rotated, refToken)) {
+				//Two tabs refreshed with the same cookie, the other one already received the new token
+				return unauthorizedInvalidToken();
+			}
+			//Replayed after the grace window: either this client or a thief holds a stolen copy. Every device of the family has to sign in again
+			tokenFamilyRevocationService.revokeFamily(rotated.getFamilyId());
+			logger.warning("Refresh token reuse detected, token family revoked.");
+			return unauthorizedInvalidToken();
+		}
+		RefreshToken refreshToken = stored.get();
+		if(isRefreshTokenExpired(refreshToken)) {
+			refreshTokenRepository.delete(refreshToken);
+			return ResponseEntity.badRequest().body(ApiResponse.builder()
+							.success(false)
+							.message("Refresh token expired. Please login again.")
+							.build());
+		}
+		return unauthorizedInvalidToken();
+	}
+
+	//Only the token replaced by the latest rotation, and only shortly after it, can come from the same client
+	private boolean isConcurrentRefresh(RefreshToken live, String refToken) {
+		return live.getRotatedAt() != null
+				&& live.getRotatedAt().plusSeconds(reuseGraceSeconds).isAfter(Instant.now())
+				&& Arrays.equals(live.getPreviousTokenHash(), HashUtils.sha256(refToken));
+	}
+
+	private ResponseEntity<ApiResponse<Object>> unauthorizedInvalidToken() {
+		return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(ApiResponse.builder()
+						.success(false)
+						.message("Unauthorized - invalid token")
+						.build());
+	}
+
 	public ResponseEntity<ApiResponse<Object>> deleteRefreshToken(String refToken, HttpServletResponse response) {
 		if(refToken == null) {
 			return ResponseEntity.badRequest().body(ApiResponse.builder()
@@ -154,7 +220,40 @@ public class RefreshTokenService {
 						.build());
 	}
 
+	public ResponseEntity<ApiResponse<Object>> listSessions(Object principal, String refToken) {
+		byte[] currentTokenHash = refToken != null ? HashUtils.sha256(refToken) : null;
+		List<SessionDTO> sessions = refreshTokenRepository.findByUserIdOrderByLastUsedDesc(userId(principal)).stream()
+				.map(session -> new SessionDTO(session.getId(), session.getCreatedAt(), session.getLastUsed(),
+						session.getExpiryDate(), Arrays.equals(session.getTokenHash(), currentTokenHash)))
+				.toList();
+		return ResponseEntity.ok(ApiResponse.builder()
+						.success(true)
+						.data(sessions)
+						.build());
+	}
+
+	//Signs the device out on its next refresh, its current access token stays valid until it expires
+	public ResponseEntity<ApiResponse<Object>> revokeSession(Object principal, UUID sessionId) {
+		if(refreshTokenRepository.deleteSession(sessionId, userId(principal)) == 0) {
+			throw new UsernameNotFoundException(Messages.SESSION_NOT_FOUND);
+		}
+		return ResponseEntity.ok(ApiResponse.builder()
+						.success(true)
+						.message(Messages.SESSION_REVOKED)
+						.build());
+	}
+
 	public boolean isRefreshTokenExpired(RefreshToken token) {
 		return token.getExpiryDate().isBefore(Instant.now());
 	}
-}
\ No newline at end of file
+
+	//AccessTokenAuthFilter authenticates with the stateless claims principal or with the cached user snapshot
+	private static UUID userId(Object principal) {
+		return switch(principal) {
+			case AccessTokenPrincipal tokenPrincipal -> tokenPrincipal.id();
+			case CachedUserDetails userDetails -> userDetails.id();
+			case User user -> user.getId();
+			case null, default -> throw new UsernameNotFoundException(Messages.UNAUTHORIZED);
+		};
+	}
+}
@@ -0,0 +1,198 @@
+package com.CalisthenicList.CaliList.service.tokens;
+
+import com.CalisthenicList.CaliList.model.JwtToken;
+import com.CalisthenicList.CaliList.service.PostgresNotificationListener;
+import com.CalisthenicList.CaliList.utils.UuidBloomFilter;
+import io.micrometer.common.lang.NonNull;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+import static com.CalisthenicList.CaliList.constants.TokenConstants.FAMILY_CLAIM;
+
+@Service
+@RequiredArgsConstructor
+//INFO - revoked refresh token families, kept in memory on every instance so refresh and access checks never query the database.
+// A Bloom filter answers the common "not revoked" case, the map is only consulted on a filter hit.
+// Instances load the table (db/migration/refresh_tokens_family.sql) at startup and learn about new revocations through
+// LISTEN/NOTIFY. With postgres.listen.enabled=false, or until a load succeeded, they reload it every refreshToken.families.reload.ms.
+public class TokenFamilyRevocationService implements MeterBinder {
+	static final String CHANNEL = "token_family_revoked";
+	static final String DELETE_FAMILY_TOKENS = "DELETE FROM refresh_tokens WHERE family_id = ?";
+	static final String INSERT_REVOKED = "INSERT INTO revoked_token_families (family_id, revoked_at, expires_at) " +
+			"VALUES (?, ?, ?) ON CONFLICT (family_id) DO NOTHING";
+	static final String NOTIFY = "SELECT pg_notify(?, ?)";
+	static final String SELECT_REVOKED = "SELECT family_id, expires_at FROM revoked_token_families WHERE expires_at > ?";
+	static final String DELETE_EXPIRED = "DELETE FROM revoked_token_families WHERE expires_at <= ?";
+	private final Logger logger = Logger.getLogger(TokenFamilyRevocationService.class.getName());
+	private final JdbcTemplate jdbcTemplate;
+	private final PostgresNotificationListener notificationListener;
+	@Value("${refreshToken.expiration.days}")
+	private int refreshTokenDuration;
+	@Value("${refreshToken.families.bloom.expected-insertions}")
+	private int expectedInsertions;
+	@Value("${refreshToken.families.bloom.false-positive-rate}")
+	private double falsePositiveRate;
+	//Replaced as a whole by reload, so a reader never sees a filter without the matching map. Writers hold writeLock
+	private volatile Snapshot snapshot;
+	private final Object writeLock = new Object();
+	private volatile boolean loaded;
+	private Counter reuseCounter;
+
+	private record Snapshot(UuidBloomFilter filter, Map<UUID, Instant> families) {
+		private void add(UUID familyId, Instant expiresAt) {
+			//Map first: a reader that finds the filter bit set always finds the entry too
+			families.merge(familyId, expiresAt, (current, added) -> current.isAfter(added) ? current : added);
+			filter.put(familyId);
+		}
+	}
+
+	@PostConstruct
+	public void init() {
+		snapshot = newSnapshot(0);
+		//A missing table or an unreachable database must not stop the application, the scheduled reload retries
+		try {
+			reload();
+		} catch(DataAccessException e) {
+			logger.warning("Loading revoked token families failed, retrying on schedule: " + e.getMessage());
+		}
+		notificationListener.subscribe(CHANNEL, this::onNotification, this::reload);
+	}
+
+	@Override
+	public void bindTo(@NonNull MeterRegistry registry) {
+		Gauge.builder("refreshToken.families.revoked", this, service -> service.snapshot.families().size()).register(registry);
+		reuseCounter = Counter.builder("refreshToken.reuse.detected").register(registry);
+	}
+
+	public boolean isRevoked(UUID familyId) {
+		if(familyId == null) {
+			return false;
+		}
+		Snapshot current = snapshot;
+		return current.filter().mightContain(familyId) && current.families().containsKey(familyId);
+	}
+
+	//Tokens issued before families existed carry no claim and are never revoked by family
+	public boolean isRevoked(JwtToken token) {
+		return isRevoked(familyId(token));
+	}
+
+	public static UUID familyId(JwtToken token) {
+		String familyId = token.getClaim(FAMILY_CLAIM, String.class);
+		if(familyId == null) {
+			return null;
+		}
+		try {
+			return UUID.fromString(familyId);
+		} catch(IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	//Signs out every device holding a token of the family. The notification is delivered to other instances on commit
+	@Transactional
+	public void revokeFamily(UUID familyId) {
+		Instant now = Instant.now();
+		//Tokens of the family expire at the latest one refresh token lifetime from now
+		Instant expiresAt = now.plus(Duration.ofDays(refreshTokenDuration));
+		jdbcTemplate.update(DELETE_FAMILY_TOKENS, familyId);
+		jdbcTemplate.update(INSERT_REVOKED, familyId, Timestamp.from(now), Timestamp.from(expiresAt));
+		jdbcTemplate.query(NOTIFY, resultSet -> {
+		}, CHANNEL, familyId.toString());
+		record(familyId, expiresAt);
+		if(reuseCounter != null) {
+			reuseCounter.increment();
+		}
+	}
+
+	//One query for the whole table, expired families are dropped from memory
+	public void reload() {
+		Instant now = Instant.now();
+		Map<UUID, Instant> revoked = new HashMap<>();
+		try {
+			jdbcTemplate.query(SELECT_REVOKED, resultSet -> {
+				revoked.put(resultSet.getObject("family_id", UUID.class), resultSet.getTimestamp("expires_at").toInstant());
+			}, Timestamp.from(now));
+		} catch(DataAccessException e) {
+			loaded = false;
+			throw e;
+		}
+		synchronized(writeLock) {
+			//Revocations recorded while the query ran are kept
+			if(snapshot != null) {
+				snapshot.families().forEach((familyId, expiresAt) -> {
+					if(expiresAt.isAfter(now)) {
+						revoked.putIfAbsent(familyId, expiresAt);
+					}
+				});
+			}
+			Snapshot reloaded = newSnapshot(revoked.size());
+			revoked.forEach(reloaded::add);
+			snapshot = reloaded;
+		}
+		loaded = true;
+		logger.info("Loaded " + revoked.size() + " revoked refresh token families.");
+	}
+
+	@Scheduled(cron = "${refreshToken.families.cleanup.cron}")
+	public void deleteExpired() {
+		try {
+			jdbcTemplate.update(DELETE_EXPIRED, Timestamp.from(Instant.now()));
+			reload();
+		} catch(DataAccessException e) {
+			logger.warning("Revoked token families cleanup failed: " + e.getMessage());
+		}
+	}
+
+	//Without the listener revocations of other instances reach this one within one interval. With it, only a failed load is retried
+	@Scheduled(fixedDelayString = "${refreshToken.families.reload.ms}", initialDelayString = "${refreshToken.families.reload.ms}")
+	public void scheduledReload() {
+		if(notificationListener.isEnabled() && loaded) {
+			return;
+		}
+		try {
+			reload();
+		} catch(DataAccessException e) {
+			logger.warning("Revoked token families reload failed: " + e.getMessage());
+		}
+	}
+
+	void onNotification(String payload) {
+		try {
+			record(UUID.fromString(payload), Instant.now().plus(Duration.ofDays(refreshTokenDuration)));
+		} catch(IllegalArgumentException e) {
+			logger.warning("Ignored malformed token family notification.");
+		}
+	}
+
+	private void record(UUID familyId, Instant expiresAt) {
+		synchronized(writeLock) {
+			snapshot.add(familyId, expiresAt);
+		}
+	}
+
+	//Twice the expected size, so the filter keeps its false positive rate as revocations accumulate until the next reload
+	private Snapshot newSnapshot(int loaded) {
+		return new Snapshot(new UuidBloomFilter(Math.max(expectedInsertions, loaded * 2), falsePositiveRate),
+				new ConcurrentHashMap<>());
+	}
+}
@@ -0,0 +1,97 @@
+package com.CalisthenicList.CaliList.utils;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.function.ToLongFunction;
+import java.util.logging.Logger;
+
+//INFO - picks the strongest Argon2 parameters that fit a latency budget (p99 of encode) and a per-hash memory budget,
+// measured on this host at startup. Strength is memory x iterations, candidates are tried from the strongest down.
+// Every node measures its own hardware, so in a cluster use the logged result to pin the parameters in properties,
+// otherwise nodes with different results keep re-encoding each other's hashes on login.
+public class Argon2Calibrator {
+	private static final Logger logger = Logger.getLogger(Argon2Calibrator.class.getName());
+	private static final int WARMUP_SAMPLES = 2;
+	private final Duration latencyBudget;
+	private final int memoryBudgetKib;
+	private final int samples;
+	private final ToLongFunction<Parameters> encodeNanos;
+
+	public record Parameters(int memory, int iterations, int parallelism) {
+		long strength() {
+			return (long) memory * iterations;
+		}
+	}
+
+	public Argon2Calibrator(Duration latencyBudget, int memoryBudgetKib, int samples) {
+		this(latencyBudget, memoryBudgetKib, samples, Argon2Calibrator::measureEncode);
+	}
+
+	Argon2Calibrator(Duration latencyBudget, int memoryBudgetKib, int samples, ToLongFunction<Parameters> encodeNanos) {
+		this.latencyBudget = latencyBudget;
+		this.memoryBudgetKib = memoryBudgetKib;
+		this.samples = samples;
+		this.encodeNanos = encodeNanos;
+	}
+
+	//Returns the fallback when no candidate fits the budgets
+	public Parameters calibrate(List<Parameters> candidates, Parameters fallback) {
+		List<Parameters> ordered = candidates.stream()
+				.filter(candidate -> candidate.memory() <= memoryBudgetKib)
+				.sorted(Comparator.comparingLong(Parameters::strength)
+						.thenComparingInt(Parameters::memory)
+						.reversed())
+				.toList();
+		long budgetNanos = latencyBudget.toNanos();
+		for(Parameters candidate : ordered) {
+			OptionalLong p99 = measureP99(candidate, budgetNanos);
+			if(p99.isPresent()) {
+				logger.info("Argon2 calibration chose " + candidate + " with p99 " + p99.getAsLong() / 1_000_000 + " ms (budget "
+						+ latencyBudget.toMillis() + " ms, " + memoryBudgetKib + " KiB)");
+				return candidate;
+			}
+		}
+		logger.warning("Argon2 calibration found no parameters within budget, using " + fallback);
+		return fallback;
+	}
+
+	//Empty when the candidate is over budget. With few samples p99 is the slowest one, so the first slow sample decides.
+	private OptionalLong measureP99(Parameters candidate, long budgetNanos) {
+		for(int i = 0; i < WARMUP_SAMPLES; i++) {
+			if(encodeNanos.applyAsLong(candidate) > budgetNanos * 2) {
+				return OptionalLong.empty();
+			}
+		}
+		long[] measured = new long[samples];
+		for(int i = 0; i < samples; i++) {
+			measured[i] = encodeNanos.applyAsLong(candidate);
+			if(samples < 100 && measured[i] > budgetNanos) {
+				return OptionalLong.empty();
+			}
+		}
+		Arrays.sort(measured);
+		long p99 = measured[(int) Math.ceil(samples * 0.99) - 1];
+		return p99 <= budgetNanos ? OptionalLong.of(p99) : OptionalLong.empty();
+	}
+
+	private static long measureEncode(Parameters parameters) {
+		TunableArgon2PasswordEncoder encoder = new TunableArgon2PasswordEncoder(16, 32,
+				parameters.parallelism(), parameters.memory(), parameters.iterations());
+		long start = System.nanoTime();
+		encoder.encode("calibration-password");
+		return System.nanoTime() - start;
+	}
+
+	//Grid of every memory x iterations x parallelism combination
+	public static List<Parameters> grid(int[] memories, int[] iterations, int[] parallelisms) {
+		List<Parameters> grid = new ArrayList<>();
+		for(int memory : memories) {
+			for(int iteration : iterations) {
+				for(int parallelism : parallelisms) {
+					grid.add(new Parameters(memory, iteration, parallelism));
+				}
+			}
+		}
+		return grid;
+	}
+}
@@ -0,0 +1,66 @@
+package com.CalisthenicList.CaliList.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+//INFO - a {{variable}} template parsed once into literal and variable slots.
+// Rendering is a single StringBuilder pass with no regex or repeated String.replace.
+public final class CompiledTemplate {
+	private static final String OPEN = "{{";
+	private static final String CLOSE = "}}";
+	private final String[] literals;
+	private final String[] variables;
+	private final int literalLength;
+
+	private CompiledTemplate(String[] literals, String[] variables) {
+		this.literals = literals;
+		this.variables = variables;
+		int length = 0;
+		for(String literal : literals) {
+			length += literal.length();
+		}
+		this.literalLength = length;
+	}
+
+	public static CompiledTemplate compile(String source) {
+		List<String> literals = new ArrayList<>();
+		List<String> variables = new ArrayList<>();
+		int position = 0;
+		int open;
+		while((open = source.indexOf(OPEN, position)) >= 0) {
+			int close = source.indexOf(CLOSE, open + OPEN.length());
+			if(close < 0) {
+				throw new IllegalArgumentException("Unclosed template variable at index " + open);
+			}
+			String variable = source.substring(open + OPEN.length(), close).trim();
+			if(variable.isEmpty()) {
+				throw new IllegalArgumentException("Empty template variable at index " + open);
+			}
+			literals.add(source.substring(position, open));
+			variables.add(variable);
+			position = close + CLOSE.length();
+		}
+		literals.add(source.substring(position));
+		return new CompiledTemplate(literals.toArray(String[]::new), variables.toArray(String[]::new));
+	}
+
+	//The escaper is applied to variable values only, literals are trusted template text
+	public String render(Map<String, String> values, UnaryOperator<String> escaper) {
+		StringBuilder builder = new StringBuilder(literalLength + variables.length * 64);
+		for(int i = 0; i < variables.length; i++) {
+			builder.append(literals[i]);
+			String value = values.get(variables[i]);
+			if(value == null) {
+				throw new IllegalArgumentException("Missing template variable: " + variables[i]);
+			}
+			builder.append(escaper.apply(value));
+		}
+		return builder.append(literals[variables.length]).toString();
+	}
+
+	public List<String> variables() {
+		return List.of(variables);
+	}
+}
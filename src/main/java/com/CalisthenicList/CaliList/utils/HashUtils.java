@@ -0,0 +1,23 @@
+package com.CalisthenicList.CaliList.utils;
+
+import lombok.experimental.UtilityClass;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+@UtilityClass
+public final class HashUtils {
+	//INFO - MessageDigest is not thread-safe, every thread reuses its own instance
+	private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch(NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available", e);
+		}
+	});
+
+	public static byte[] sha256(String value) {
+		return SHA_256.get().digest(value.getBytes(StandardCharsets.UTF_8));
+	}
+}
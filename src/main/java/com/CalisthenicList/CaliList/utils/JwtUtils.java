@@ -1,34 +1,80 @@
 package com.CalisthenicList.CaliList.utils;
 
+import com.CalisthenicList.CaliList.model.JwtToken;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 import io.jsonwebtoken.security.SignatureException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.time.Instant;
 import java.util.Date;
-import java.util.function.Function;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
 
 @Component
-public class JwtUtils {
+public class JwtUtils implements MeterBinder {
+	private static final Set<String> REGISTERED_CLAIMS = Set.of(
+			Claims.SUBJECT, Claims.ISSUED_AT, Claims.EXPIRATION, Claims.NOT_BEFORE,
+			Claims.ISSUER, Claims.AUDIENCE, Claims.ID);
 	@Value("${jwt.secret}")
 	private String jwtSecret;
+	@Value("${jwt.cache.enabled}")
+	private boolean verifiedTokenCacheEnabled;
+	@Value("${jwt.cache.maximum-size}")
+	private long verifiedTokenCacheMaximumSize;
 	private SecretKey secretKey;
+	//INFO - JwtParser is immutable and thread-safe, so a single instance is shared by all requests
+	private JwtParser jwtParser;
+	//INFO - optional cache of already verified tokens, keyed by SHA-256 of the raw token and expired at the token's exp
+	private Cache<ByteBuffer, JwtToken> verifiedTokenCache;
 
 	@PostConstruct
 	public void init() {
 		this.secretKey = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+		this.jwtParser = Jwts.parser()
+				.verifyWith(secretKey)
+				.build();
+		if(verifiedTokenCacheEnabled) {
+			this.verifiedTokenCache = Caffeine.newBuilder()
+					.maximumSize(verifiedTokenCacheMaximumSize)
+					.expireAfter(Expiry.<ByteBuffer, JwtToken>creating((key, token) -> timeToLive(token)))
+					.recordStats()
+					.build();
+		}
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		if(verifiedTokenCache != null) {
+			CaffeineCacheMetrics.monitor(registry, verifiedTokenCache, "jwt.verified");
+		}
 	}
 
 	public String generateJwt(String subject, Duration jwtDuration) {
+		return generateJwt(subject, jwtDuration, Map.of());
+	}
+
+	public String generateJwt(String subject, Duration jwtDuration, Map<String, ?> claims) {
 		return Jwts.builder()
+				.claims(claims)
 				.subject(subject)
 				.issuedAt(new Date())
 				.expiration(new Date(new Date().getTime() + jwtDuration.toMillis()))
@@ -45,21 +91,45 @@ public class JwtUtils {
 	}
 
 	public String extractSubject(String jwt) {
-		return extractClaim(jwt, Claims::getSubject);
+		return parse(jwt).subject();
+	}
+
+	//INFO - verifies the signature and expiry exactly once and returns every claim callers may need
+	public JwtToken parse(String jwt) {
+		if(verifiedTokenCache == null) {
+			return verify(jwt);
+		}
+		//Invalid or expired tokens throw from verify and are never cached
+		return verifiedTokenCache.get(ByteBuffer.wrap(HashUtils.sha256(jwt)), key -> verify(jwt));
+	}
+
+	public CacheStats verifiedTokenCacheStats() {
+		return verifiedTokenCache == null ? CacheStats.empty() : verifiedTokenCache.stats();
 	}
 
-	private <T> T extractClaim(String jwt, Function<Claims, T> claimsResolver) {
+	private JwtToken verify(String jwt) {
 		Claims claims = extractClaims(jwt);
-		return claimsResolver.apply(claims);
+		Map<String, Object> customClaims = new HashMap<>(claims);
+		customClaims.keySet().removeAll(REGISTERED_CLAIMS);
+		return new JwtToken(claims.getSubject(), toInstant(claims.getIssuedAt()),
+				toInstant(claims.getExpiration()), customClaims);
+	}
+
+	private static Duration timeToLive(JwtToken token) {
+		if(token.expiration() == null) {
+			return Duration.ZERO;
+		}
+		Duration ttl = Duration.between(Instant.now(), token.expiration());
+		return ttl.isNegative() ? Duration.ZERO : ttl;
+	}
+
+	private static Instant toInstant(Date date) {
+		return date == null ? null : date.toInstant();
 	}
 
 	private Claims extractClaims(String jwt) {
 		try {
-			return Jwts.parser()
-					.verifyWith(secretKey)
-					.build()
-					.parseSignedClaims(jwt)
-					.getPayload();
+			return jwtParser.parseSignedClaims(jwt).getPayload();
 		} catch(SignatureException e) {
 			//Validated if the secret is correct
 			throw new SignatureException(e.getMessage());
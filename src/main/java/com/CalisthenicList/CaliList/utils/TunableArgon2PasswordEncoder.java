@@ -0,0 +1,57 @@
+package com.CalisthenicList.CaliList.utils;
+
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+
+//INFO - Argon2PasswordEncoder only asks for an upgrade when stored parameters are weaker than the current ones.
+// Parameters are also tuned the other way (e.g. more parallelism with less memory for lower latency),
+// so any hash whose m/t/p differ from the configured ones is re-encoded on the next successful login.
+public class TunableArgon2PasswordEncoder extends Argon2PasswordEncoder {
+	private static final String ARGON2_PREFIX = "$argon2";
+	private final int memory;
+	private final int iterations;
+	private final int parallelism;
+
+	public TunableArgon2PasswordEncoder(int saltLength, int hashLength, int parallelism, int memory, int iterations) {
+		super(saltLength, hashLength, parallelism, memory, iterations);
+		this.memory = memory;
+		this.iterations = iterations;
+		this.parallelism = parallelism;
+	}
+
+	@Override
+	public boolean upgradeEncoding(String encodedPassword) {
+		if(encodedPassword == null || !encodedPassword.startsWith(ARGON2_PREFIX)) {
+			return false;
+		}
+		//Format: $argon2id$v=19$m=12288,t=3,p=1$<salt>$<hash>
+		String[] parts = encodedPassword.split("\\$");
+		if(parts.length != 6) {
+			return false;
+		}
+		int storedMemory = -1;
+		int storedIterations = -1;
+		int storedParallelism = -1;
+		for(String parameter : parts[3].split(",")) {
+			int separator = parameter.indexOf('=');
+			if(separator < 0) {
+				return false;
+			}
+			try {
+				int value = Integer.parseInt(parameter.substring(separator + 1));
+				switch(parameter.substring(0, separator)) {
+					case "m" -> storedMemory = value;
+					case "t" -> storedIterations = value;
+					case "p" -> storedParallelism = value;
+					default -> {
+					}
+				}
+			} catch(NumberFormatException e) {
+				return false;
+			}
+		}
+		if(storedMemory < 0 || storedIterations < 0 || storedParallelism < 0) {
+			return false;
+		}
+		return storedMemory != memory || storedIterations != iterations || storedParallelism != parallelism;
+	}
+}
@@ -0,0 +1,60 @@
+package com.CalisthenicList.CaliList.utils;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+//INFO - thread-safe Bloom filter over UUIDs, sized from the expected number of entries and the false positive rate.
+// mightContain never misses an added id, a false answer skips the exact lookup. Ids cannot be removed, rebuild instead.
+public final class UuidBloomFilter {
+	private final AtomicLongArray words;
+	private final long bitCount;
+	private final int hashFunctions;
+
+	public UuidBloomFilter(int expectedInsertions, double falsePositiveRate) {
+		if(expectedInsertions <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+			throw new IllegalArgumentException("Expected insertions must be positive and the false positive rate in (0, 1).");
+		}
+		//m = -n ln p / (ln 2)^2, k = m / n ln 2
+		long bits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+		int wordCount = (int) Math.max(1, (bits + 63) / 64);
+		this.words = new AtomicLongArray(wordCount);
+		this.bitCount = (long) wordCount * 64;
+		this.hashFunctions = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+	}
+
+	public void put(UUID id) {
+		long hash1 = mix(id.getMostSignificantBits());
+		long hash2 = mix(id.getLeastSignificantBits() ^ hash1);
+		for(int i = 0; i < hashFunctions; i++) {
+			long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+			long mask = 1L << bit;
+			int word = (int) (bit >>> 6);
+			if((words.get(word) & mask) == 0) {
+				words.getAndAccumulate(word, mask, (current, added) -> current | added);
+			}
+		}
+	}
+
+	public boolean mightContain(UUID id) {
+		long hash1 = mix(id.getMostSignificantBits());
+		long hash2 = mix(id.getLeastSignificantBits() ^ hash1);
+		for(int i = 0; i < hashFunctions; i++) {
+			long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+			if((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public int hashFunctions() {
+		return hashFunctions;
+	}
+
+	//Stafford variant 13 of the SplitMix64 finalizer, random UUIDs are already uniform but time-based ones are not
+	private static long mix(long value) {
+		value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+		value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+		return value ^ (value >>> 31);
+	}
+}
@@ -0,0 +1,10 @@
+-- INFO - run once before deploying the version that shares access token revocations between instances.
+-- One row per user, access tokens of the user issued up to revoked_at are rejected until they expire.
+BEGIN;
+
+CREATE TABLE IF NOT EXISTS revoked_access_tokens (
+	user_id uuid PRIMARY KEY,
+	revoked_at timestamptz NOT NULL
+);
+
+COMMIT;
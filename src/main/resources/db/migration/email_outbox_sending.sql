@@ -0,0 +1,9 @@
+-- INFO - run once before deploying the version that leases claimed outbox rows as SENDING while SMTP runs.
+-- ddl-auto=update adds locked_until but keeps the status check constraint Hibernate generated for the old enum values.
+BEGIN;
+
+ALTER TABLE email_outbox DROP CONSTRAINT IF EXISTS email_outbox_status_check;
+ALTER TABLE email_outbox ADD CONSTRAINT email_outbox_status_check
+	CHECK (status IN ('PENDING', 'SENDING', 'SENT', 'FAILED'));
+
+COMMIT;
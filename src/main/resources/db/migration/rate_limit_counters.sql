@@ -0,0 +1,16 @@
+-- INFO - run once before deploying with rate-limit.store=postgres.
+-- One row per policy, key and fixed window, shared by all instances. The expires_at index serves the batched cleanup.
+BEGIN;
+
+CREATE TABLE IF NOT EXISTS rate_limit_counters (
+	policy VARCHAR(64) NOT NULL,
+	rate_key VARCHAR(320) NOT NULL,
+	window_start BIGINT NOT NULL,
+	hits BIGINT NOT NULL,
+	expires_at TIMESTAMPTZ NOT NULL,
+	PRIMARY KEY (policy, rate_key, window_start)
+);
+
+CREATE INDEX IF NOT EXISTS rate_limit_counters_expires_at_idx ON rate_limit_counters (expires_at);
+
+COMMIT;
@@ -0,0 +1,4 @@
+-- INFO - run once before deploying the version with the scheduled purge of expired refresh tokens.
+-- ddl-auto=update would build the same index with a plain CREATE INDEX, which blocks writes to refresh_tokens while it runs.
+-- CONCURRENTLY cannot run inside a transaction block, execute this file without BEGIN/COMMIT.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_refresh_tokens_expiry_date ON refresh_tokens (expiry_date);
@@ -0,0 +1,20 @@
+-- INFO - run once before deploying the version that groups refresh tokens into families.
+-- Every existing session becomes its own family. Tokens issued before carry no fid claim and join the family on their next refresh.
+-- previous_token_hash and rotated_at are added by ddl-auto=update, they stay empty until a session is refreshed.
+BEGIN;
+
+ALTER TABLE refresh_tokens ADD COLUMN IF NOT EXISTS family_id uuid;
+
+UPDATE refresh_tokens SET family_id = gen_random_uuid() WHERE family_id IS NULL;
+
+ALTER TABLE refresh_tokens ALTER COLUMN family_id SET NOT NULL;
+ALTER TABLE refresh_tokens ADD CONSTRAINT uk_refresh_tokens_family_id UNIQUE (family_id);
+
+-- Families revoked after a detected replay, loaded into memory by every instance
+CREATE TABLE IF NOT EXISTS revoked_token_families (
+	family_id uuid PRIMARY KEY,
+	revoked_at timestamptz NOT NULL,
+	expires_at timestamptz NOT NULL
+);
+
+COMMIT;
@@ -0,0 +1,32 @@
+-- INFO - run once before deploying the version that keeps one refresh token per signed-in device.
+-- ddl-auto=update adds the new columns and index but does not drop the unique constraint of the old one-to-one user_id.
+BEGIN;
+
+DO $$
+DECLARE
+	constraint_name text;
+BEGIN
+	FOR constraint_name IN
+		SELECT c.conname FROM pg_constraint c
+		JOIN pg_attribute a ON a.attrelid = c.conrelid AND a.attnum = ANY (c.conkey)
+		WHERE c.conrelid = 'refresh_tokens'::regclass AND c.contype = 'u'
+		  AND a.attname = 'user_id' AND array_length(c.conkey, 1) = 1
+	LOOP
+		EXECUTE format('ALTER TABLE refresh_tokens DROP CONSTRAINT %I', constraint_name);
+	END LOOP;
+END $$;
+
+ALTER TABLE refresh_tokens ADD COLUMN IF NOT EXISTS created_at timestamp(6) with time zone;
+ALTER TABLE refresh_tokens ADD COLUMN IF NOT EXISTS last_used timestamp(6) with time zone;
+
+-- Existing sessions have no history, they count as created and used when the migration ran
+UPDATE refresh_tokens SET created_at = now() WHERE created_at IS NULL;
+UPDATE refresh_tokens SET last_used = now() WHERE last_used IS NULL;
+
+ALTER TABLE refresh_tokens ALTER COLUMN created_at SET NOT NULL;
+ALTER TABLE refresh_tokens ALTER COLUMN last_used SET NOT NULL;
+ALTER TABLE refresh_tokens ALTER COLUMN user_id SET NOT NULL;
+
+CREATE INDEX IF NOT EXISTS idx_refresh_tokens_user_last_used ON refresh_tokens (user_id, last_used);
+
+COMMIT;
@@ -0,0 +1,18 @@
+-- INFO - run once before deploying the version that stores refresh tokens as SHA-256 digests.
+-- ddl-auto=update cannot fill token_hash for existing rows nor drop the old NOT NULL token column.
+-- Existing sessions stay valid: the digest of every stored token is computed in place.
+BEGIN;
+
+ALTER TABLE refresh_tokens ADD COLUMN IF NOT EXISTS token_hash bytea;
+
+UPDATE refresh_tokens
+SET token_hash = sha256(convert_to(token, 'UTF8'))
+WHERE token_hash IS NULL;
+
+ALTER TABLE refresh_tokens ALTER COLUMN token_hash SET NOT NULL;
+ALTER TABLE refresh_tokens ADD CONSTRAINT uk_refresh_tokens_token_hash UNIQUE (token_hash);
+ALTER TABLE refresh_tokens ADD CONSTRAINT ck_refresh_tokens_token_hash_length CHECK (octet_length(token_hash) = 32);
+
+ALTER TABLE refresh_tokens DROP COLUMN token;
+
+COMMIT;
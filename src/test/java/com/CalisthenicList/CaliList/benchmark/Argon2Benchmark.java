@@ -0,0 +1,42 @@
+package com.CalisthenicList.CaliList.benchmark;
+
+import com.CalisthenicList.CaliList.utils.TunableArgon2PasswordEncoder;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+//INFO - encode/matches latency percentiles (SampleTime) and allocation (-prof gc) for a grid of Argon2 parameters.
+// 12288 KiB / 3 iterations / parallelism 1 is the current production setting.
+public class Argon2Benchmark {
+	private static final String PASSWORD = "qWBRęLGć8MPł_benchmark";
+	@Param({"12288", "19456", "47104", "65536"})
+	private int memory;
+	@Param({"1", "2", "3"})
+	private int iterations;
+	@Param({"1", "2", "4"})
+	private int parallelism;
+	private TunableArgon2PasswordEncoder encoder;
+	private String encodedPassword;
+
+	@Setup
+	public void setUp() {
+		encoder = new TunableArgon2PasswordEncoder(16, 32, parallelism, memory, iterations);
+		encodedPassword = encoder.encode(PASSWORD);
+	}
+
+	@Benchmark
+	public String encode() {
+		return encoder.encode(PASSWORD);
+	}
+
+	@Benchmark
+	public boolean matches() {
+		return encoder.matches(PASSWORD, encodedPassword);
+	}
+}
@@ -0,0 +1,63 @@
+package com.CalisthenicList.CaliList.benchmark;
+
+import com.CalisthenicList.CaliList.enums.EmailTemplateName;
+import com.CalisthenicList.CaliList.service.EmailTemplateRenderer;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.util.HtmlUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+//INFO - rendering throughput of one verification email (subject, text, HTML) for bulk sends:
+// templates read and replaced per call (naive) vs. templates compiled once at startup (EmailTemplateRenderer)
+public class EmailTemplateBenchmark {
+	private static final String TEMPLATE_PATH = "email-templates/en/verification";
+	private EmailTemplateRenderer renderer;
+	private Map<String, String> variables;
+
+	@Setup
+	public void setUp() {
+		renderer = new EmailTemplateRenderer();
+		ReflectionTestUtils.setField(renderer, "locales", List.of("en", "pl"));
+		ReflectionTestUtils.setField(renderer, "defaultLocale", "en");
+		renderer.init();
+		variables = Map.of("verifyUrl", "http://localhost:8080/email-verification/eyJhbGciOiJIUzI1NiJ9.eyJzdWIiOiJ0ZXN0In0.sig");
+	}
+
+	@Benchmark
+	public String[] loadedAndReplacedPerCall() throws IOException {
+		String url = variables.get("verifyUrl");
+		return new String[]{
+				load(TEMPLATE_PATH + ".subject").strip(),
+				load(TEMPLATE_PATH + ".txt").replace("{{verifyUrl}}", url),
+				load(TEMPLATE_PATH + ".html").replace("{{verifyUrl}}", HtmlUtils.htmlEscape(url))
+		};
+	}
+
+	@Benchmark
+	public EmailTemplateRenderer.RenderedEmail precompiled() {
+		return renderer.render(EmailTemplateName.VERIFICATION, Locale.ENGLISH, variables);
+	}
+
+	@Benchmark
+	@Threads(8)
+	public EmailTemplateRenderer.RenderedEmail precompiled_8threads() {
+		return precompiled();
+	}
+
+	private static String load(String path) throws IOException {
+		return new ClassPathResource(path).getContentAsString(StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,62 @@
+package com.CalisthenicList.CaliList.benchmark;
+
+import com.CalisthenicList.CaliList.utils.JwtUtils;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+//INFO - parse-and-verify throughput of a signed JWT: parser built per call (old) vs. shared parser (JwtUtils)
+public class JwtUtilsBenchmark {
+	private static final String SECRET = "12345678901234567890123456789012";
+	private JwtUtils jwtUtils;
+	private SecretKey secretKey;
+	private String jwt;
+
+	@Setup
+	public void setUp() {
+		jwtUtils = new JwtUtils();
+		ReflectionTestUtils.setField(jwtUtils, "jwtSecret", SECRET);
+		jwtUtils.init();
+		secretKey = Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8));
+		jwt = jwtUtils.generateJwt("benchmark@example.com", Duration.ofHours(1));
+	}
+
+	@Benchmark
+	public Claims parserBuiltPerCall() {
+		return Jwts.parser()
+				.verifyWith(secretKey)
+				.build()
+				.parseSignedClaims(jwt)
+				.getPayload();
+	}
+
+	@Benchmark
+	public String sharedParser() {
+		return jwtUtils.extractSubject(jwt);
+	}
+
+	@Benchmark
+	@Threads(8)
+	public Claims parserBuiltPerCall_8threads() {
+		return parserBuiltPerCall();
+	}
+
+	@Benchmark
+	@Threads(8)
+	public String sharedParser_8threads() {
+		return sharedParser();
+	}
+}
@@ -0,0 +1,89 @@
+package com.CalisthenicList.CaliList.benchmark;
+
+import com.CalisthenicList.CaliList.filter.TokenBucketRateLimiter;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+//INFO - rate-limit check throughput on a shared set of client keys: old putIfAbsent/get/put counter vs. CAS token bucket
+public class RateLimiterBenchmark {
+	private static final int MAX_REQUESTS = 10;
+	private static final int KEYS = 64;
+	private final Map<String, Integer> requestCounts = new ConcurrentHashMap<>();
+	private TokenBucketRateLimiter tokenBucket;
+	private String[] keys;
+
+	@Setup
+	public void setUp() {
+		//Huge capacity, so both variants stay on the "allowed" path and the benchmark measures contention, not rejections
+		tokenBucket = new TokenBucketRateLimiter(1_000_000, Duration.ofMillis(1), KEYS);
+		keys = new String[KEYS];
+		for(int i = 0; i < KEYS; i++) {
+			keys[i] = "10.0.0." + i;
+		}
+	}
+
+	@Benchmark
+	@Threads(1)
+	public boolean counterMap_1thread() {
+		return counterMap();
+	}
+
+	@Benchmark
+	@Threads(8)
+	public boolean counterMap_8threads() {
+		return counterMap();
+	}
+
+	@Benchmark
+	@Threads(64)
+	public boolean counterMap_64threads() {
+		return counterMap();
+	}
+
+	@Benchmark
+	@Threads(1)
+	public boolean tokenBucket_1thread() {
+		return tokenBucket.tryAcquire(randomKey());
+	}
+
+	@Benchmark
+	@Threads(8)
+	public boolean tokenBucket_8threads() {
+		return tokenBucket.tryAcquire(randomKey());
+	}
+
+	@Benchmark
+	@Threads(64)
+	public boolean tokenBucket_64threads() {
+		return tokenBucket.tryAcquire(randomKey());
+	}
+
+	//Copy of the previous UserValidationRateLimitingFilter logic, including its lost-update race
+	private boolean counterMap() {
+		String key = randomKey();
+		requestCounts.putIfAbsent(key, 0);
+		int count = requestCounts.get(key);
+		if(count >= MAX_REQUESTS) {
+			//Stands in for the periodic clear, so the map keeps doing writes
+			requestCounts.put(key, 0);
+			return false;
+		}
+		requestCounts.put(key, count + 1);
+		return true;
+	}
+
+	private String randomKey() {
+		return keys[ThreadLocalRandom.current().nextInt(KEYS)];
+	}
+}
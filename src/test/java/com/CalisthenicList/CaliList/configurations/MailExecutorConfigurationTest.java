@@ -0,0 +1,73 @@
+package com.CalisthenicList.CaliList.configurations;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MailExecutorConfigurationTest {
+	private final MailExecutorConfiguration configuration = new MailExecutorConfiguration();
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final CountDownLatch release = new CountDownLatch(1);
+	private ThreadPoolExecutor executor;
+
+	@BeforeEach
+	void setUp() {
+		executor = configuration.mailExecutor(1, 1, true);
+		configuration.mailExecutorMetrics(executor).bindTo(registry);
+	}
+
+	@AfterEach
+	void tearDown() {
+		release.countDown();
+		executor.shutdownNow();
+	}
+
+	private void submitBlocking() {
+		executor.execute(() -> {
+			try {
+				release.await(5, TimeUnit.SECONDS);
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Mail work runs on named virtual threads")
+	void givenVirtualThreads_whenExecute_thenRunsOnNamedVirtualThread() throws InterruptedException {
+		// Given
+		CountDownLatch done = new CountDownLatch(1);
+		Thread[] worker = new Thread[1];
+		// When
+		executor.execute(() -> {
+			worker[0] = Thread.currentThread();
+			done.countDown();
+		});
+		// Then
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		assertTrue(worker[0].isVirtual());
+		assertTrue(worker[0].getName().startsWith("mail-"));
+	}
+
+	@Test
+	@DisplayName("❌ Negative Case: Full queue discards the task and counts the rejection")
+	void givenFullQueue_whenExecute_thenTaskDiscardedAndCounted() {
+		// Given
+		submitBlocking();
+		submitBlocking();
+		// When
+		assertDoesNotThrow(this::submitBlocking);
+		// Then
+		assertEquals(1, executor.getQueue().size());
+		assertEquals(1.0, registry.get("executor.rejected").tag("name", "mailExecutor").functionCounter().count());
+		assertEquals(1.0, registry.get("executor.queued").tag("name", "mailExecutor").gauge().value());
+	}
+}
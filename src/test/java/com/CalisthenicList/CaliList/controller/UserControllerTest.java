@@ -19,6 +19,7 @@ import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 
 import java.time.LocalDate;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
@@ -26,6 +27,8 @@ import java.util.UUID;
 import static com.CalisthenicList.CaliList.service.UserService.calculateTrainingDuration;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 
+//INFO - full-context test against PostgreSQL, like AuthControllerTest its context does not load with the current starter
+// versions. The switch to the refresh token cookie of the registration response has not been run
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
 @ActiveProfiles("test")
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
@@ -38,6 +41,8 @@ public class UserControllerTest {
 	private final String initEmail = "Inittest@interia.pl";
 	private final String initPassword = "Init password test";
 	private UUID userId;
+	//Only the digest is stored, the plain token is taken from the registration response
+	private String refreshTokenCookie;
 
 	@Autowired
 	public UserControllerTest(UserRepository userRepository, RefreshTokenRepository refreshTokenRepository) {
@@ -49,7 +54,7 @@ public class UserControllerTest {
 		return userRepository.findByEmail(initEmail);
 	}
 
-	private Optional<RefreshToken> findRefTokenByEmail() {
+	private List<RefreshToken> findRefTokenByEmail() {
 		return refreshTokenRepository.findByUserEmail(initEmail);
 	}
 
@@ -63,17 +68,18 @@ public class UserControllerTest {
 		String postRegisterUrl = "http://localhost:" + port + AuthController.registerUrl;
 		String initUsername = "InitUser";
 		UserRegistrationDTO userRegistrationDTO = new UserRegistrationDTO(initUsername, initEmail, initPassword, initPassword);
-		RestAssured.given()
+		refreshTokenCookie = RestAssured.given()
 				.body(userRegistrationDTO).headers(headers)
 				.when()
 				.post(postRegisterUrl)
-				.then().statusCode(HttpStatus.CREATED.value());
+				.then().statusCode(HttpStatus.CREATED.value())
+				.extract().cookie("refreshToken");
 		userId = findUserByEmail().map(User::getId).orElseThrow();
 	}
 
 	@AfterEach
 	void cleanupAfterEach() {
-		findRefTokenByEmail().ifPresent(refreshTokenRepository::delete);
+		findRefTokenByEmail().forEach(refreshTokenRepository::delete);
 		findUserByEmail().ifPresent(userRepository::delete);
 	}
 
@@ -162,7 +168,7 @@ public class UserControllerTest {
 			Map<String, Object> body = Map.of("birthdate", "1990-05-01");
 			RestAssured.given()
 					.headers(headers)
-					.cookie("refreshToken", findRefTokenByEmail().map(RefreshToken::getToken).orElseThrow())
+					.cookie("refreshToken", refreshTokenCookie)
 					.body(body)
 					.when()
 					.patch(patchUserBirthdateUrl)
@@ -194,7 +200,7 @@ public class UserControllerTest {
 			Map<String, Object> body = Map.of();
 			RestAssured.given()
 					.headers(headers)
-					.cookie("refreshToken", findRefTokenByEmail().map(RefreshToken::getToken).orElseThrow())
+					.cookie("refreshToken", refreshTokenCookie)
 					.body(body)
 					.when()
 					.patch(patchUserBirthdateUrl)
@@ -222,7 +228,7 @@ public class UserControllerTest {
 
 			RestAssured.given()
 					.headers(headers)
-					.cookie("refreshToken", findRefTokenByEmail().map(RefreshToken::getToken).orElseThrow())
+					.cookie("refreshToken", refreshTokenCookie)
 					.body(body)
 					.when()
 					.patch(patchUserCaliStartDateUrl)
@@ -254,7 +260,7 @@ public class UserControllerTest {
 			Map<String, Object> body = Map.of();
 			RestAssured.given()
 					.headers(headers)
-					.cookie("refreshToken", findRefTokenByEmail().map(RefreshToken::getToken).orElseThrow())
+					.cookie("refreshToken", refreshTokenCookie)
 					.body(body)
 					.when()
 					.patch(patchUserCaliStartDateUrl)
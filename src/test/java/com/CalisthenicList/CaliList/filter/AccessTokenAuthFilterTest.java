@@ -1,4 +1,10 @@
 package com.CalisthenicList.CaliList.filter;
+import com.CalisthenicList.CaliList.enums.Roles;
+import com.CalisthenicList.CaliList.model.AccessTokenPrincipal;
+import com.CalisthenicList.CaliList.model.JwtToken;
+import com.CalisthenicList.CaliList.service.tokens.AccessTokenRevocationService;
+import com.CalisthenicList.CaliList.service.tokens.AccessTokenService;
+import com.CalisthenicList.CaliList.service.tokens.TokenFamilyRevocationService;
 import com.CalisthenicList.CaliList.utils.JwtUtils;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -16,9 +22,12 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.io.IOException;
 import java.util.Collections;
+import java.util.Optional;
+import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -30,6 +39,12 @@ public class AccessTokenAuthFilterTest {
 	@Mock
 	private UserDetailsService userDetailsService;
 	@Mock
+	private AccessTokenService accessTokenService;
+	@Mock
+	private AccessTokenRevocationService accessTokenRevocationService;
+	@Mock
+	private TokenFamilyRevocationService tokenFamilyRevocationService;
+	@Mock
 	private HttpServletRequest request;
 	@Mock
 	private HttpServletResponse response;
@@ -43,7 +58,8 @@ public class AccessTokenAuthFilterTest {
 	@BeforeEach
 	void setup() {
 		SecurityContextHolder.clearContext();
-		filter = new AccessTokenAuthFilter(jwtUtils, userDetailsService);
+		filter = new AccessTokenAuthFilter(jwtUtils, userDetailsService, accessTokenService, accessTokenRevocationService,
+				tokenFamilyRevocationService);
 	}
 
 	@Test
@@ -63,7 +79,7 @@ public class AccessTokenAuthFilterTest {
 	void validJwt_setsAuthentication() throws ServletException, IOException {
 		// Given
 		when(request.getHeader("Authorization")).thenReturn("Bearer " + jwt);
-		when(jwtUtils.extractSubject(anyString())).thenReturn(email);
+		when(jwtUtils.parse(anyString())).thenReturn(new JwtToken(email, null, null, null));
 		UserDetails userDetails = new User(email, "password", Collections.emptyList());
 		when(userDetailsService.loadUserByUsername(email)).thenReturn(userDetails);
 		when(jwtUtils.validateIfJwtSubjectMatchTheUser(email, userDetails)).thenReturn(true);
@@ -82,7 +98,7 @@ public class AccessTokenAuthFilterTest {
 	void invalidJwt_doesNotAuthenticate() throws ServletException, IOException {
 		//Given
 		when(request.getHeader("Authorization")).thenReturn("Bearer " + jwt);
-		when(jwtUtils.extractSubject(jwt)).thenReturn(email);
+		when(jwtUtils.parse(jwt)).thenReturn(new JwtToken(email, null, null, null));
 		UserDetails userDetails = new User(email, "password", Collections.emptyList());
 		when(userDetailsService.loadUserByUsername(email)).thenReturn(userDetails);
 		when(jwtUtils.validateIfJwtSubjectMatchTheUser(email, userDetails)).thenReturn(false);
@@ -98,11 +114,98 @@ public class AccessTokenAuthFilterTest {
 	void exceptionInJwtUtils_doesNotBreakFilterChain() throws ServletException, IOException {
 		//Given
 		when(request.getHeader("Authorization")).thenReturn("Bearer " + jwt);
-		when(jwtUtils.extractSubject(jwt)).thenThrow(new RuntimeException("invalid token"));
+		when(jwtUtils.parse(jwt)).thenThrow(new RuntimeException("invalid token"));
 		//When
 		filter.doFilterInternal(request, response, filterChain);
 		//Then
 		verify(filterChain, times(1)).doFilter(request, response);
 		assertNull(SecurityContextHolder.getContext().getAuthentication());
 	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Stateless mode → authentication built from token claims without loading the user")
+	void statelessMode_validClaims_setsAuthenticationWithoutUserLookup() throws ServletException, IOException {
+		// Given
+		ReflectionTestUtils.setField(filter, "statelessPrincipal", true);
+		JwtToken token = new JwtToken(email, null, null, null);
+		AccessTokenPrincipal principal = new AccessTokenPrincipal(UUID.randomUUID(), email, Roles.ROLE_USER);
+		when(request.getHeader("Authorization")).thenReturn("Bearer " + jwt);
+		when(jwtUtils.parse(jwt)).thenReturn(token);
+		when(accessTokenService.toPrincipal(token)).thenReturn(Optional.of(principal));
+		when(accessTokenRevocationService.isRevoked(principal.id(), token)).thenReturn(false);
+		// When
+		filter.doFilterInternal(request, response, filterChain);
+		// Then
+		verify(filterChain, times(1)).doFilter(request, response);
+		verifyNoInteractions(userDetailsService);
+		var authentication = SecurityContextHolder.getContext().getAuthentication();
+		assertNotNull(authentication);
+		assertEquals(principal, authentication.getPrincipal());
+		assertEquals(email, authentication.getName());
+	}
+
+	@Test
+	@DisplayName("❌ Negative Case: Stateless mode → revoked token is not authenticated")
+	void statelessMode_revokedToken_doesNotAuthenticate() throws ServletException, IOException {
+		// Given
+		ReflectionTestUtils.setField(filter, "statelessPrincipal", true);
+		JwtToken token = new JwtToken(email, null, null, null);
+		AccessTokenPrincipal principal = new AccessTokenPrincipal(UUID.randomUUID(), email, Roles.ROLE_USER);
+		when(request.getHeader("Authorization")).thenReturn("Bearer " + jwt);
+		when(jwtUtils.parse(jwt)).thenReturn(token);
+		when(accessTokenService.toPrincipal(token)).thenReturn(Optional.of(principal));
+		when(accessTokenRevocationService.isRevoked(principal.id(), token)).thenReturn(true);
+		// When
+		filter.doFilterInternal(request, response, filterChain);
+		// Then
+		verify(filterChain, times(1)).doFilter(request, response);
+		verifyNoInteractions(userDetailsService);
+		assertNull(SecurityContextHolder.getContext().getAuthentication());
+	}
+
+	@Test
+	@DisplayName("❌ Negative Case: Token of a revoked refresh token family is not authenticated on either path")
+	void revokedFamily_doesNotAuthenticate() throws ServletException, IOException {
+		// Given
+		JwtToken token = new JwtToken(email, null, null, null);
+		when(request.getHeader("Authorization")).thenReturn("Bearer " + jwt);
+		when(jwtUtils.parse(jwt)).thenReturn(token);
+		when(tokenFamilyRevocationService.isRevoked(token)).thenReturn(true);
+		// When
+		filter.doFilterInternal(request, response, filterChain);
+		// Then
+		verify(filterChain, times(1)).doFilter(request, response);
+		verifyNoInteractions(userDetailsService, accessTokenService);
+		assertNull(SecurityContextHolder.getContext().getAuthentication());
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Public route with stale Authorization header → token is not parsed and the skip is counted")
+	void publicRoute_shouldNotFilterAndCountSkippedParse() {
+		// Given
+		ReflectionTestUtils.setField(filter, "publicPaths", new String[]{"/api/login", "/api/email-verification/*"});
+		filter.compilePublicPaths();
+		when(request.getRequestURI()).thenReturn("/api/email-verification/some.jwt.token");
+		when(request.getHeader("Authorization")).thenReturn("Bearer " + jwt);
+		// When
+		boolean skipped = filter.shouldNotFilter(request);
+		// Then
+		assertTrue(skipped);
+		assertEquals(1, filter.skippedTokenParses("/api/email-verification/*"));
+		verifyNoInteractions(jwtUtils);
+	}
+
+	@Test
+	@DisplayName("❌ Negative Case: Protected route → filter runs")
+	void protectedRoute_shouldFilter() {
+		// Given
+		ReflectionTestUtils.setField(filter, "publicPaths", new String[]{"/api/login"});
+		filter.compilePublicPaths();
+		when(request.getRequestURI()).thenReturn("/api/delete/user");
+		// When
+		boolean skipped = filter.shouldNotFilter(request);
+		// Then
+		assertFalse(skipped);
+		assertEquals(0, filter.skippedTokenParses("/api/login"));
+	}
 }
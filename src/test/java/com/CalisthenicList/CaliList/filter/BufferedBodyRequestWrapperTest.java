@@ -0,0 +1,82 @@
+package com.CalisthenicList.CaliList.filter;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class BufferedBodyRequestWrapperTest {
+
+	private MockHttpServletRequest request(String body) {
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/login");
+		request.setContent(body.getBytes(StandardCharsets.UTF_8));
+		return request;
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Small body is buffered and can still be read in full")
+	void givenSmallBody_whenWrapped_thenBufferedAndReplayed() throws IOException {
+		// Given
+		BufferedBodyRequestWrapper wrapper = new BufferedBodyRequestWrapper(request("{\"email\":\"a@b.pl\"}"), 64);
+		ServletInputStream inputStream = wrapper.getInputStream();
+		// When
+		String body = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+		// Then
+		assertArrayEquals(body.getBytes(StandardCharsets.UTF_8), wrapper.getBufferedBody());
+		assertEquals("{\"email\":\"a@b.pl\"}", body);
+		assertTrue(inputStream.isFinished());
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Large body is not buffered but is read in full")
+	void givenLargeBody_whenWrapped_thenHeadAndRestReplayed() throws IOException {
+		// Given
+		BufferedBodyRequestWrapper wrapper = new BufferedBodyRequestWrapper(request("0123456789"), 4);
+		// When
+		String body = new String(wrapper.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+		// Then
+		assertNull(wrapper.getBufferedBody());
+		assertEquals("0123456789", body);
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Read listener of a buffered body is called right away")
+	void givenBufferedBody_whenSetReadListener_thenDataAvailableAndAllDataRead() throws IOException {
+		// Given
+		BufferedBodyRequestWrapper wrapper = new BufferedBodyRequestWrapper(request("body"), 64);
+		ServletInputStream inputStream = wrapper.getInputStream();
+		ReadListener listener = mock(ReadListener.class);
+		doAnswer(invocation -> inputStream.readAllBytes()).when(listener).onDataAvailable();
+		// When
+		inputStream.setReadListener(listener);
+		// Then
+		InOrder inOrder = inOrder(listener);
+		inOrder.verify(listener).onDataAvailable();
+		inOrder.verify(listener).onAllDataRead();
+		assertTrue(inputStream.isReady());
+		assertTrue(inputStream.isFinished());
+	}
+
+	@Test
+	@DisplayName("❌ Negative Case: Read listener failure is reported through onError")
+	void givenFailingListener_whenSetReadListener_thenOnError() throws IOException {
+		// Given
+		BufferedBodyRequestWrapper wrapper = new BufferedBodyRequestWrapper(request("body"), 64);
+		ReadListener listener = mock(ReadListener.class);
+		IOException failure = new IOException("broken");
+		doThrow(failure).when(listener).onDataAvailable();
+		// When
+		wrapper.getInputStream().setReadListener(listener);
+		// Then
+		verify(listener).onError(failure);
+		verify(listener, never()).onAllDataRead();
+	}
+}
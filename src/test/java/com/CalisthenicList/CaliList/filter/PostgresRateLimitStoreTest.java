@@ -0,0 +1,195 @@
+package com.CalisthenicList.CaliList.filter;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PostgresRateLimitStoreTest {
+	@Mock
+	private JdbcTemplate jdbcTemplate;
+	@Mock
+	private PlatformTransactionManager transactionManager;
+	private PostgresRateLimitStore store;
+	private final int capacity = 10;
+	private final Duration window = Duration.ofMinutes(1);
+	private final AtomicLong clock = new AtomicLong(window.toMillis() * 1000);
+	private RateLimiter rateLimiter;
+
+	@BeforeEach
+	void setUp() {
+		store = new PostgresRateLimitStore(jdbcTemplate, new TransactionTemplate(transactionManager));
+		ReflectionTestUtils.setField(store, "cleanupBatchSize", 2);
+		ReflectionTestUtils.setField(store, "cleanupMaxBatches", 3);
+		rateLimiter = store.create("login", capacity, window, 1000, clock::get);
+	}
+
+	@AfterEach
+	void tearDown() {
+		store.shutdown();
+	}
+
+	@SuppressWarnings("unchecked")
+	private void clusterReturns(String key, long hits) {
+		PostgresRateLimitStore.CounterKey counterKey = new PostgresRateLimitStore.CounterKey("login", key, clock.get());
+		when(jdbcTemplate.query(any(PreparedStatementCreator.class), any(RowMapper.class)))
+				.thenReturn(List.of(new PostgresRateLimitStore.CounterRow(counterKey, hits)));
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Requests are admitted locally without a database round trip")
+	void givenRequestsUnderLimit_whenTryAcquire_thenAdmittedWithoutDatabase() {
+		// When
+		for(int i = 0; i < capacity; i++) {
+			assertTrue(rateLimiter.tryAcquire("127.0.0.1"));
+		}
+		// Then
+		assertFalse(rateLimiter.tryAcquire("127.0.0.1"));
+		verifyNoInteractions(jdbcTemplate);
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Hits admitted by other instances count against the limit after sync")
+	void givenClusterCountAtLimit_whenSync_thenRejects() {
+		// Given
+		assertTrue(rateLimiter.tryAcquire("127.0.0.1"));
+		clusterReturns("127.0.0.1", capacity);
+		// When
+		store.sync();
+		// Then
+		assertEquals(0, rateLimiter.availableTokens("127.0.0.1"));
+		assertFalse(rateLimiter.tryAcquire("127.0.0.1"));
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Synced hits are not counted twice")
+	void givenLocalHits_whenSync_thenCountedOnce() {
+		// Given
+		for(int i = 0; i < 3; i++) {
+			rateLimiter.tryAcquire("127.0.0.1");
+		}
+		clusterReturns("127.0.0.1", 3);
+		// When
+		store.sync();
+		// Then
+		assertEquals(capacity - 3, rateLimiter.availableTokens("127.0.0.1"));
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Nothing to sync means no database call")
+	void givenNoRequests_whenSync_thenNoQuery() {
+		// When
+		store.sync();
+		// Then
+		verifyNoInteractions(jdbcTemplate);
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: New window starts with a full limit")
+	void givenExhaustedWindow_whenNextWindowStarts_thenAdmitted() {
+		// Given
+		for(int i = 0; i < capacity; i++) {
+			rateLimiter.tryAcquire("127.0.0.1");
+		}
+		// When
+		clock.addAndGet(window.toMillis());
+		// Then
+		assertEquals(capacity, rateLimiter.availableTokens("127.0.0.1"));
+		assertTrue(rateLimiter.tryAcquire("127.0.0.1"));
+	}
+
+	@Test
+	@DisplayName("❌ Negative Case: Failed sync keeps local hits pending")
+	@SuppressWarnings("unchecked")
+	void givenDatabaseFailure_whenSync_thenHitsStayPending() {
+		// Given
+		for(int i = 0; i < 4; i++) {
+			rateLimiter.tryAcquire("127.0.0.1");
+		}
+		when(jdbcTemplate.query(any(PreparedStatementCreator.class), any(RowMapper.class)))
+				.thenThrow(new QueryTimeoutException("timeout"));
+		// When
+		store.sync();
+		// Then
+		assertEquals(capacity - 4, rateLimiter.availableTokens("127.0.0.1"));
+		// When
+		store.sync();
+		// Then
+		verify(jdbcTemplate, times(2)).query(any(PreparedStatementCreator.class), any(RowMapper.class));
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Syncs run on their own thread and keep running after an unexpected failure")
+	@SuppressWarnings("unchecked")
+	void givenInit_whenSyncThrows_thenNextSyncStillRuns() {
+		// Given
+		ReflectionTestUtils.setField(store, "syncIntervalMillis", 10L);
+		assertTrue(rateLimiter.tryAcquire("127.0.0.1"));
+		when(jdbcTemplate.query(any(PreparedStatementCreator.class), any(RowMapper.class)))
+				.thenThrow(new IllegalStateException("unexpected"))
+				.thenReturn(List.of());
+		// When
+		store.init();
+		// Then
+		verify(jdbcTemplate, timeout(5_000).atLeast(2)).query(any(PreparedStatementCreator.class), any(RowMapper.class));
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Cleanup deletes in batches under the lock until a batch comes back short")
+	void givenExpiredCounters_whenDeleteExpired_thenBatchesUnderLock() {
+		// Given
+		when(jdbcTemplate.queryForObject(PostgresRateLimitStore.TRY_LOCK, Boolean.class, PostgresRateLimitStore.CLEANUP_LOCK_KEY))
+				.thenReturn(true);
+		when(jdbcTemplate.update(PostgresRateLimitStore.DELETE_EXPIRED_BATCH, 2)).thenReturn(2, 1);
+		// When
+		store.deleteExpired();
+		// Then
+		verify(jdbcTemplate, times(2)).update(PostgresRateLimitStore.DELETE_EXPIRED_BATCH, 2);
+		verify(transactionManager, times(2)).commit(any());
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Cleanup stops after max-batches")
+	void givenManyExpiredCounters_whenDeleteExpired_thenStopsAtMaxBatches() {
+		// Given
+		when(jdbcTemplate.queryForObject(PostgresRateLimitStore.TRY_LOCK, Boolean.class, PostgresRateLimitStore.CLEANUP_LOCK_KEY))
+				.thenReturn(true);
+		when(jdbcTemplate.update(PostgresRateLimitStore.DELETE_EXPIRED_BATCH, 2)).thenReturn(2);
+		// When
+		store.deleteExpired();
+		// Then
+		verify(jdbcTemplate, times(3)).update(PostgresRateLimitStore.DELETE_EXPIRED_BATCH, 2);
+	}
+
+	@Test
+	@DisplayName("❌ Negative Case: Cleanup is skipped while another instance holds the lock")
+	void givenLockHeldElsewhere_whenDeleteExpired_thenNothingDeleted() {
+		// Given
+		when(jdbcTemplate.queryForObject(PostgresRateLimitStore.TRY_LOCK, Boolean.class, PostgresRateLimitStore.CLEANUP_LOCK_KEY))
+				.thenReturn(false);
+		// When
+		store.deleteExpired();
+		// Then
+		verify(jdbcTemplate).queryForObject(PostgresRateLimitStore.TRY_LOCK, Boolean.class, PostgresRateLimitStore.CLEANUP_LOCK_KEY);
+		verifyNoMoreInteractions(jdbcTemplate);
+	}
+}
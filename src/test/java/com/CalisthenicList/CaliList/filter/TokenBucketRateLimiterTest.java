@@ -0,0 +1,132 @@
+package com.CalisthenicList.CaliList.filter;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketRateLimiterTest {
+	private final int capacity = 10;
+	private final Duration refillPeriod = Duration.ofMinutes(1);
+	private final long maximumKeys = 100;
+	private final AtomicLong clock = new AtomicLong(5_000L);
+	private TokenBucketRateLimiter rateLimiter;
+
+	@BeforeEach
+	void setUp() {
+		rateLimiter = new TokenBucketRateLimiter(capacity, refillPeriod, maximumKeys, clock::get);
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Allows exactly capacity requests, then rejects")
+	void givenFullBucket_whenAcquireOverCapacity_thenRejects() {
+		for(int i = 0; i < capacity; i++) {
+			assertTrue(rateLimiter.tryAcquire("key"));
+		}
+		assertFalse(rateLimiter.tryAcquire("key"));
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: One token is refilled every refillPeriod / capacity")
+	void givenEmptyBucket_whenOneTokenIntervalPasses_thenOneRequestAllowed() {
+		// Given
+		for(int i = 0; i < capacity; i++) {
+			rateLimiter.tryAcquire("key");
+		}
+		// When
+		clock.addAndGet(refillPeriod.toMillis() / capacity - 1);
+		assertFalse(rateLimiter.tryAcquire("key"));
+		clock.addAndGet(1);
+		// Then
+		assertTrue(rateLimiter.tryAcquire("key"));
+		assertFalse(rateLimiter.tryAcquire("key"));
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Refill accumulated over many small steps is not lost to rounding")
+	void givenEmptyBucket_whenAcquiringEveryMillisecond_thenCapacityAdmittedPerPeriod() {
+		// Given
+		for(int i = 0; i < capacity; i++) {
+			rateLimiter.tryAcquire("key");
+		}
+		int admitted = 0;
+		// When
+		for(long i = 0; i < refillPeriod.toMillis(); i++) {
+			clock.incrementAndGet();
+			if(rateLimiter.tryAcquire("key")) {
+				admitted++;
+			}
+		}
+		// Then
+		assertEquals(capacity, admitted);
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Bucket idle for a refill period expires, recent bucket is kept")
+	void givenIdleAndRecentBuckets_whenRefillPeriodPasses_thenOnlyIdleExpires() {
+		// Given
+		rateLimiter.tryAcquire("idle");
+		clock.addAndGet(refillPeriod.toMillis() / 2);
+		for(int i = 0; i < capacity; i++) {
+			rateLimiter.tryAcquire("recent");
+		}
+		// When
+		clock.addAndGet(refillPeriod.toMillis() / 2);
+		rateLimiter.cleanUp();
+		// Then
+		assertEquals(1, rateLimiter.size());
+		assertEquals(1, rateLimiter.evictionCount());
+		assertEquals(capacity / 2, rateLimiter.availableTokens("recent"));
+	}
+
+	@Test
+	@DisplayName("❌ Negative Case: Flood of distinct keys never exceeds the key limit")
+	void givenMoreKeysThanLimit_whenAcquire_thenSizeIsCapped() {
+		// When
+		for(int i = 0; i < maximumKeys * 50; i++) {
+			rateLimiter.tryAcquire("10.0." + (i / 256) + "." + (i % 256));
+		}
+		rateLimiter.cleanUp();
+		// Then
+		assertTrue(rateLimiter.size() <= maximumKeys);
+		assertTrue(rateLimiter.evictionCount() >= maximumKeys * 49);
+	}
+
+	@Test
+	@DisplayName("❌ Negative Case: Concurrent burst never admits more than capacity")
+	void givenConcurrentBurst_whenAcquire_thenExactlyCapacityAdmitted() throws Exception {
+		// Given
+		int threads = 64;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		CountDownLatch start = new CountDownLatch(1);
+		AtomicInteger admitted = new AtomicInteger();
+		List<Future<?>> futures = new ArrayList<>();
+		// When
+		for(int i = 0; i < threads; i++) {
+			futures.add(executor.submit(() -> {
+				start.await();
+				for(int j = 0; j < 100; j++) {
+					if(rateLimiter.tryAcquire("key")) {
+						admitted.incrementAndGet();
+					}
+				}
+				return null;
+			}));
+		}
+		start.countDown();
+		for(Future<?> future : futures) {
+			future.get(10, TimeUnit.SECONDS);
+		}
+		executor.shutdown();
+		// Then
+		assertEquals(capacity, admitted.get());
+	}
+}
@@ -1,9 +1,17 @@
 package com.CalisthenicList.CaliList.filter;
 
+import com.CalisthenicList.CaliList.configurations.RateLimitProperties;
 import com.CalisthenicList.CaliList.controller.AuthController;
+import com.CalisthenicList.CaliList.enums.RateLimitCount;
+import com.CalisthenicList.CaliList.enums.RateLimitKey;
+import com.CalisthenicList.CaliList.model.JwtToken;
+import com.CalisthenicList.CaliList.utils.JwtUtils;
+import io.jsonwebtoken.JwtException;
 import io.micrometer.common.lang.NonNull;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.junit.jupiter.api.BeforeEach;
@@ -11,17 +19,23 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.util.StreamUtils;
 
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -34,15 +48,46 @@ public class UserValidationRateLimitingFilterTest {
 	private HttpServletResponse httpResponse;
 	@Mock
 	private FilterChain filterChain;
+	@Mock
+	private JwtUtils jwtUtils;
 	private int maxRequestsPerMinute;
+	private final Duration refillPeriod = Duration.ofMinutes(1);
+	private final AtomicLong clock = new AtomicLong(1_000_000L);
 
 	@BeforeEach
 	void initEach() {
-		filter = new UserValidationRateLimitingFilter();
+		RateLimitProperties properties = new RateLimitProperties();
+		properties.getPolicies().put("login", policy(AuthController.loginUrl, RateLimitKey.IP, 10));
+		properties.getPolicies().put("password-recovery-ip",
+				policy(AuthController.sendPasswordRecoveryRequestUrl, RateLimitKey.IP, 5));
+		RateLimitProperties.Policy recoveryEmail = policy(AuthController.sendPasswordRecoveryRequestUrl, RateLimitKey.EMAIL, 3);
+		recoveryEmail.setCount(RateLimitCount.FAILURES);
+		properties.getPolicies().put("password-recovery-email", recoveryEmail);
+		properties.getPolicies().put("password-reset", policy("/api/password-recovery/*", RateLimitKey.IP, 2));
+		properties.getPolicies().put("refresh-token",
+				policy(AuthController.refreshTokenUrl, RateLimitKey.REFRESH_TOKEN_SUBJECT, 2));
+		filter = new UserValidationRateLimitingFilter(jwtUtils, properties, new InMemoryRateLimitStore(), clock::get);
 		request = mock(HttpServletRequest.class);
 		httpResponse = mock(HttpServletResponse.class);
 		filterChain = mock(FilterChain.class);
-		maxRequestsPerMinute = filter.MAX_HEAVY_REQUESTS_PER_MINUTE;
+		maxRequestsPerMinute = filter.capacity("login");
+	}
+
+	private RateLimitProperties.Policy policy(String path, RateLimitKey key, int capacity) {
+		RateLimitProperties.Policy policy = new RateLimitProperties.Policy();
+		policy.setPath(path);
+		policy.setKey(key);
+		policy.setCapacity(capacity);
+		policy.setRefillPeriod(refillPeriod);
+		return policy;
+	}
+
+	private MockHttpServletRequest passwordRecoveryRequest(String body) {
+		MockHttpServletRequest recoveryRequest = new MockHttpServletRequest("POST", AuthController.sendPasswordRecoveryRequestUrl);
+		recoveryRequest.setRemoteAddr("127.0.0.1");
+		recoveryRequest.setContentType("application/json");
+		recoveryRequest.setContent(body.getBytes(StandardCharsets.UTF_8));
+		return recoveryRequest;
 	}
 
 	private void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse httpResponse,
@@ -63,7 +108,7 @@ public class UserValidationRateLimitingFilterTest {
 				doFilterInternal(request, httpResponse, filterChain);
 			}
 			// Then
-			assertNull(filter.requestCounts.get("127.0.0.1"), "Request count should not be tracked for other URLs");
+			assertEquals(maxRequestsPerMinute, filter.availableRequests("login", "127.0.0.1"), "Requests should not be counted for other URLs");
 			verify(filterChain, times(maxRequestsPerMinute * 2)).doFilter(request, httpResponse);
 			verify(httpResponse, never()).setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
 		}
@@ -86,7 +131,7 @@ public class UserValidationRateLimitingFilterTest {
 				doFilterInternal(request, httpResponse, filterChain);
 			}
 			// Then
-			assertEquals(maxRequestsPerMinute, filter.requestCounts.get("127.0.0.1"));
+			assertEquals(0, filter.availableRequests("login", "127.0.0.1"));
 			verify(filterChain, times(maxRequestsPerMinute)).doFilter(request, httpResponse);
 			verify(httpResponse, Mockito.never()).setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
 		}
@@ -108,15 +153,15 @@ public class UserValidationRateLimitingFilterTest {
 		}
 
 		@Test
-		@DisplayName("✅ Happy Case: Reset request limit after refill period.")
+		@DisplayName("✅ Happy Case: Bucket is full again after refill period.")
 		void givenMaxAmountOfRequests_whenWaitRefillPeriod_thenRefillRequestAmount() throws ServletException, IOException {
 			// Given
 			for(int i = 0; i < maxRequestsPerMinute; i++) {
 				doFilterInternal(request, httpResponse, filterChain);
 			}
-			assertEquals(maxRequestsPerMinute, filter.requestCounts.get("127.0.0.1"));
+			assertEquals(0, filter.availableRequests("login", "127.0.0.1"));
 			// When
-			filter.rateLimitingTimer();
+			clock.addAndGet(refillPeriod.toMillis());
 			for(int i = 0; i < maxRequestsPerMinute; i++) {
 				doFilterInternal(request, httpResponse, filterChain);
 			}
@@ -125,6 +170,19 @@ public class UserValidationRateLimitingFilterTest {
 			verify(httpResponse, Mockito.never()).setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
 		}
 
+		@Test
+		@DisplayName("✅ Happy Case: Tokens refill continuously, not all at once.")
+		void givenEmptyBucket_whenPartOfRefillPeriodPasses_thenOnlyPartIsRefilled() throws ServletException, IOException {
+			// Given
+			for(int i = 0; i < maxRequestsPerMinute; i++) {
+				doFilterInternal(request, httpResponse, filterChain);
+			}
+			// When
+			clock.addAndGet(refillPeriod.toMillis() / 2);
+			// Then
+			assertEquals(maxRequestsPerMinute / 2, filter.availableRequests("login", "127.0.0.1"));
+		}
+
 		@Test
 		@DisplayName("✅ Happy Case: User2 is not rate-limited when User1 reaches the limit.")
 		void givenUser1AtLimit_whenUser2SendsRequests_thenUser2IsUnaffected() throws ServletException, IOException {
@@ -138,9 +196,142 @@ public class UserValidationRateLimitingFilterTest {
 				doFilterInternal(request, httpResponse, filterChain);
 			}
 			// Then
-			assertEquals(maxRequestsPerMinute, filter.requestCounts.get("127.0.0.1"));
-			assertEquals(maxRequestsPerMinute, filter.requestCounts.get("127.0.0.2"));
+			assertEquals(0, filter.availableRequests("login", "127.0.0.1"));
+			assertEquals(0, filter.availableRequests("login", "127.0.0.2"));
 			verify(httpResponse, Mockito.never()).setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
 		}
 	}
-}
\ No newline at end of file
+
+	@Nested
+	@DisplayName("For password recovery and refresh token urls")
+	class ForOtherPolicies {
+		@Test
+		@DisplayName("✅ Happy Case: Failed password recoveries are limited per email and the body is still readable")
+		void givenSameEmailFailing_whenOverLimit_thenBlockedAndBodyForwarded() throws ServletException, IOException {
+			// Given
+			StringWriter stringWriter = new StringWriter();
+			when(httpResponse.getWriter()).thenReturn(new PrintWriter(stringWriter));
+			when(httpResponse.getStatus()).thenReturn(HttpStatus.BAD_REQUEST.value());
+			String body = "{\"email\":\"Test@Example.com\"}";
+			ArgumentCaptor<ServletRequest> forwarded = ArgumentCaptor.forClass(ServletRequest.class);
+			// When
+			for(int i = 0; i < 4; i++) {
+				doFilterInternal(passwordRecoveryRequest(body), httpResponse, filterChain);
+			}
+			// Then
+			verify(filterChain, times(3)).doFilter(forwarded.capture(), eq(httpResponse));
+			verify(httpResponse, times(1)).setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+			assertEquals(0, filter.availableRequests("password-recovery-email", "test@example.com"));
+			assertEquals(body, StreamUtils.copyToString(forwarded.getValue().getInputStream(), StandardCharsets.UTF_8));
+		}
+
+		@Test
+		@DisplayName("✅ Happy Case: Other email is not affected by a blocked email")
+		void givenEmailAtLimit_whenOtherEmailSendsRequest_thenPasses() throws ServletException, IOException {
+			// Given
+			when(httpResponse.getStatus()).thenReturn(HttpStatus.BAD_REQUEST.value());
+			for(int i = 0; i < 3; i++) {
+				doFilterInternal(passwordRecoveryRequest("{\"email\":\"first@example.com\"}"), httpResponse, filterChain);
+			}
+			// When
+			doFilterInternal(passwordRecoveryRequest("{\"email\":\"second@example.com\"}"), httpResponse, filterChain);
+			// Then
+			verify(filterChain, times(4)).doFilter(any(), eq(httpResponse));
+			verify(httpResponse, never()).setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+		}
+
+		@Test
+		@DisplayName("❌ Negative Case: Body without email is limited by IP")
+		void givenMalformedBody_whenDoFilter_thenLimitedByIp() throws ServletException, IOException {
+			// Given
+			when(httpResponse.getStatus()).thenReturn(HttpStatus.BAD_REQUEST.value());
+			// When
+			doFilterInternal(passwordRecoveryRequest("not json"), httpResponse, filterChain);
+			// Then
+			assertEquals(2, filter.availableRequests("password-recovery-email", "127.0.0.1"));
+		}
+
+		@Test
+		@DisplayName("✅ Happy Case: Successful password recoveries do not count against the submitted email")
+		void givenSuccessfulRecoveries_whenDoFilter_thenEmailNotLockedOut() throws ServletException, IOException {
+			// Given
+			when(httpResponse.getStatus()).thenReturn(HttpStatus.OK.value());
+			// When
+			for(int i = 0; i < 4; i++) {
+				doFilterInternal(passwordRecoveryRequest("{\"email\":\"victim@example.com\"}"), httpResponse, filterChain);
+			}
+			// Then
+			assertEquals(3, filter.availableRequests("password-recovery-email", "victim@example.com"));
+			assertEquals(1, filter.availableRequests("password-recovery-ip", "127.0.0.1"));
+			verify(httpResponse, never()).setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+		}
+
+		@Test
+		@DisplayName("❌ Negative Case: A request rejected by one policy takes no token from the others")
+		void givenEmailAtLimit_whenRejected_thenIpLimitNotDrained() throws ServletException, IOException {
+			// Given
+			StringWriter stringWriter = new StringWriter();
+			when(httpResponse.getWriter()).thenReturn(new PrintWriter(stringWriter));
+			when(httpResponse.getStatus()).thenReturn(HttpStatus.BAD_REQUEST.value());
+			for(int i = 0; i < 3; i++) {
+				doFilterInternal(passwordRecoveryRequest("{\"email\":\"test@example.com\"}"), httpResponse, filterChain);
+			}
+			// When
+			doFilterInternal(passwordRecoveryRequest("{\"email\":\"test@example.com\"}"), httpResponse, filterChain);
+			// Then
+			verify(httpResponse, times(1)).setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+			assertEquals(2, filter.availableRequests("password-recovery-ip", "127.0.0.1"));
+		}
+
+		@Test
+		@DisplayName("✅ Happy Case: Wildcard policy matches the path with a token")
+		void givenPasswordResetUrl_whenOverLimit_thenBlocked() throws ServletException, IOException {
+			// Given
+			StringWriter stringWriter = new StringWriter();
+			when(httpResponse.getWriter()).thenReturn(new PrintWriter(stringWriter));
+			when(request.getRequestURI()).thenReturn("/api/password-recovery/some.jwt.token");
+			when(request.getRemoteAddr()).thenReturn("127.0.0.1");
+			// When
+			for(int i = 0; i < 3; i++) {
+				doFilterInternal(request, httpResponse, filterChain);
+			}
+			// Then
+			verify(filterChain, times(2)).doFilter(request, httpResponse);
+			verify(httpResponse, times(1)).setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+		}
+
+		@Test
+		@DisplayName("✅ Happy Case: Refresh token is limited per token subject")
+		void givenRefreshCookie_whenDoFilter_thenCountedBySubject() throws ServletException, IOException {
+			// Given
+			when(request.getRequestURI()).thenReturn(AuthController.refreshTokenUrl);
+			when(request.getCookies()).thenReturn(new Cookie[]{new Cookie("refreshToken", "refresh.jwt")});
+			when(jwtUtils.parse("refresh.jwt")).thenReturn(new JwtToken("test@example.com", null, null, null));
+			// When
+			doFilterInternal(request, httpResponse, filterChain);
+			// Then
+			assertEquals(1, filter.availableRequests("refresh-token", "test@example.com"));
+			verify(request, never()).getRemoteAddr();
+		}
+
+		@Test
+		@DisplayName("❌ Negative Case: Invalid refresh token is limited by IP")
+		void givenInvalidRefreshCookie_whenDoFilter_thenCountedByIp() throws ServletException, IOException {
+			// Given
+			when(request.getRequestURI()).thenReturn(AuthController.refreshTokenUrl);
+			when(request.getRemoteAddr()).thenReturn("127.0.0.1");
+			when(request.getCookies()).thenReturn(new Cookie[]{new Cookie("refreshToken", "invalid")});
+			when(jwtUtils.parse("invalid")).thenThrow(new JwtException("invalid"));
+			// When
+			doFilterInternal(request, httpResponse, filterChain);
+			// Then
+			assertEquals(1, filter.availableRequests("refresh-token", "127.0.0.1"));
+		}
+
+		@Test
+		@DisplayName("❌ Negative Case: Unknown policy name")
+		void givenUnknownPolicy_whenAvailableRequests_thenThrow() {
+			assertThrows(IllegalArgumentException.class, () -> filter.availableRequests("unknown", "127.0.0.1"));
+		}
+	}
+}
@@ -0,0 +1,124 @@
+package com.CalisthenicList.CaliList.repositories;
+
+import com.CalisthenicList.CaliList.enums.EmailOutboxStatus;
+import com.CalisthenicList.CaliList.model.EmailOutbox;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+class EmailOutboxRepositoryTest {
+	@Autowired
+	private EmailOutboxRepository emailOutboxRepository;
+	private final Instant now = Instant.parse("2025-01-01T12:00:00Z");
+
+	private EmailOutbox save(String recipient, Instant nextAttemptAt, EmailOutboxStatus status) {
+		EmailOutbox email = new EmailOutbox(recipient, "Subject", "Body", now.minus(Duration.ofHours(1)));
+		email.setNextAttemptAt(nextAttemptAt);
+		email.setStatus(status);
+		return emailOutboxRepository.saveAndFlush(email);
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Only due pending rows are claimed, oldest first")
+	void givenMixedRows_whenClaimBatch_thenReturnDuePendingRowsInOrder() {
+		// Given
+		save("second@example.com", now.minusSeconds(10), EmailOutboxStatus.PENDING);
+		save("first@example.com", now.minusSeconds(20), EmailOutboxStatus.PENDING);
+		save("later@example.com", now.plusSeconds(60), EmailOutboxStatus.PENDING);
+		save("sent@example.com", now.minusSeconds(30), EmailOutboxStatus.SENT);
+		save("failed@example.com", now.minusSeconds(30), EmailOutboxStatus.FAILED);
+		// When
+		List<EmailOutbox> batch = emailOutboxRepository.claimBatch(now, 10);
+		// Then
+		assertEquals(List.of("first@example.com", "second@example.com"),
+				batch.stream().map(EmailOutbox::getRecipient).toList());
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: A SENDING row is claimed again only after its lease ran out")
+	void givenSendingRows_whenClaimBatch_thenOnlyExpiredLeaseClaimed() {
+		// Given
+		EmailOutbox expired = save("expired@example.com", now.minusSeconds(20), EmailOutboxStatus.SENDING);
+		expired.setLockedUntil(now.minusSeconds(1));
+		emailOutboxRepository.saveAndFlush(expired);
+		EmailOutbox leased = save("leased@example.com", now.minusSeconds(10), EmailOutboxStatus.SENDING);
+		leased.setLockedUntil(now.plusSeconds(60));
+		emailOutboxRepository.saveAndFlush(leased);
+		// When
+		List<EmailOutbox> batch = emailOutboxRepository.claimBatch(now, 10);
+		// Then
+		assertEquals(List.of("expired@example.com"), batch.stream().map(EmailOutbox::getRecipient).toList());
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Batch size limits the claim")
+	void givenMoreRowsThanLimit_whenClaimBatch_thenReturnLimit() {
+		// Given
+		for(int i = 0; i < 5; i++) {
+			save("user" + i + "@example.com", now.minusSeconds(i), EmailOutboxStatus.PENDING);
+		}
+		// When
+		List<EmailOutbox> batch = emailOutboxRepository.claimBatch(now, 3);
+		// Then
+		assertEquals(3, batch.size());
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Old sent rows are deleted, pending rows are kept")
+	void givenOldSentRow_whenDeleteSentBefore_thenOnlySentRowRemoved() {
+		// Given
+		EmailOutbox sent = save("sent@example.com", now, EmailOutboxStatus.SENT);
+		sent.setSentAt(now.minus(Duration.ofDays(8)));
+		emailOutboxRepository.saveAndFlush(sent);
+		save("pending@example.com", now, EmailOutboxStatus.PENDING);
+		// When
+		int deleted = emailOutboxRepository.deleteSentBefore(now.minus(Duration.ofDays(7)));
+		// Then
+		assertEquals(1, deleted);
+		assertEquals(1, emailOutboxRepository.count());
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Releasing a held row makes it due now")
+	void givenHeldRow_whenReleaseHeld_thenClaimable() {
+		// Given
+		EmailOutbox held = save("held@example.com", now.plusSeconds(60), EmailOutboxStatus.PENDING);
+		// When
+		int released = emailOutboxRepository.releaseHeld(held.getId(), now);
+		// Then
+		assertEquals(1, released);
+		assertEquals(List.of("held@example.com"),
+				emailOutboxRepository.claimBatch(now, 10).stream().map(EmailOutbox::getRecipient).toList());
+	}
+
+	@Test
+	@DisplayName("❌ Negative Case: A row whose hold already expired is neither released nor deleted")
+	void givenExpiredHold_whenReleaseOrDeleteHeld_thenUntouched() {
+		// Given
+		EmailOutbox due = save("due@example.com", now.minusSeconds(1), EmailOutboxStatus.PENDING);
+		// When / Then
+		assertEquals(0, emailOutboxRepository.releaseHeld(due.getId(), now));
+		assertEquals(0, emailOutboxRepository.deleteHeld(due.getId(), now));
+		assertEquals(1, emailOutboxRepository.count());
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: A held row is deleted when its domain check fails")
+	void givenHeldRow_whenDeleteHeld_thenRemoved() {
+		// Given
+		EmailOutbox held = save("held@example.com", now.plusSeconds(60), EmailOutboxStatus.PENDING);
+		// When
+		int deleted = emailOutboxRepository.deleteHeld(held.getId(), now);
+		// Then
+		assertEquals(1, deleted);
+		assertEquals(0, emailOutboxRepository.count());
+	}
+}
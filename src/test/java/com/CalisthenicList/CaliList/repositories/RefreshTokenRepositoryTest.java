@@ -3,6 +3,7 @@ package com.CalisthenicList.CaliList.repositories;
 import com.CalisthenicList.CaliList.configurations.JpaAuditingConfiguration;
 import com.CalisthenicList.CaliList.model.RefreshToken;
 import com.CalisthenicList.CaliList.model.User;
+import com.CalisthenicList.CaliList.utils.HashUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -11,7 +12,9 @@ import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.context.annotation.Import;
 
 import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -40,7 +43,7 @@ class RefreshTokenRepositoryTest {
 		return refreshTokenRepository.findByToken(token);
 	}
 
-	private Optional<RefreshToken> findByUserEmail(String email) {
+	private List<RefreshToken> findByUserEmail(String email) {
 		return refreshTokenRepository.findByUserEmail(email);
 	}
 
@@ -49,7 +52,7 @@ class RefreshTokenRepositoryTest {
 	void testFindByToken() {
 		Optional<RefreshToken> found = findByToken("sample-token-123");
 		assertTrue(found.isPresent());
-		assertEquals(refreshToken.getToken(), found.get().getToken());
+		assertArrayEquals(refreshToken.getTokenHash(), found.get().getTokenHash());
 		assertEquals(user.getEmail(), found.get().getUser().getEmail());
 	}
 
@@ -63,15 +66,25 @@ class RefreshTokenRepositoryTest {
 	@Test
 	@DisplayName("✅ Should find refresh token by user email")
 	void testFindByUserEmail() {
-		Optional<RefreshToken> found = findByUserEmail(user.getEmail());
+		List<RefreshToken> found = findByUserEmail(user.getEmail());
+		assertEquals(1, found.size());
+		assertArrayEquals(refreshToken.getTokenHash(), found.getFirst().getTokenHash());
+	}
+
+	@Test
+	@DisplayName("✅ Should store a 32-byte digest and find the token by it")
+	void testFindByTokenHash() {
+		byte[] digest = HashUtils.sha256("sample-token-123");
+		Optional<RefreshToken> found = refreshTokenRepository.findByTokenHash(digest);
+		assertEquals(32, refreshToken.getTokenHash().length);
 		assertTrue(found.isPresent());
-		assertEquals(refreshToken.getToken(), found.get().getToken());
+		assertEquals(refreshToken.getId(), found.get().getId());
 	}
 
 	@Test
 	@DisplayName("✅ Should return empty if user email not found")
 	void testFindByUserEmailNotFound() {
-		Optional<RefreshToken> found = findByUserEmail("unknown@example.com");
+		List<RefreshToken> found = findByUserEmail("unknown@example.com");
 		assertTrue(found.isEmpty());
 	}
 
@@ -86,4 +99,53 @@ class RefreshTokenRepositoryTest {
 		Optional<RefreshToken> deleted = findByToken("sample-token-123");
 		assertTrue(deleted.isEmpty());
 	}
-}
\ No newline at end of file
+
+	private RefreshToken saveSession(String token, Instant lastUsed) {
+		RefreshToken session = new RefreshToken();
+		session.setUser(user);
+		session.setToken(token);
+		session.setExpiryDate(Instant.now().plusSeconds(3600));
+		session.setLastUsed(lastUsed);
+		return refreshTokenRepository.saveAndFlush(session);
+	}
+
+	@Test
+	@DisplayName("✅ Should keep one session per device and list the most recently used first")
+	void testSessionsPerDevice() {
+		//Given
+		RefreshToken laptop = saveSession("laptop-token", Instant.now().minusSeconds(60));
+		RefreshToken phone = saveSession("phone-token", Instant.now().plusSeconds(60));
+		//When
+		List<RefreshToken> sessions = refreshTokenRepository.findByUserIdOrderByLastUsedDesc(user.getId());
+		//Then
+		assertEquals(List.of(phone.getId(), refreshToken.getId(), laptop.getId()),
+				sessions.stream().map(RefreshToken::getId).toList());
+	}
+
+	@Test
+	@DisplayName("✅ Should evict the least recently used sessions over the limit")
+	void testDeleteOldestSessions() {
+		//Given
+		saveSession("oldest-token", Instant.now().minusSeconds(120));
+		RefreshToken newest = saveSession("newest-token", Instant.now().plusSeconds(60));
+		//When
+		int deleted = refreshTokenRepository.deleteOldestSessions(user.getId(), 2);
+		//Then
+		assertEquals(1, deleted);
+		assertEquals(List.of(newest.getId(), refreshToken.getId()),
+				refreshTokenRepository.findByUserIdOrderByLastUsedDesc(user.getId()).stream().map(RefreshToken::getId).toList());
+		assertTrue(findByToken("oldest-token").isEmpty());
+	}
+
+	@Test
+	@DisplayName("❌ Should not revoke a session of another user")
+	void testDeleteSessionOfAnotherUser() {
+		//When
+		int foreign = refreshTokenRepository.deleteSession(refreshToken.getId(), UUID.randomUUID());
+		int own = refreshTokenRepository.deleteSession(refreshToken.getId(), user.getId());
+		//Then
+		assertEquals(0, foreign);
+		assertEquals(1, own);
+		assertTrue(findByToken("sample-token-123").isEmpty());
+	}
+}
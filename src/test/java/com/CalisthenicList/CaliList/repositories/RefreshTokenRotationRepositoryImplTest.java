@@ -0,0 +1,63 @@
+package com.CalisthenicList.CaliList.repositories;
+
+import com.CalisthenicList.CaliList.enums.Roles;
+import com.CalisthenicList.CaliList.model.RefreshTokenRotation;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+//INFO - UPDATE ... FROM ... RETURNING is PostgreSQL syntax that H2 does not parse, so JDBC is mocked here
+@ExtendWith(MockitoExtension.class)
+class RefreshTokenRotationRepositoryImplTest {
+	@Mock
+	private JdbcTemplate jdbcTemplate;
+	@InjectMocks
+	private RefreshTokenRotationRepositoryImpl repository;
+	private final byte[] oldHash = new byte[32];
+	private final byte[] newHash = new byte[32];
+	private final Instant now = Instant.parse("2025-01-01T12:00:00Z");
+	private final Instant expiry = now.plusSeconds(3600);
+	private final UUID familyId = UUID.randomUUID();
+
+	private void updateReturns(List<RefreshTokenRotation> rows) {
+		when(jdbcTemplate.query(eq(RefreshTokenRotationRepositoryImpl.ROTATE_SQL), eq(RefreshTokenRotationRepositoryImpl.ROTATION_MAPPER),
+				eq(Timestamp.from(now)), eq(newHash), eq(familyId), eq(Timestamp.from(expiry)), eq(Timestamp.from(now)), eq(oldHash), eq(Timestamp.from(now)), eq("test@example.com")))
+				.thenReturn(rows);
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Rotated row returns the user columns")
+	void givenCurrentToken_whenRotate_thenReturnUser() {
+		// Given
+		RefreshTokenRotation rotation = new RefreshTokenRotation(UUID.randomUUID(), "TestUser", "test@example.com",
+				Roles.ROLE_USER, true, null, null, null);
+		updateReturns(List.of(rotation));
+		// When
+		Optional<RefreshTokenRotation> result = repository.rotate(oldHash, newHash, familyId, expiry, now, "test@example.com");
+		// Then
+		assertEquals(Optional.of(rotation), result);
+	}
+
+	@Test
+	@DisplayName("❌ Negative Case: No row matched means nothing was rotated")
+	void givenStaleToken_whenRotate_thenEmpty() {
+		// Given
+		updateReturns(List.of());
+		// When / Then
+		assertTrue(repository.rotate(oldHash, newHash, familyId, expiry, now, "test@example.com").isEmpty());
+	}
+}
@@ -1,9 +1,11 @@
 package com.CalisthenicList.CaliList.service;
 
 import com.CalisthenicList.CaliList.constants.Messages;
+import com.CalisthenicList.CaliList.enums.DnsTimeoutPolicy;
 import com.CalisthenicList.CaliList.exceptions.UserRegistrationException;
 import com.CalisthenicList.CaliList.model.*;
 import com.CalisthenicList.CaliList.repositories.UserRepository;
+import com.CalisthenicList.CaliList.service.tokens.AccessTokenRevocationService;
 import com.CalisthenicList.CaliList.service.tokens.AccessTokenService;
 import com.CalisthenicList.CaliList.service.tokens.RefreshTokenService;
 import com.CalisthenicList.CaliList.utils.JwtUtils;
@@ -13,10 +15,13 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseCookie;
@@ -25,9 +30,14 @@ import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -47,21 +57,35 @@ class AuthServiceTest {
 	@Mock
 	private AccessTokenService accessTokenService;
 	@Mock
+	private AccessTokenRevocationService accessTokenRevocationService;
+	@Mock
+	private UserDetailsCache userDetailsCache;
+	@Mock
+	private PasswordUpgradeService passwordUpgradeService;
+	@Mock
 	private JwtUtils jwtUtils;
+	@Spy
+	private TransactionTemplate transactionTemplate = new TransactionTemplate(Mockito.mock(PlatformTransactionManager.class));
 	@InjectMocks
 	private AuthService authService;
 	private MockHttpServletResponse mockResponse;
 
-	private boolean dnsEmailLookup(String email) {
-		return emailService.dnsEmailLookup(email);
+	private CompletableFuture<Boolean> dnsEmailLookup(String email) {
+		return emailService.dnsEmailLookupAsync(email);
+	}
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(authService, "dnsTimeoutMillis", 500L);
+		ReflectionTestUtils.setField(authService, "dnsTimeoutPolicy", DnsTimeoutPolicy.ACCEPT_AND_RECHECK);
 	}
 
 	private Optional<User> findByEmail(String email) {
 		return userRepository.findByEmail(email);
 	}
 
-	private String generateAccessToken(String email) {
-		return accessTokenService.generateAccessToken(email);
+	private String generateAccessToken(User user) {
+		return accessTokenService.generateAccessToken(user);
 	}
 
 	@Nested
@@ -74,12 +98,8 @@ class AuthServiceTest {
 			return authService.registerUser(userRegistrationDTO, mockResponse);
 		}
 
-		private boolean existsByEmail(String email) {
-			return userRepository.existsByEmail(email);
-		}
-
-		private boolean existsByUsername(String username) {
-			return userRepository.existsByUsername(username);
+		private List<UserIdentity> findIdentities() {
+			return userRepository.findIdentitiesByEmailOrUsername(anyString(), anyString());
 		}
 
 		@BeforeEach
@@ -96,11 +116,11 @@ class AuthServiceTest {
 			// Given
 			String fakeRefreshToken = "refresh-token-123";
 			String fakeAccessToken = "access-token-123";
-			Mockito.when(dnsEmailLookup(anyString())).thenReturn(true);
+			Mockito.when(dnsEmailLookup(anyString())).thenReturn(CompletableFuture.completedFuture(true));
 			Mockito.when(passwordEncoder.encode(anyString())).thenReturn("encodedPassword");
 			Mockito.when(refreshTokenService.createCookieWithRefreshToken(anyString()))
 					.thenReturn(ResponseCookie.from("refreshToken", fakeRefreshToken).build());
-			Mockito.when(generateAccessToken(anyString())).thenReturn(fakeAccessToken);
+			Mockito.when(generateAccessToken(any(User.class))).thenReturn(fakeAccessToken);
 			// When
 			ResponseEntity<ApiResponse<Object>> response = registerUser(userRegistrationDTO, mockResponse);
 			// Then
@@ -114,24 +134,116 @@ class AuthServiceTest {
 			String setCookieHeader = mockResponse.getHeader(HttpHeaders.SET_COOKIE);
 			assertNotNull(setCookieHeader, "Refresh token cookie should be set");
 			assertTrue(setCookieHeader.contains("refreshToken=" + fakeRefreshToken));
+			//Verification email is queued in the registration transaction
+			Mockito.verify(transactionTemplate).execute(any());
+			Mockito.verify(emailService).postEmailVerificationToUser("test@intera.pl");
 		}
 
 		@Test
 		@DisplayName("❌ Negative Case: Invalid email dns")
 		void givenInvalidEmailDns_whenRegister_thenReturnEmailInvalidError() {
 			// Given
-			Mockito.when(dnsEmailLookup(anyString())).thenReturn(false);
+			Mockito.when(dnsEmailLookup(anyString())).thenReturn(CompletableFuture.completedFuture(false));
 			// When + Then
 			UserRegistrationException ex = assertThrows(UserRegistrationException.class,
 					() -> registerUser(userRegistrationDTO, mockResponse));
 			assertEquals(Messages.EMAIL_INVALID_ERROR, ex.getErrors().get("email"));
 		}
 
+		@Test
+		@DisplayName("❌ Negative Case: DNS lookup missing the deadline is rejected under REJECT policy")
+		void givenSlowDnsAndRejectPolicy_whenRegister_thenReturnEmailInvalidError() {
+			// Given
+			ReflectionTestUtils.setField(authService, "dnsTimeoutMillis", 10L);
+			ReflectionTestUtils.setField(authService, "dnsTimeoutPolicy", DnsTimeoutPolicy.REJECT);
+			Mockito.when(dnsEmailLookup(anyString())).thenReturn(new CompletableFuture<>());
+			// When + Then
+			UserRegistrationException ex = assertThrows(UserRegistrationException.class,
+					() -> registerUser(userRegistrationDTO, mockResponse));
+			assertEquals(Messages.EMAIL_INVALID_ERROR, ex.getErrors().get("email"));
+			Mockito.verifyNoInteractions(passwordEncoder);
+		}
+
+		@Test
+		@DisplayName("✅ Happy Case: DNS lookup missing the deadline is accepted under ACCEPT_AND_RECHECK policy")
+		void givenSlowDnsAndAcceptPolicy_whenRegister_thenReturnUserRegisteredSuccess() {
+			// Given
+			ReflectionTestUtils.setField(authService, "dnsTimeoutMillis", 10L);
+			CompletableFuture<Boolean> pendingLookup = new CompletableFuture<>();
+			Mockito.when(dnsEmailLookup(anyString())).thenReturn(pendingLookup);
+			Mockito.when(passwordEncoder.encode(anyString())).thenReturn("encodedPassword");
+			Mockito.when(refreshTokenService.createCookieWithRefreshToken(anyString()))
+					.thenReturn(ResponseCookie.from("refreshToken", "refresh-token-123").build());
+			// When
+			ResponseEntity<ApiResponse<Object>> response = registerUser(userRegistrationDTO, mockResponse);
+			// Then
+			assertTrue(response.getStatusCode().isSameCodeAs(HttpStatus.CREATED), "Registration should return CREATED");
+			Mockito.verify(userRepository).saveAndFlush(any(User.class));
+			//The verification email waits for the late result
+			Mockito.verify(emailService).postEmailVerificationAfterDomainCheck("test@intera.pl", pendingLookup);
+			Mockito.verify(emailService, Mockito.never()).postEmailVerificationToUser(anyString());
+		}
+
+		@Test
+		@DisplayName("✅ Happy Case: A late domain check has its held verification email written before the registration commits")
+		void givenSlowDnsAndAcceptPolicy_whenRegister_thenHeldEmailWrittenInRegistrationTransaction() {
+			// Given
+			ReflectionTestUtils.setField(authService, "dnsTimeoutMillis", 10L);
+			CompletableFuture<Boolean> pendingLookup = new CompletableFuture<>();
+			Mockito.when(dnsEmailLookup(anyString())).thenReturn(pendingLookup);
+			Mockito.when(passwordEncoder.encode(anyString())).thenReturn("encodedPassword");
+			Mockito.when(refreshTokenService.createCookieWithRefreshToken(anyString()))
+					.thenReturn(ResponseCookie.from("refreshToken", "refresh-token-123").build());
+			PlatformTransactionManager transactionManager = transactionTemplate.getTransactionManager();
+			// When
+			registerUser(userRegistrationDTO, mockResponse);
+			// Then
+			InOrder inOrder = Mockito.inOrder(userRepository, emailService, refreshTokenService, transactionManager);
+			inOrder.verify(userRepository).saveAndFlush(any(User.class));
+			inOrder.verify(emailService).postEmailVerificationAfterDomainCheck("test@intera.pl", pendingLookup);
+			inOrder.verify(refreshTokenService).createCookieWithRefreshToken("test@intera.pl");
+			inOrder.verify(transactionManager).commit(any());
+			assertFalse(pendingLookup.isDone(), "Registration must not wait for the late domain check");
+		}
+
+		@Test
+		@DisplayName("✅ Happy Case: DNS lookup missing the deadline is accepted without re-check under ACCEPT policy")
+		void givenSlowDnsAndPlainAcceptPolicy_whenRegister_thenVerificationEmailQueued() {
+			// Given
+			ReflectionTestUtils.setField(authService, "dnsTimeoutMillis", 10L);
+			ReflectionTestUtils.setField(authService, "dnsTimeoutPolicy", DnsTimeoutPolicy.ACCEPT);
+			Mockito.when(dnsEmailLookup(anyString())).thenReturn(new CompletableFuture<>());
+			Mockito.when(passwordEncoder.encode(anyString())).thenReturn("encodedPassword");
+			Mockito.when(refreshTokenService.createCookieWithRefreshToken(anyString()))
+					.thenReturn(ResponseCookie.from("refreshToken", "refresh-token-123").build());
+			// When
+			registerUser(userRegistrationDTO, mockResponse);
+			// Then
+			Mockito.verify(emailService).postEmailVerificationToUser("test@intera.pl");
+			Mockito.verify(emailService, Mockito.never()).postEmailVerificationAfterDomainCheck(anyString(), any());
+		}
+
+		@Test
+		@DisplayName("✅ Happy Case: DNS lookup runs after the uniqueness query")
+		void givenValidUserDTO_whenRegister_thenDnsLookupRunsAfterUniquenessQuery() {
+			// Given
+			Mockito.when(dnsEmailLookup(anyString())).thenReturn(CompletableFuture.completedFuture(true));
+			Mockito.when(passwordEncoder.encode(anyString())).thenReturn("encodedPassword");
+			Mockito.when(refreshTokenService.createCookieWithRefreshToken(anyString()))
+					.thenReturn(ResponseCookie.from("refreshToken", "refresh-token-123").build());
+			// When
+			registerUser(userRegistrationDTO, mockResponse);
+			// Then
+			InOrder inOrder = Mockito.inOrder(emailService, userRepository);
+			inOrder.verify(userRepository).findIdentitiesByEmailOrUsername("test@intera.pl", "TestUser");
+			inOrder.verify(emailService).dnsEmailLookupAsync("test@intera.pl");
+		}
+
 		@Test
 		@DisplayName("❌ Negative Case: Already registered email")
 		void givenExistingEmail_whenRegister_thenReturnEmailAlreadyExistError() {
 			// Given
-			Mockito.when(existsByEmail(anyString())).thenReturn(true);
+			Mockito.when(findIdentities()).thenReturn(List.of(new UserIdentity("OtherUser", "test@intera.pl")));
 			// When + Then
 			UserRegistrationException ex = assertThrows(UserRegistrationException.class,
 					() -> registerUser(userRegistrationDTO, mockResponse));
@@ -139,14 +251,15 @@ class AuthServiceTest {
 			assertNotNull(ex.getErrors(), "Errors map should not be null");
 			assertEquals(Messages.EMAIL_ALREADY_EXISTS_ERROR, ex.getErrors().get("email"),
 					"Wrong error message for already registered email.");
+			Mockito.verifyNoInteractions(passwordEncoder);
+			Mockito.verify(emailService, Mockito.never()).dnsEmailLookupAsync(anyString());
 		}
 
 		@Test
 		@DisplayName("❌ Negative Case: Already existing username")
 		void givenExistingUsername_whenRegister_thenReturnUsernameAlreadyExistError() {
 			// Given
-			Mockito.when(dnsEmailLookup(anyString())).thenReturn(true);
-			Mockito.when(existsByUsername(anyString())).thenReturn(true);
+			Mockito.when(findIdentities()).thenReturn(List.of(new UserIdentity("TestUser", "other@intera.pl")));
 			// When + Then
 			UserRegistrationException ex = assertThrows(UserRegistrationException.class,
 					() -> registerUser(userRegistrationDTO, mockResponse));
@@ -161,7 +274,6 @@ class AuthServiceTest {
 		@DisplayName("❌ Negative Case: Wrong confirm password")
 		void givenWrongConfirmPassword_whenRegister_thenReturnInvalidConfirmPasswordError() {
 			// Given
-			Mockito.when(dnsEmailLookup(anyString())).thenReturn(true);
 			userRegistrationDTO.setConfirmPassword("test");
 			// When + Then
 			UserRegistrationException ex = assertThrows(UserRegistrationException.class,
@@ -177,7 +289,7 @@ class AuthServiceTest {
 		@DisplayName("❌ Negative Case: Invalid password encoder")
 		void givenWrongPasswordEncoder_whenRegister_thenReturnServiceError() {
 			// Given
-			Mockito.when(dnsEmailLookup(anyString())).thenReturn(true);
+			Mockito.when(dnsEmailLookup(anyString())).thenReturn(CompletableFuture.completedFuture(true));
 			Mockito.when(passwordEncoder.encode(password)).thenReturn(password);
 			// When + Then
 			RuntimeException ex = assertThrows(RuntimeException.class,
@@ -186,12 +298,47 @@ class AuthServiceTest {
 			assertEquals(Messages.PASSWORD_ENCODING_FAILED, ex.getMessage(), "Wrong error message for invalid password encoder.");
 		}
 
+		@Test
+		@DisplayName("❌ Negative Case: Duplicate inserted concurrently is caught by the unique constraint")
+		void givenConcurrentDuplicate_whenSave_thenReturnEmailAlreadyExistError() {
+			// Given
+			Mockito.when(findIdentities())
+					.thenReturn(List.of())
+					.thenReturn(List.of(new UserIdentity("OtherUser", "test@intera.pl")));
+			Mockito.when(dnsEmailLookup(anyString())).thenReturn(CompletableFuture.completedFuture(true));
+			Mockito.when(passwordEncoder.encode(anyString())).thenReturn("encodedPassword");
+			Mockito.when(userRepository.saveAndFlush(any(User.class)))
+					.thenThrow(new DataIntegrityViolationException("duplicate key"));
+			// When + Then
+			UserRegistrationException ex = assertThrows(UserRegistrationException.class,
+					() -> registerUser(userRegistrationDTO, mockResponse));
+			assertEquals(Map.of("email", Messages.EMAIL_ALREADY_EXISTS_ERROR), ex.getErrors());
+			Mockito.verifyNoInteractions(refreshTokenService);
+			Mockito.verify(emailService, Mockito.never()).postEmailVerificationToUser(anyString());
+		}
+
+		@Test
+		@DisplayName("❌ Negative Case: Constraint violation the lookup cannot name returns a generic conflict")
+		void givenUnnamedViolation_whenSave_thenReturnGenericConflictError() {
+			// Given
+			Mockito.when(findIdentities()).thenReturn(List.of());
+			Mockito.when(dnsEmailLookup(anyString())).thenReturn(CompletableFuture.completedFuture(true));
+			Mockito.when(passwordEncoder.encode(anyString())).thenReturn("encodedPassword");
+			Mockito.when(userRepository.saveAndFlush(any(User.class)))
+					.thenThrow(new DataIntegrityViolationException("duplicate key"));
+			// When + Then
+			UserRegistrationException ex = assertThrows(UserRegistrationException.class,
+					() -> registerUser(userRegistrationDTO, mockResponse));
+			assertEquals(Map.of("user", Messages.USER_ALREADY_EXISTS_ERROR), ex.getErrors());
+		}
+
 		@Test
 		@DisplayName("❌ Negative Case: Multiple errors")
 		void givenAllWrong_whenRegister_thenReturnMultipleErrors() {
 			// Given
-			Mockito.when(existsByEmail(anyString())).thenReturn(true);
-			Mockito.when(existsByUsername(anyString())).thenReturn(true);
+			Mockito.when(findIdentities()).thenReturn(List.of(
+					new UserIdentity("TestUser", "other@intera.pl"),
+					new UserIdentity("OtherUser", "test@intera.pl")));
 			userRegistrationDTO.setConfirmPassword("test");
 			// When + Then
 			UserRegistrationException ex = assertThrows(UserRegistrationException.class,
@@ -234,7 +381,7 @@ class AuthServiceTest {
 			Mockito.when(passwordEncoder.matches(anyString(), anyString())).thenReturn(true);
 			Mockito.when(refreshTokenService.createCookieWithRefreshToken(anyString(), any(User.class))).thenReturn(
 					ResponseCookie.from("refreshToken", "dummyToken").httpOnly(true).build());
-			Mockito.when(generateAccessToken(anyString())).thenReturn("dummyAccessToken");
+			Mockito.when(generateAccessToken(any(User.class))).thenReturn("dummyAccessToken");
 			// When
 			ResponseEntity<ApiResponse<Object>> response = loginUser(userLoginDTO, mockResponse);
 			// Then
@@ -243,6 +390,23 @@ class AuthServiceTest {
 			assertEquals("dummyAccessToken", response.getBody().getAccessToken(), "Access token mismatch");
 		}
 
+		@Test
+		@DisplayName("✅ Happy Case: Hash with outdated parameters is upgraded after login")
+		void givenOutdatedHash_whenLogin_thenUpgradePassword() {
+			// Given
+			User user = new User("TestUser", "test@intera.pl", "oldHash");
+			Mockito.when(findByEmail(anyString())).thenReturn(Optional.of(user));
+			Mockito.when(passwordEncoder.matches(password, "oldHash")).thenReturn(true);
+			Mockito.when(passwordEncoder.upgradeEncoding("oldHash")).thenReturn(true);
+			Mockito.when(refreshTokenService.createCookieWithRefreshToken(anyString(), any(User.class))).thenReturn(
+					ResponseCookie.from("refreshToken", "dummyToken").httpOnly(true).build());
+			Mockito.when(generateAccessToken(any(User.class))).thenReturn("dummyAccessToken");
+			// When
+			loginUser(userLoginDTO, mockResponse);
+			// Then
+			Mockito.verify(passwordUpgradeService).upgradePassword(user.getId(), user.getEmail(), password, "oldHash");
+		}
+
 		@Test
 		@DisplayName("❌ Negative Case: User not found")
 		void givenNonExistingEmail_whenLogin_thenThrowUsernameNotFoundException() {
@@ -265,6 +429,7 @@ class AuthServiceTest {
 			BadCredentialsException ex = assertThrows(BadCredentialsException.class,
 					() -> loginUser(userLoginDTO, mockResponse));
 			assertEquals(Messages.INVALID_LOGIN_ERROR, ex.getMessage());
+			Mockito.verifyNoInteractions(passwordUpgradeService);
 		}
 	}
 
@@ -292,7 +457,7 @@ class AuthServiceTest {
 			user.setEmail(email);
 			user.setPassword("OLD_PASSWORD");
 			String jwt = "jwt-token";
-			Mockito.when(jwtUtils.extractSubject(jwt)).thenReturn(email);
+			Mockito.when(jwtUtils.parse(jwt)).thenReturn(new JwtToken(email, null, null, null));
 			Mockito.when(userRepository.findByEmail(email)).thenReturn(Optional.of(user));
 			Mockito.when(passwordEncoder.encode(rawPassword)).thenReturn(encodedPassword);
 			// When
@@ -303,6 +468,8 @@ class AuthServiceTest {
 			assertTrue(response.getBody().isSuccess());
 			assertEquals("Password recovered successfully.", response.getBody().getMessage());
 			Mockito.verify(userRepository).save(user);
+			Mockito.verify(accessTokenRevocationService).revokeAllForUser(user.getId());
+			Mockito.verify(userDetailsCache).evict(email);
 			assertEquals(encodedPassword, user.getPassword());
 		}
 
@@ -313,7 +480,7 @@ class AuthServiceTest {
 			passwordRecoveryDTO.setPassword(rawPassword);
 			passwordRecoveryDTO.setConfirmPassword(otherPassword);
 			String jwt = "jwt-token";
-			Mockito.when(jwtUtils.extractSubject(jwt)).thenReturn(email);
+			Mockito.when(jwtUtils.parse(jwt)).thenReturn(new JwtToken(email, null, null, null));
 			// Then + When
 			assertThrows(BadCredentialsException.class, () -> authService.passwordRecovery(jwt, passwordRecoveryDTO));
 		}
@@ -325,7 +492,7 @@ class AuthServiceTest {
 			passwordRecoveryDTO.setPassword(rawPassword);
 			passwordRecoveryDTO.setConfirmPassword(rawPassword);
 			String jwt = "jwt-token";
-			Mockito.when(jwtUtils.extractSubject(jwt)).thenReturn(email);
+			Mockito.when(jwtUtils.parse(jwt)).thenReturn(new JwtToken(email, null, null, null));
 			Mockito.when(userRepository.findByEmail(email)).thenReturn(Optional.empty());
 			// When + Then
 			assertThrows(UsernameNotFoundException.class, () -> authService.passwordRecovery(jwt, passwordRecoveryDTO));
@@ -340,7 +507,7 @@ class AuthServiceTest {
 			User user = new User();
 			user.setEmail(email);
 			String jwt = "jwt";
-			Mockito.when(jwtUtils.extractSubject(jwt)).thenReturn(email);
+			Mockito.when(jwtUtils.parse(jwt)).thenReturn(new JwtToken(email, null, null, null));
 			Mockito.when(userRepository.findByEmail(email)).thenReturn(Optional.of(user));
 			Mockito.when(passwordEncoder.encode(rawPassword)).thenReturn(rawPassword);
 			// When + Then
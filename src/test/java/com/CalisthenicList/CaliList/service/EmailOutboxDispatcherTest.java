@@ -0,0 +1,222 @@
+package com.CalisthenicList.CaliList.service;
+
+import com.CalisthenicList.CaliList.enums.EmailOutboxStatus;
+import com.CalisthenicList.CaliList.model.EmailOutbox;
+import com.CalisthenicList.CaliList.repositories.EmailOutboxRepository;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.GreenMailUtil;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+//INFO - mail goes to an in-process GreenMail SMTP server, the outbox table is mocked
+@ExtendWith(MockitoExtension.class)
+class EmailOutboxDispatcherTest {
+	@RegisterExtension
+	static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+	@Mock
+	private EmailOutboxRepository emailOutboxRepository;
+	@Mock
+	private PlatformTransactionManager transactionManager;
+	private JavaMailSenderImpl javaMailSender;
+	private EmailOutboxDispatcher dispatcher;
+	private final Instant now = Instant.parse("2025-01-01T12:00:00Z");
+
+	@BeforeEach
+	void setUp() {
+		javaMailSender = new JavaMailSenderImpl();
+		javaMailSender.setHost("localhost");
+		javaMailSender.setPort(ServerSetupTest.SMTP.getPort());
+		SmtpTransportPool smtpTransportPool = new SmtpTransportPool(javaMailSender);
+		ReflectionTestUtils.setField(smtpTransportPool, "maxConnections", 1);
+		ReflectionTestUtils.setField(smtpTransportPool, "maxMessagesPerConnection", 100);
+		ReflectionTestUtils.setField(smtpTransportPool, "validateAfterIdleMillis", 5000L);
+		ReflectionTestUtils.setField(smtpTransportPool, "borrowTimeoutMillis", 1000L);
+		smtpTransportPool.init();
+		dispatcher = new EmailOutboxDispatcher(emailOutboxRepository, javaMailSender, smtpTransportPool,
+				new TransactionTemplate(transactionManager));
+		ReflectionTestUtils.setField(dispatcher, "batchSize", 2);
+		ReflectionTestUtils.setField(dispatcher, "maxAttempts", 3);
+		ReflectionTestUtils.setField(dispatcher, "initialBackoffMillis", 1000L);
+		ReflectionTestUtils.setField(dispatcher, "maxBackoffMillis", 5000L);
+		ReflectionTestUtils.setField(dispatcher, "leaseMillis", 60_000L);
+	}
+
+	private EmailOutbox email(String recipient) {
+		return new EmailOutbox(recipient, "Email verification", "Click below to verify your email", now);
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Claimed batch is delivered and marked as sent")
+	void givenPendingEmails_whenDispatchBatch_thenDeliveredAndMarkedSent() throws Exception {
+		// Given
+		List<EmailOutbox> batch = List.of(email("first@example.com"), email("second@example.com"));
+		when(emailOutboxRepository.claimBatch(now, 2)).thenReturn(batch);
+		// When
+		int claimed = dispatcher.dispatchBatch(now);
+		// Then
+		assertEquals(2, claimed);
+		MimeMessage[] received = greenMail.getReceivedMessages();
+		assertEquals(2, received.length);
+		assertEquals("Email verification", received[0].getSubject());
+		assertTrue(batch.stream().allMatch(email -> email.getStatus() == EmailOutboxStatus.SENT));
+		assertEquals(now, batch.getFirst().getSentAt());
+		assertTrue(batch.stream().allMatch(email -> email.getLockedUntil() == null));
+		verify(emailOutboxRepository, times(2)).saveAll(batch);
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Rows are leased in one transaction, sent with none open and recorded in another")
+	void givenPendingEmail_whenDispatchBatch_thenSmtpRunsBetweenTwoTransactions() {
+		// Given
+		EmailOutbox email = email("user@example.com");
+		when(emailOutboxRepository.claimBatch(now, 2)).thenReturn(List.of(email));
+		List<Integer> receivedAtCommit = new ArrayList<>();
+		List<EmailOutboxStatus> statusAtCommit = new ArrayList<>();
+		doAnswer(invocation -> {
+			receivedAtCommit.add(greenMail.getReceivedMessages().length);
+			statusAtCommit.add(email.getStatus());
+			return null;
+		}).when(transactionManager).commit(any());
+		// When
+		dispatcher.dispatchBatch(now);
+		// Then
+		assertEquals(List.of(0, 1), receivedAtCommit);
+		assertEquals(List.of(EmailOutboxStatus.SENDING, EmailOutboxStatus.SENT), statusAtCommit);
+		verify(transactionManager, times(2)).getTransaction(any());
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: A claimed row is leased until the lease runs out")
+	void givenPendingEmail_whenClaimed_thenLeasedAsSending() {
+		// Given
+		javaMailSender.setPort(1);
+		EmailOutbox email = email("user@example.com");
+		when(emailOutboxRepository.claimBatch(now, 2)).thenReturn(List.of(email));
+		List<Instant> lockedUntilAtCommit = new ArrayList<>();
+		doAnswer(invocation -> {
+			lockedUntilAtCommit.add(email.getLockedUntil());
+			return null;
+		}).when(transactionManager).commit(any());
+		// When
+		dispatcher.dispatchBatch(now);
+		// Then
+		assertEquals(now.plusMillis(60_000), lockedUntilAtCommit.getFirst());
+		assertNull(email.getLockedUntil());
+		assertEquals(EmailOutboxStatus.PENDING, email.getStatus());
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Email with HTML body is delivered as multipart alternative")
+	void givenHtmlBody_whenDispatchBatch_thenMultipartDelivered() throws Exception {
+		// Given
+		EmailOutbox email = new EmailOutbox("user@example.com", "Email verification", "text body", "<p>html body</p>", now);
+		when(emailOutboxRepository.claimBatch(now, 2)).thenReturn(List.of(email));
+		// When
+		dispatcher.dispatchBatch(now);
+		// Then
+		MimeMessage received = greenMail.getReceivedMessages()[0];
+		assertTrue(received.getContentType().startsWith("multipart/mixed"));
+		String raw = GreenMailUtil.getWholeMessage(received);
+		assertTrue(raw.contains("multipart/alternative"));
+		assertTrue(raw.contains("text body"));
+		assertTrue(raw.contains("<p>html body</p>"));
+		assertEquals("CaliList <no-reply@CaliList.com>", received.getFrom()[0].toString());
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Dispatch keeps claiming while batches come back full")
+	void givenFullBatches_whenDispatch_thenClaimsUntilBatchIsShort() {
+		// Given
+		when(emailOutboxRepository.claimBatch(any(Instant.class), eq(2)))
+				.thenReturn(List.of(email("a@example.com"), email("b@example.com")))
+				.thenReturn(List.of(email("c@example.com")));
+		// When
+		dispatcher.dispatch();
+		// Then
+		verify(emailOutboxRepository, times(2)).claimBatch(any(Instant.class), eq(2));
+		assertEquals(3, greenMail.getReceivedMessages().length);
+	}
+
+	@Test
+	@DisplayName("❌ Negative Case: SMTP outage schedules a retry with exponential backoff")
+	void givenSmtpDown_whenDispatchBatch_thenRetryScheduledWithBackoff() {
+		// Given
+		javaMailSender.setPort(1);
+		EmailOutbox email = email("user@example.com");
+		email.setAttempts(1);
+		when(emailOutboxRepository.claimBatch(now, 2)).thenReturn(List.of(email));
+		// When
+		dispatcher.dispatchBatch(now);
+		// Then
+		assertEquals(EmailOutboxStatus.PENDING, email.getStatus());
+		assertEquals(2, email.getAttempts());
+		assertEquals(now.plusMillis(2000), email.getNextAttemptAt());
+		assertNotNull(email.getLastError());
+	}
+
+	@Test
+	@DisplayName("❌ Negative Case: Email is marked failed after the last attempt")
+	void givenLastAttemptFails_whenDispatchBatch_thenMarkedFailed() {
+		// Given
+		javaMailSender.setPort(1);
+		EmailOutbox email = email("user@example.com");
+		email.setAttempts(2);
+		when(emailOutboxRepository.claimBatch(now, 2)).thenReturn(List.of(email));
+		// When
+		dispatcher.dispatchBatch(now);
+		// Then
+		assertEquals(EmailOutboxStatus.FAILED, email.getStatus());
+		assertEquals(3, email.getAttempts());
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Backoff doubles per attempt and stops at the maximum")
+	void givenAttempts_whenBackoffMillis_thenDoublesUpToMaximum() {
+		assertEquals(1000, dispatcher.backoffMillis(1));
+		assertEquals(2000, dispatcher.backoffMillis(2));
+		assertEquals(4000, dispatcher.backoffMillis(3));
+		assertEquals(5000, dispatcher.backoffMillis(4));
+		assertEquals(5000, dispatcher.backoffMillis(40));
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Cleanup deletes sent emails while holding the lock")
+	void givenLockAcquired_whenDeleteSent_thenSentEmailsDeleted() {
+		// Given
+		when(emailOutboxRepository.tryTransactionLock(EmailOutboxDispatcher.CLEANUP_LOCK_KEY)).thenReturn(true);
+		// When
+		dispatcher.deleteSent();
+		// Then
+		verify(emailOutboxRepository).deleteSentBefore(any(Instant.class));
+	}
+
+	@Test
+	@DisplayName("❌ Negative Case: Cleanup is skipped when another instance holds the lock")
+	void givenLockHeldElsewhere_whenDeleteSent_thenNothingDeleted() {
+		// Given
+		when(emailOutboxRepository.tryTransactionLock(EmailOutboxDispatcher.CLEANUP_LOCK_KEY)).thenReturn(false);
+		// When
+		dispatcher.deleteSent();
+		// Then
+		verify(emailOutboxRepository, never()).deleteSentBefore(any(Instant.class));
+	}
+}
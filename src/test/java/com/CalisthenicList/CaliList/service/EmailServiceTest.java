@@ -1,31 +1,39 @@
 package com.CalisthenicList.CaliList.service;
 
 import com.CalisthenicList.CaliList.constants.Messages;
+import com.CalisthenicList.CaliList.enums.EmailOutboxStatus;
+import com.CalisthenicList.CaliList.enums.EmailTemplateName;
 import com.CalisthenicList.CaliList.model.ApiResponse;
+import com.CalisthenicList.CaliList.model.EmailDTO;
+import com.CalisthenicList.CaliList.model.EmailOutbox;
+import com.CalisthenicList.CaliList.model.JwtToken;
 import com.CalisthenicList.CaliList.model.User;
+import com.CalisthenicList.CaliList.repositories.EmailOutboxRepository;
 import com.CalisthenicList.CaliList.repositories.UserRepository;
+import com.CalisthenicList.CaliList.service.EmailTemplateRenderer.RenderedEmail;
 import com.CalisthenicList.CaliList.service.tokens.AccessTokenService;
 import com.CalisthenicList.CaliList.utils.JwtUtils;
-import jakarta.mail.Session;
-import jakarta.mail.internet.InternetAddress;
-import jakarta.mail.internet.MimeMessage;
 import lombok.RequiredArgsConstructor;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.junit.jupiter.params.ParameterizedTest;
-import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
-import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -35,13 +43,21 @@ import static org.mockito.Mockito.*;
 class EmailServiceTest {
 
 	@Mock
-	private JavaMailSender javaMailSender;
+	private EmailOutboxRepository emailOutboxRepository;
+	@Mock
+	private ApplicationEventPublisher eventPublisher;
+	@Mock
+	private EmailTemplateRenderer emailTemplateRenderer;
 	@Mock
 	private UserRepository userRepository;
 	@Mock
 	private AccessTokenService accessTokenService;
 	@Mock
 	private JwtUtils jwtUtils;
+	@Mock
+	private UserDetailsCache userDetailsCache;
+	@Mock
+	private MxRecordCache mxRecordCache;
 	@InjectMocks
 	private EmailService emailService;
 
@@ -50,52 +66,137 @@ class EmailServiceTest {
 	}
 
 	@Test
-	@DisplayName("✅ Happy Case: Verification email is composed and sent correctly.")
-	void postEmailVerificationToUserTest() throws Exception {
+	@DisplayName("✅ Happy Case: Verification email is rendered and queued in the outbox.")
+	void postEmailVerificationToUserTest() {
 		// Given
 		String userEmail = "test@exmaple.com";
 		String token = "header.payload.signature";
-		MimeMessage mimeMessage = new MimeMessage(Session.getInstance(new Properties()));
+		String verifyUrl = emailService.VERIFICATION_BASE_URL + URLEncoder.encode(token, StandardCharsets.UTF_8);
 		Mockito.when(accessTokenService.generateAccessToken(anyString())).thenReturn(token);
-		when(javaMailSender.createMimeMessage()).thenReturn(mimeMessage);
-		EmailService spyService = spy(this.emailService);
+		when(emailTemplateRenderer.render(eq(EmailTemplateName.VERIFICATION), any(Locale.class), eq(Map.of("verifyUrl", verifyUrl))))
+				.thenReturn(new RenderedEmail("Email verification", "text " + verifyUrl, "<p>html</p>"));
+		when(emailOutboxRepository.save(any(EmailOutbox.class))).thenAnswer(invocation -> invocation.getArgument(0));
+		// When
+		emailService.postEmailVerificationToUser(userEmail);
+		// Then
+		ArgumentCaptor<EmailOutbox> captor = ArgumentCaptor.forClass(EmailOutbox.class);
+		verify(emailOutboxRepository).save(captor.capture());
+		EmailOutbox queued = captor.getValue();
+		assertEquals(userEmail, queued.getRecipient(), "Wrong email recipient.");
+		assertEquals("Email verification", queued.getSubject(), "Wrong email subject.");
+		assertEquals("text " + verifyUrl, queued.getBody(), "Wrong email content.");
+		assertEquals("<p>html</p>", queued.getHtmlBody(), "Wrong email HTML content.");
+		assertEquals(EmailOutboxStatus.PENDING, queued.getStatus());
+		verify(eventPublisher).publishEvent(any(EmailOutboxDispatcher.EmailEnqueued.class));
+	}
+
+	private UUID heldVerificationEmail() {
+		UUID outboxId = UUID.randomUUID();
+		ReflectionTestUtils.setField(emailService, "domainCheckHoldMillis", 60_000L);
+		Mockito.when(accessTokenService.generateAccessToken(anyString())).thenReturn("header.payload.signature");
+		when(emailTemplateRenderer.render(eq(EmailTemplateName.VERIFICATION), any(Locale.class), anyMap()))
+				.thenReturn(new RenderedEmail("Email verification", "text", "<p>html</p>"));
+		when(emailOutboxRepository.save(any(EmailOutbox.class))).thenAnswer(invocation -> {
+			EmailOutbox email = invocation.getArgument(0);
+			email.setId(outboxId);
+			return email;
+		});
+		return outboxId;
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Verification email is written held and released once a late domain check passes.")
+	void givenLateValidDomain_whenPostEmailVerificationAfterDomainCheck_thenHeldThenReleased() {
+		// Given
+		UUID outboxId = heldVerificationEmail();
+		CompletableFuture<Boolean> domainCheck = new CompletableFuture<>();
+		emailService.postEmailVerificationAfterDomainCheck("test@exmaple.com", domainCheck);
+		ArgumentCaptor<EmailOutbox> captor = ArgumentCaptor.forClass(EmailOutbox.class);
+		verify(emailOutboxRepository).save(captor.capture());
+		EmailOutbox held = captor.getValue();
+		assertEquals(held.getCreatedAt().plusMillis(60_000), held.getNextAttemptAt(), "Email is not held.");
+		verifyNoInteractions(eventPublisher);
+		when(emailOutboxRepository.releaseHeld(eq(outboxId), any(Instant.class))).thenReturn(1);
+		// When
+		domainCheck.complete(true);
+		// Then
+		verify(emailOutboxRepository).releaseHeld(eq(outboxId), any(Instant.class));
+		verify(eventPublisher).publishEvent(new EmailOutboxDispatcher.EmailEnqueued(outboxId));
+	}
+
+	@Test
+	@DisplayName("❌ Negative Case: Held verification email is deleted when a late domain check fails.")
+	void givenLateInvalidDomain_whenPostEmailVerificationAfterDomainCheck_thenHeldEmailDeleted() {
+		// Given
+		UUID outboxId = heldVerificationEmail();
+		CompletableFuture<Boolean> domainCheck = new CompletableFuture<>();
+		emailService.postEmailVerificationAfterDomainCheck("test@exmaple.com", domainCheck);
 		// When
-		spyService.postEmailVerificationToUser(userEmail);
+		domainCheck.complete(false);
 		// Then
-		verify(javaMailSender).send(mimeMessage);
-		InternetAddress from = new InternetAddress("no-reply@CaliList.com", "CaliList");
-		assertEquals(from, mimeMessage.getFrom()[0], "Wrong email sender.");
-		assertEquals(userEmail, mimeMessage.getAllRecipients()[0].toString(), "Wrong email recipient.");
-		assertEquals("Email verification", mimeMessage.getSubject(), "Wrong email subject.");
-		String verifyUrl = spyService.VERIFICATION_BASE_URL + URLEncoder.encode(token, StandardCharsets.UTF_8);
-		String expectedContent = "Click below to verify your email:\n" + verifyUrl;
-		assertEquals(expectedContent, mimeMessage.getContent().toString(), "Wrong email content.");
+		verify(emailOutboxRepository).deleteHeld(eq(outboxId), any(Instant.class));
+		verify(emailOutboxRepository, never()).releaseHeld(any(), any());
+		verifyNoInteractions(eventPublisher);
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: A held email that expired before the check completed is not published twice.")
+	void givenExpiredHold_whenLateDomainCheckPasses_thenNoEvent() {
+		// Given
+		UUID outboxId = heldVerificationEmail();
+		when(emailOutboxRepository.releaseHeld(eq(outboxId), any(Instant.class))).thenReturn(0);
+		// When
+		emailService.postEmailVerificationAfterDomainCheck("test@exmaple.com", CompletableFuture.completedFuture(true));
+		// Then
+		verifyNoInteractions(eventPublisher);
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Password recovery email is rendered and queued in the outbox.")
+	void sendRecoverPasswordEmailTest() {
+		// Given
+		String userEmail = "test@exmaple.com";
+		EmailDTO emailDTO = new EmailDTO();
+		ReflectionTestUtils.setField(emailDTO, "email", userEmail);
+		String recoveryUrl = emailService.PASSWORD_RECOVERY_BASE_URL + "header.payload.signature";
+		Mockito.when(accessTokenService.generateAccessToken(userEmail)).thenReturn("header.payload.signature");
+		when(emailTemplateRenderer.render(eq(EmailTemplateName.PASSWORD_RECOVERY), any(Locale.class), eq(Map.of("recoveryUrl", recoveryUrl))))
+				.thenReturn(new RenderedEmail("Password recovery", "text", "<p>html</p>"));
+		when(emailOutboxRepository.save(any(EmailOutbox.class))).thenAnswer(invocation -> invocation.getArgument(0));
+		// When
+		emailService.sendRecoverPasswordEmail(emailDTO);
+		// Then
+		ArgumentCaptor<EmailOutbox> captor = ArgumentCaptor.forClass(EmailOutbox.class);
+		verify(emailOutboxRepository).save(captor.capture());
+		assertEquals("Password recovery", captor.getValue().getSubject(), "Wrong email subject.");
 	}
 
 	@Nested
-	@DisplayName("dnsEmailLookup")
+	@DisplayName("dnsEmailLookupAsync")
 	class DnsEmailLookupTest {
 
 		private boolean dnsEmailLookup(String email) {
-			return emailService.dnsEmailLookup(email);
+			return emailService.dnsEmailLookupAsync(email).join();
 		}
 
-		@DisplayName("✅ Happy Case: Valid email domain.")
-		@ParameterizedTest(name = "Valid domain: \"{0}\"")
-		@ValueSource(strings = {"test@gmail.com", "test@icloud.com", "test@outlook.com", "test@yahoo.com"})
-		void givenValidEmailDomain_whenDnsEmailLookup_thenReturnTrue(String email) {
+		@Test
+		@DisplayName("✅ Happy Case: Domain part of the email is checked in the MX cache.")
+		void givenValidEmailDomain_whenDnsEmailLookup_thenReturnTrue() {
+			// Given
+			when(mxRecordCache.hasValidMxAsync("gmail.com")).thenReturn(CompletableFuture.completedFuture(true));
 			// When
-			boolean isValidEmailDomain = dnsEmailLookup(email);
+			boolean isValidEmailDomain = dnsEmailLookup("test@gmail.com");
 			// Then
 			assertTrue(isValidEmailDomain, "Domain should be valid.");
 		}
 
+		@Test
 		@DisplayName("❌ Negative Case: Invalid email domain")
-		@ParameterizedTest(name = "Invalid domain: \"{0}\"")
-		@ValueSource(strings = {"test@example.com", "test@gmial.com", "test@notarealdomain.fake"})
-		void givenInvalidEmailDomain_whenDnsEmailLookup_thenReturnFalse(String email) {
+		void givenInvalidEmailDomain_whenDnsEmailLookup_thenReturnFalse() {
+			// Given
+			when(mxRecordCache.hasValidMxAsync("notarealdomain.fake")).thenReturn(CompletableFuture.completedFuture(false));
 			// When
-			boolean isValidEmailDomain = dnsEmailLookup(email);
+			boolean isValidEmailDomain = dnsEmailLookup("test@notarealdomain.fake");
 			// Then
 			assertFalse(isValidEmailDomain, "Domain should be invalid.");
 		}
@@ -123,7 +224,7 @@ class EmailServiceTest {
 		@DisplayName("✅ Happy Case: Email verified successfully.")
 		void givenValidJwt_whenVerifyEmail_thenReturnAccepted() {
 			// Given
-			when(jwtUtils.extractSubject(jwtToken)).thenReturn(userEmail);
+			when(jwtUtils.parse(jwtToken)).thenReturn(new JwtToken(userEmail, null, null, null));
 			when(findByEmail(userEmail)).thenReturn(Optional.of(testUser));
 			when(jwtUtils.validateIfJwtSubjectMatchTheUser(userEmail, testUser.getEmail())).thenReturn(true);
 			// When
@@ -134,13 +235,14 @@ class EmailServiceTest {
 			assertEquals(Messages.EMAIL_VERIFICATION_SUCCESS, response.getBody().getMessage(), "Wrong success message");
 			assertTrue(testUser.isEmailVerified(), "User email should be marked as verified");
 			verify(userRepository).save(testUser);
+			verify(userDetailsCache).evict(userEmail);
 		}
 
 		@Test
 		@DisplayName("❌ Negative case: Invalid token.")
 		void givenInvalidJwt_whenVerifyEmail_thenThrowIllegalArgumentException() {
 			// Given
-			when(jwtUtils.extractSubject(jwtToken)).thenReturn(null);
+			when(jwtUtils.parse(jwtToken)).thenReturn(new JwtToken(null, null, null, null));
 			// When & Then
 			IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, this::verifyEmail);
 			assertEquals(Messages.TOKEN_INVALID, ex.getMessage());
@@ -151,7 +253,7 @@ class EmailServiceTest {
 		void givenAlreadyVerifiedUser_whenVerifyEmail_thenThrowIllegalStateException() {
 			// Given
 			testUser.setEmailVerified(true);
-			when(jwtUtils.extractSubject(jwtToken)).thenReturn(userEmail);
+			when(jwtUtils.parse(jwtToken)).thenReturn(new JwtToken(userEmail, null, null, null));
 			when(findByEmail(userEmail)).thenReturn(Optional.of(testUser));
 			when(jwtUtils.validateIfJwtSubjectMatchTheUser(userEmail, testUser.getEmail())).thenReturn(true);
 			// When & Then
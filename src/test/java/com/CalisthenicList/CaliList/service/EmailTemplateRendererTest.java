@@ -0,0 +1,68 @@
+package com.CalisthenicList.CaliList.service;
+
+import com.CalisthenicList.CaliList.enums.EmailTemplateName;
+import com.CalisthenicList.CaliList.service.EmailTemplateRenderer.RenderedEmail;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//INFO - renders the real templates from src/main/resources/email-templates
+class EmailTemplateRendererTest {
+	private final EmailTemplateRenderer renderer = new EmailTemplateRenderer();
+	private final String verifyUrl = "http://localhost:8080/email-verification/header.payload.signature";
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(renderer, "locales", List.of("en", "pl"));
+		ReflectionTestUtils.setField(renderer, "defaultLocale", "en");
+		renderer.init();
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Verification email renders subject, text and HTML")
+	void givenEnglishLocale_whenRenderVerification_thenAllPartsRendered() {
+		// When
+		RenderedEmail email = renderer.render(EmailTemplateName.VERIFICATION, Locale.ENGLISH, Map.of("verifyUrl", verifyUrl));
+		// Then
+		assertEquals("Email verification", email.subject());
+		assertEquals("Click below to verify your email:\n" + verifyUrl, email.text());
+		assertTrue(email.html().contains("href=\"" + verifyUrl + "\""));
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Locale variant is picked by language")
+	void givenPolishLocale_whenRender_thenPolishVariant() {
+		// When
+		RenderedEmail email = renderer.render(EmailTemplateName.PASSWORD_RECOVERY, Locale.forLanguageTag("pl-PL"),
+				Map.of("recoveryUrl", "http://x"));
+		// Then
+		assertEquals("Odzyskiwanie hasła", email.subject());
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Unknown language falls back to the default locale")
+	void givenUnsupportedLocale_whenRender_thenDefaultVariant() {
+		// When
+		RenderedEmail email = renderer.render(EmailTemplateName.VERIFICATION, Locale.GERMAN, Map.of("verifyUrl", verifyUrl));
+		// Then
+		assertEquals("Email verification", email.subject());
+	}
+
+	@Test
+	@DisplayName("❌ Negative Case: Locale without templates fails at startup")
+	void givenLocaleWithoutTemplates_whenInit_thenThrow() {
+		// Given
+		EmailTemplateRenderer misconfigured = new EmailTemplateRenderer();
+		ReflectionTestUtils.setField(misconfigured, "locales", List.of("en", "de"));
+		ReflectionTestUtils.setField(misconfigured, "defaultLocale", "en");
+		// When / Then
+		assertThrows(IllegalStateException.class, misconfigured::init);
+	}
+}
@@ -0,0 +1,264 @@
+package com.CalisthenicList.CaliList.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.xbill.DNS.*;
+import org.xbill.DNS.Record;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+//INFO - the resolver is a stub, tests never touch the network
+@ExtendWith(MockitoExtension.class)
+class MxRecordCacheTest {
+	@Mock
+	private Resolver resolver;
+	private final AtomicLong nanos = new AtomicLong();
+	private MxRecordCache mxRecordCache;
+
+	@BeforeEach
+	void setUp() {
+		mxRecordCache = new MxRecordCache(resolver, nanos::get);
+		ReflectionTestUtils.setField(mxRecordCache, "maximumSize", 100L);
+		ReflectionTestUtils.setField(mxRecordCache, "minTtlSeconds", 60L);
+		ReflectionTestUtils.setField(mxRecordCache, "maxTtlSeconds", 86_400L);
+		ReflectionTestUtils.setField(mxRecordCache, "negativeTtlSeconds", 300L);
+		ReflectionTestUtils.setField(mxRecordCache, "prewarmDomains", List.of("gmail.com", "outlook.com"));
+		ReflectionTestUtils.setField(mxRecordCache, "resolverThreads", 2);
+		//Caffeine runs its maintenance on the lookup pool too, a single slot could reject a lookup on a busy machine
+		ReflectionTestUtils.setField(mxRecordCache, "resolverQueueCapacity", 10);
+		ReflectionTestUtils.setField(mxRecordCache, "resolverTimeoutMs", 1000L);
+		mxRecordCache.init();
+	}
+
+	@AfterEach
+	void tearDown() {
+		mxRecordCache.shutdown();
+	}
+
+	private void advance(Duration duration) {
+		nanos.addAndGet(duration.toNanos());
+	}
+
+	//Caffeine sets the expiry and drops failed futures in a completion callback on the lookup thread, which can run
+	// after the caller's join returns. Waiting for the pool to go idle keeps the manual clock from moving before that
+	private void settle() {
+		ThreadPoolExecutor executor = (ThreadPoolExecutor) ReflectionTestUtils.getField(mxRecordCache, "resolverExecutor");
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while(executor.getCompletedTaskCount() < executor.getTaskCount()) {
+			assertTrue(System.nanoTime() < deadline, "Lookup pool did not settle");
+			Thread.onSpinWait();
+		}
+	}
+
+	private Message response(Message query, int rcode, Record... records) {
+		Message response = new Message(query.getHeader().getID());
+		response.getHeader().setRcode(rcode);
+		response.addRecord(query.getQuestion(), Section.QUESTION);
+		for(Record record : records) {
+			response.addRecord(record, record instanceof SOARecord ? Section.AUTHORITY : Section.ANSWER);
+		}
+		return response;
+	}
+
+	private MXRecord mx(String domain, long ttl, String target) throws TextParseException {
+		return new MXRecord(Name.fromString(domain + "."), DClass.IN, ttl, 10, Name.fromString(target));
+	}
+
+	private SOARecord soa(String domain, long ttl, long minimum) throws TextParseException {
+		Name name = Name.fromString(domain + ".");
+		return new SOARecord(name, DClass.IN, ttl, Name.fromString("ns." + domain + "."),
+				Name.fromString("admin." + domain + "."), 1, 3600, 600, 86400, minimum);
+	}
+
+	private void resolverAnswers(int rcode, Record... records) throws IOException {
+		when(resolver.send(any(Message.class))).thenAnswer(invocation -> response(invocation.getArgument(0), rcode, records));
+	}
+
+	private void resolverAnswersAfter(CountDownLatch release, Record... records) throws IOException {
+		resolverAnswersAfter(new CountDownLatch(0), release, records);
+	}
+
+	//Counts down started when a pool thread is inside the resolver, then blocks until release
+	private void resolverAnswersAfter(CountDownLatch started, CountDownLatch release, Record... records) throws IOException {
+		when(resolver.send(any(Message.class))).thenAnswer(invocation -> {
+			started.countDown();
+			release.await(5, TimeUnit.SECONDS);
+			return response(invocation.getArgument(0), Rcode.NOERROR, records);
+		});
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Valid MX is cached for its TTL")
+	void givenValidMx_whenLookupTwice_thenResolverCalledOnce() throws IOException {
+		// Given
+		resolverAnswers(Rcode.NOERROR, mx("gmail.com", 3600, "gmail-smtp-in.l.google.com."));
+		// When
+		boolean first = mxRecordCache.hasValidMx("gmail.com");
+		boolean second = mxRecordCache.hasValidMx("GMAIL.com");
+		// Then
+		assertTrue(first);
+		assertTrue(second);
+		verify(resolver, times(1)).send(any(Message.class));
+		assertEquals(0.5, mxRecordCache.hitRate());
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Entry expires after the record TTL")
+	void givenCachedMx_whenTtlPasses_thenLookedUpAgain() throws IOException {
+		// Given
+		resolverAnswers(Rcode.NOERROR, mx("gmail.com", 600, "gmail-smtp-in.l.google.com."));
+		mxRecordCache.hasValidMx("gmail.com");
+		settle();
+		advance(Duration.ofSeconds(599));
+		mxRecordCache.hasValidMx("gmail.com");
+		// When
+		advance(Duration.ofSeconds(2));
+		mxRecordCache.hasValidMx("gmail.com");
+		// Then
+		verify(resolver, times(2)).send(any(Message.class));
+	}
+
+	@Test
+	@DisplayName("❌ Negative Case: Null MX means the domain accepts no mail")
+	void givenNullMx_whenLookup_thenInvalid() throws IOException {
+		// Given
+		resolverAnswers(Rcode.NOERROR, mx("example.com", 3600, "."));
+		// When / Then
+		assertFalse(mxRecordCache.hasValidMx("example.com"));
+	}
+
+	@Test
+	@DisplayName("❌ Negative Case: NXDOMAIN is cached for the SOA negative TTL")
+	void givenNxDomain_whenLookup_thenNegativeCachedForSoaTtl() throws IOException {
+		// Given
+		resolverAnswers(Rcode.NXDOMAIN, soa("fake", 900, 120));
+		// When
+		assertFalse(mxRecordCache.hasValidMx("notarealdomain.fake"));
+		settle();
+		advance(Duration.ofSeconds(119));
+		assertFalse(mxRecordCache.hasValidMx("notarealdomain.fake"));
+		advance(Duration.ofSeconds(2));
+		assertFalse(mxRecordCache.hasValidMx("notarealdomain.fake"));
+		// Then
+		verify(resolver, times(2)).send(any(Message.class));
+	}
+
+	@Test
+	@DisplayName("❌ Negative Case: Domain without MX records is cached negatively")
+	void givenNoMxRecords_whenLookupTwice_thenNegativeCached() throws IOException {
+		// Given
+		resolverAnswers(Rcode.NOERROR);
+		// When
+		assertFalse(mxRecordCache.hasValidMx("gmial.com"));
+		assertFalse(mxRecordCache.hasValidMx("gmial.com"));
+		// Then
+		verify(resolver, times(1)).send(any(Message.class));
+	}
+
+	@Test
+	@DisplayName("❌ Negative Case: Timeout fails the lookup and is not cached")
+	void givenTimeout_whenLookupTwice_thenResolverCalledTwice() throws IOException {
+		// Given
+		when(resolver.send(any(Message.class))).thenThrow(new SocketTimeoutException("timeout"));
+		// When
+		CompletionException first = assertThrows(CompletionException.class, () -> mxRecordCache.hasValidMx("gmail.com"));
+		settle();
+		assertThrows(CompletionException.class, () -> mxRecordCache.hasValidMx("gmail.com"));
+		// Then
+		assertInstanceOf(SocketTimeoutException.class, first.getCause());
+		verify(resolver, times(2)).send(any(Message.class));
+	}
+
+	@Test
+	@DisplayName("❌ Negative Case: SERVFAIL fails the lookup instead of reporting an invalid domain")
+	void givenServFail_whenLookupAsync_thenFailedFuture() throws IOException {
+		// Given
+		resolverAnswers(Rcode.SERVFAIL);
+		// When
+		CompletableFuture<Boolean> lookup = mxRecordCache.hasValidMxAsync("gmail.com");
+		// Then
+		assertThrows(CompletionException.class, lookup::join);
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Pre-warm resolves the configured domains")
+	void givenPrewarmDomains_whenPrewarm_thenLaterLookupsAreHits() throws IOException {
+		// Given
+		resolverAnswers(Rcode.NOERROR, mx("gmail.com", 3600, "gmail-smtp-in.l.google.com."));
+		// When
+		mxRecordCache.prewarm();
+		mxRecordCache.hasValidMx("outlook.com");
+		// Then
+		verify(resolver, times(2)).send(any(Message.class));
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Cache hit completes without waiting for the resolver pool")
+	void givenCachedMx_whenLookupAsync_thenFutureAlreadyCompleted() throws IOException {
+		// Given
+		resolverAnswers(Rcode.NOERROR, mx("gmail.com", 3600, "gmail-smtp-in.l.google.com."));
+		mxRecordCache.hasValidMx("gmail.com");
+		// When
+		CompletableFuture<Boolean> hit = mxRecordCache.hasValidMxAsync("gmail.com");
+		// Then
+		assertTrue(hit.isDone());
+		assertTrue(hit.join());
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Concurrent lookups of one domain share a single query")
+	void givenInFlightLookup_whenSameDomainRequested_thenResolverCalledOnce() throws IOException {
+		// Given
+		CountDownLatch release = new CountDownLatch(1);
+		resolverAnswersAfter(release, mx("gmail.com", 3600, "gmail-smtp-in.l.google.com."));
+		CompletableFuture<Boolean> first = mxRecordCache.hasValidMxAsync("gmail.com");
+		// When
+		CompletableFuture<Boolean> second = mxRecordCache.hasValidMxAsync("gmail.com");
+		release.countDown();
+		// Then
+		assertTrue(first.join());
+		assertTrue(second.join());
+		verify(resolver, times(1)).send(any(Message.class));
+	}
+
+	@Test
+	@DisplayName("❌ Negative Case: Saturated resolver pool fails fast instead of queueing")
+	void givenSaturatedPool_whenLookupAsync_thenFailedFuture() throws IOException, InterruptedException {
+		// Given
+		mxRecordCache.shutdown();
+		ReflectionTestUtils.setField(mxRecordCache, "resolverQueueCapacity", 1);
+		mxRecordCache.init();
+		CountDownLatch started = new CountDownLatch(2);
+		CountDownLatch release = new CountDownLatch(1);
+		resolverAnswersAfter(started, release, mx("example.com", 3600, "mx.example.com."));
+		mxRecordCache.hasValidMxAsync("a.com");
+		mxRecordCache.hasValidMxAsync("b.com");
+		//Both pool threads are blocked in the resolver, c.com waits in the single queue slot
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		mxRecordCache.hasValidMxAsync("c.com");
+		// When
+		CompletableFuture<Boolean> rejected = mxRecordCache.hasValidMxAsync("d.com");
+		release.countDown();
+		// Then
+		assertTrue(rejected.isCompletedExceptionally());
+	}
+}
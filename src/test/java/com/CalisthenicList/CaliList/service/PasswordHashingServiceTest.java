@@ -0,0 +1,94 @@
+package com.CalisthenicList.CaliList.service;
+
+import com.CalisthenicList.CaliList.exceptions.PasswordHashingUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PasswordHashingServiceTest {
+	@Mock
+	private PasswordEncoder delegate;
+	private PasswordHashingService passwordHashingService;
+	private SimpleMeterRegistry registry;
+	private final ExecutorService callers = Executors.newCachedThreadPool();
+
+	@BeforeEach
+	void setUp() {
+		passwordHashingService = new PasswordHashingService(delegate, 1, 1, 2);
+		registry = new SimpleMeterRegistry();
+		passwordHashingService.bindTo(registry);
+	}
+
+	@AfterEach
+	void tearDown() {
+		passwordHashingService.shutdown();
+		callers.shutdownNow();
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Encode and matches are delegated and timed")
+	void givenPassword_whenEncodeAndMatches_thenDelegated() {
+		// Given
+		when(delegate.encode("password")).thenReturn("hash");
+		when(delegate.matches("password", "hash")).thenReturn(true);
+		// When
+		String hash = passwordHashingService.encode("password");
+		boolean matches = passwordHashingService.matches("password", "hash");
+		// Then
+		assertEquals("hash", hash);
+		assertTrue(matches);
+		assertEquals(1, registry.get("passwordHashing.duration").tag("operation", "encode").timer().count());
+		assertEquals(1, registry.get("passwordHashing.duration").tag("operation", "matches").timer().count());
+	}
+
+	@Test
+	@DisplayName("❌ Negative Case: Full queue fails fast with Retry-After")
+	void givenBusyPoolAndFullQueue_whenEncode_thenThrowUnavailable() throws Exception {
+		// Given
+		CountDownLatch hashing = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		when(delegate.encode(anyString())).thenAnswer(invocation -> {
+			hashing.countDown();
+			release.await();
+			return "hash";
+		});
+		Future<String> running = callers.submit(() -> passwordHashingService.encode("first"));
+		assertTrue(hashing.await(5, TimeUnit.SECONDS));
+		Future<String> queued = callers.submit(() -> passwordHashingService.encode("second"));
+		while(passwordHashingService.queueSize() == 0) {
+			Thread.onSpinWait();
+		}
+		// When
+		PasswordHashingUnavailableException exception = assertThrows(PasswordHashingUnavailableException.class,
+				() -> passwordHashingService.encode("third"));
+		// Then
+		assertEquals(2, exception.getRetryAfterSeconds());
+		assertEquals(1, registry.get("passwordHashing.rejected").counter().count());
+		release.countDown();
+		assertEquals("hash", running.get(5, TimeUnit.SECONDS));
+		assertEquals("hash", queued.get(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	@DisplayName("❌ Negative Case: Exception from the encoder is propagated")
+	void givenEncoderThrows_whenEncode_thenSameException() {
+		// Given
+		when(delegate.encode(anyString())).thenThrow(new IllegalArgumentException("bad input"));
+		// When / Then
+		IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+				() -> passwordHashingService.encode("password"));
+		assertEquals("bad input", exception.getMessage());
+	}
+}
@@ -0,0 +1,66 @@
+package com.CalisthenicList.CaliList.service;
+
+import com.CalisthenicList.CaliList.exceptions.PasswordHashingUnavailableException;
+import com.CalisthenicList.CaliList.repositories.UserRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PasswordUpgradeServiceTest {
+	@Mock
+	private PasswordEncoder encoder;
+	@Mock
+	private UserRepository userRepository;
+	@Mock
+	private UserDetailsCache userDetailsCache;
+	@InjectMocks
+	private PasswordUpgradeService passwordUpgradeService;
+	private final UUID userId = UUID.randomUUID();
+	private final String email = "test@example.com";
+
+	@Test
+	@DisplayName("✅ Happy Case: New hash is stored and cached user details are evicted")
+	void givenUnchangedPassword_whenUpgrade_thenStoreNewHashAndEvict() {
+		// Given
+		when(encoder.encode("password")).thenReturn("newHash");
+		when(userRepository.updatePasswordIfUnchanged(userId, "oldHash", "newHash")).thenReturn(1);
+		// When
+		passwordUpgradeService.upgradePassword(userId, email, "password", "oldHash");
+		// Then
+		verify(userDetailsCache).evict(email);
+	}
+
+	@Test
+	@DisplayName("❌ Negative Case: Password changed in the meantime is not overwritten")
+	void givenChangedPassword_whenUpgrade_thenNothingEvicted() {
+		// Given
+		when(encoder.encode("password")).thenReturn("newHash");
+		when(userRepository.updatePasswordIfUnchanged(userId, "oldHash", "newHash")).thenReturn(0);
+		// When
+		passwordUpgradeService.upgradePassword(userId, email, "password", "oldHash");
+		// Then
+		verifyNoInteractions(userDetailsCache);
+	}
+
+	@Test
+	@DisplayName("❌ Negative Case: Busy hashing pool postpones the upgrade")
+	void givenHashingUnavailable_whenUpgrade_thenNoUpdate() {
+		// Given
+		when(encoder.encode("password")).thenThrow(new PasswordHashingUnavailableException(1));
+		// When
+		passwordUpgradeService.upgradePassword(userId, email, "password", "oldHash");
+		// Then
+		verify(userRepository, never()).updatePasswordIfUnchanged(any(), any(), any());
+		verifyNoInteractions(userDetailsCache);
+	}
+}
@@ -0,0 +1,107 @@
+package com.CalisthenicList.CaliList.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.function.Consumer;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PostgresNotificationListenerTest {
+	@Mock
+	private DataSource dataSource;
+	@Mock
+	private Connection connection;
+	@Mock
+	private Statement statement;
+	@Mock
+	private PGConnection pgConnection;
+	@Mock
+	private PGNotification notification;
+	@Mock
+	private Consumer<String> handler;
+	@Mock
+	private Runnable resync;
+	@InjectMocks
+	private PostgresNotificationListener listener;
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(listener, "enabled", true);
+		ReflectionTestUtils.setField(listener, "pollMillis", 10);
+		ReflectionTestUtils.setField(listener, "retryMillis", 10L);
+		listener.subscribe("test_channel", handler, resync);
+	}
+
+	@AfterEach
+	void tearDown() {
+		listener.shutdown();
+	}
+
+	//The first poll returns the given notifications, later polls wait like the driver does and return nothing
+	private void listenConnection(PGNotification... notifications) throws SQLException {
+		when(connection.createStatement()).thenReturn(statement);
+		when(connection.unwrap(PGConnection.class)).thenReturn(pgConnection);
+		when(pgConnection.getNotifications(anyInt()))
+				.thenReturn(notifications)
+				.thenAnswer(inv -> {
+					Thread.sleep(10);
+					return null;
+				});
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Notifications of a subscribed channel reach the handler after a resync")
+	void givenNotification_whenListening_thenResyncAndDispatch() throws SQLException {
+		// Given
+		when(dataSource.getConnection()).thenReturn(connection);
+		when(notification.getName()).thenReturn("test_channel");
+		when(notification.getParameter()).thenReturn("payload");
+		listenConnection(notification);
+		// When
+		listener.start();
+		// Then
+		verify(statement, timeout(5_000)).execute("LISTEN test_channel");
+		verify(resync, timeout(5_000)).run();
+		verify(handler, timeout(5_000)).accept("payload");
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: A lost connection is opened again and subscribers resync")
+	void givenUnreachableDatabase_whenListening_thenRetryAndResync() throws SQLException {
+		// Given
+		when(dataSource.getConnection()).thenThrow(new SQLException("down")).thenReturn(connection);
+		listenConnection();
+		// When
+		listener.start();
+		// Then
+		verify(dataSource, timeout(5_000).times(2)).getConnection();
+		verify(resync, timeout(5_000)).run();
+	}
+
+	@Test
+	@DisplayName("❌ Negative Case: Disabled listener opens no connection")
+	void givenDisabled_whenStart_thenNoConnection() {
+		// Given
+		ReflectionTestUtils.setField(listener, "enabled", false);
+		// When
+		listener.start();
+		// Then
+		verifyNoInteractions(dataSource, resync);
+	}
+}
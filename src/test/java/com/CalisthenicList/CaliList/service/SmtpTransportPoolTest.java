@@ -0,0 +1,141 @@
+package com.CalisthenicList.CaliList.service;
+
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//INFO - sessions are opened against an in-process GreenMail SMTP server, the clock is manual
+class SmtpTransportPoolTest {
+	@RegisterExtension
+	static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+	private final AtomicLong nanos = new AtomicLong();
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private JavaMailSenderImpl mailSender;
+	private SmtpTransportPool pool;
+
+	@BeforeEach
+	void setUp() {
+		mailSender = new JavaMailSenderImpl();
+		mailSender.setHost("localhost");
+		mailSender.setPort(ServerSetupTest.SMTP.getPort());
+		pool = new SmtpTransportPool(mailSender, nanos::get);
+		ReflectionTestUtils.setField(pool, "maxConnections", 2);
+		ReflectionTestUtils.setField(pool, "maxMessagesPerConnection", 3);
+		ReflectionTestUtils.setField(pool, "idleTimeoutMillis", 60_000L);
+		ReflectionTestUtils.setField(pool, "validateAfterIdleMillis", 5_000L);
+		ReflectionTestUtils.setField(pool, "borrowTimeoutMillis", 1_000L);
+		pool.init();
+		pool.bindTo(registry);
+	}
+
+	@AfterEach
+	void tearDown() {
+		pool.shutdown();
+	}
+
+	private List<MimeMessage> messages(int count) throws Exception {
+		MimeMessage[] messages = new MimeMessage[count];
+		for(int i = 0; i < count; i++) {
+			messages[i] = mailSender.createMimeMessage();
+			messages[i].setFrom(new InternetAddress("no-reply@CaliList.com"));
+			messages[i].setRecipients(MimeMessage.RecipientType.TO, "user" + i + "@example.com");
+			messages[i].setSubject("Message " + i);
+			messages[i].setText("Body " + i);
+		}
+		return List.of(messages);
+	}
+
+	private long connects() {
+		return registry.get("smtp.pool.connect").timer().count();
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Consecutive batches reuse one SMTP session")
+	void givenTwoBatches_whenSend_thenOneConnect() throws Exception {
+		// When
+		Map<MimeMessage, Exception> first = pool.send(messages(1));
+		Map<MimeMessage, Exception> second = pool.send(messages(1));
+		// Then
+		assertTrue(first.isEmpty());
+		assertTrue(second.isEmpty());
+		assertEquals(2, greenMail.getReceivedMessages().length);
+		assertEquals(1, connects());
+		assertTrue(registry.get("smtp.pool.connect").timer().totalTime(TimeUnit.NANOSECONDS) > 0);
+		//Two of three messages sent, the session is still below the limit and back in the pool
+		assertEquals(1, pool.idleConnections());
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Session is retired after the message limit")
+	void givenMoreMessagesThanLimit_whenSend_thenSessionRotated() throws Exception {
+		// When
+		Map<MimeMessage, Exception> failed = pool.send(messages(5));
+		// Then
+		assertTrue(failed.isEmpty());
+		assertEquals(5, greenMail.getReceivedMessages().length);
+		assertEquals(2, connects());
+		assertEquals(3.0, registry.get("smtp.pool.messages.per.connection").summary().max());
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Idle session is evicted after the idle timeout")
+	void givenIdleSession_whenTimeoutPasses_thenEvicted() throws Exception {
+		// Given
+		pool.send(messages(1));
+		nanos.addAndGet(Duration.ofSeconds(30).toNanos());
+		pool.evictIdle();
+		assertEquals(1, pool.idleConnections());
+		// When
+		nanos.addAndGet(Duration.ofSeconds(31).toNanos());
+		pool.evictIdle();
+		// Then
+		assertEquals(0, pool.idleConnections());
+		assertEquals(1.0, registry.get("smtp.pool.evicted").counter().count());
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Session that died while idle is replaced after the NOOP check")
+	void givenClosedIdleSession_whenSend_thenReconnects() throws Exception {
+		// Given
+		pool.send(messages(1));
+		greenMail.reset();
+		nanos.addAndGet(Duration.ofSeconds(10).toNanos());
+		// When
+		Map<MimeMessage, Exception> failed = pool.send(messages(1));
+		// Then
+		assertTrue(failed.isEmpty());
+		assertEquals(1, greenMail.getReceivedMessages().length);
+		assertEquals(2, connects());
+	}
+
+	@Test
+	@DisplayName("❌ Negative Case: Unreachable server fails the whole batch without throwing")
+	void givenServerDown_whenSend_thenAllMessagesFailed() throws Exception {
+		// Given
+		mailSender.setPort(1);
+		List<MimeMessage> messages = messages(2);
+		// When
+		Map<MimeMessage, Exception> failed = pool.send(messages);
+		// Then
+		assertEquals(2, failed.size());
+		assertTrue(failed.keySet().containsAll(messages));
+		assertEquals(0, pool.idleConnections());
+	}
+}
@@ -0,0 +1,108 @@
+package com.CalisthenicList.CaliList.service;
+
+import com.CalisthenicList.CaliList.constants.Messages;
+import com.CalisthenicList.CaliList.enums.Roles;
+import com.CalisthenicList.CaliList.model.CachedUserDetails;
+import com.CalisthenicList.CaliList.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserDetailsCacheTest {
+	private final String email = "test@example.com";
+	private UserDetailsCache userDetailsCache;
+	private AtomicInteger loads;
+	private User loaded;
+	private Function<String, User> loader;
+
+	@BeforeEach
+	void setUp() {
+		userDetailsCache = new UserDetailsCache();
+		ReflectionTestUtils.setField(userDetailsCache, "enabled", true);
+		ReflectionTestUtils.setField(userDetailsCache, "maximumSize", 100L);
+		ReflectionTestUtils.setField(userDetailsCache, "ttlSeconds", 60L);
+		userDetailsCache.init();
+		loads = new AtomicInteger();
+		loader = username -> {
+			loads.incrementAndGet();
+			loaded = new User("testUser", username, "encodedPassword");
+			return loaded;
+		};
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Second lookup is served from the cache")
+	void givenCachedUser_whenGet_thenLoaderNotCalledAgain() {
+		// When
+		UserDetails first = userDetailsCache.get(email, loader);
+		UserDetails second = userDetailsCache.get(email, loader);
+		// Then
+		assertSame(first, second);
+		assertEquals(1, loads.get());
+		assertEquals(1, userDetailsCache.stats().hitCount());
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Cache holds an immutable snapshot, not the loaded entity")
+	void givenCachedUser_whenEntityChanged_thenCachedSnapshotUnchanged() {
+		// Given
+		UserDetails cached = userDetailsCache.get(email, loader);
+		// When
+		loaded.setRole(Roles.ROLE_ADMIN);
+		loaded.setPassword("changedPassword");
+		// Then
+		CachedUserDetails snapshot = assertInstanceOf(CachedUserDetails.class, cached);
+		assertEquals(Roles.ROLE_USER, snapshot.role());
+		assertEquals("encodedPassword", userDetailsCache.get(email, loader).getPassword());
+		assertEquals(email, snapshot.email());
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Evicted user is loaded again")
+	void givenEvictedUser_whenGet_thenLoaderCalledAgain() {
+		// Given
+		userDetailsCache.get(email, loader);
+		// When
+		userDetailsCache.evict(email);
+		userDetailsCache.get(email, loader);
+		// Then
+		assertEquals(2, loads.get());
+	}
+
+	@Test
+	@DisplayName("❌ Negative Case: Unknown user is not cached")
+	void givenUnknownUser_whenGet_thenExceptionPropagatedAndNotCached() {
+		// Given
+		Function<String, User> failingLoader = username -> {
+			loads.incrementAndGet();
+			throw new UsernameNotFoundException(Messages.USER_NOT_FOUND);
+		};
+		// When + Then
+		assertThrows(UsernameNotFoundException.class, () -> userDetailsCache.get(email, failingLoader));
+		assertThrows(UsernameNotFoundException.class, () -> userDetailsCache.get(email, failingLoader));
+		assertEquals(2, loads.get());
+		assertEquals(0, userDetailsCache.size());
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Disabled cache always delegates to the loader")
+	void givenDisabledCache_whenGet_thenAlwaysLoads() {
+		// Given
+		UserDetailsCache disabled = new UserDetailsCache();
+		disabled.init();
+		// When
+		disabled.get(email, loader);
+		disabled.get(email, loader);
+		// Then
+		assertEquals(2, loads.get());
+		assertFalse(disabled.isEnabled());
+	}
+}
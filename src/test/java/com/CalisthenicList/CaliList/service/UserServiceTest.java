@@ -3,6 +3,7 @@ import com.CalisthenicList.CaliList.constants.Messages;
 import com.CalisthenicList.CaliList.model.*;
 import com.CalisthenicList.CaliList.repositories.RefreshTokenRepository;
 import com.CalisthenicList.CaliList.repositories.UserRepository;
+import com.CalisthenicList.CaliList.service.tokens.AccessTokenRevocationService;
 import com.CalisthenicList.CaliList.service.tokens.AccessTokenService;
 import com.CalisthenicList.CaliList.utils.JwtUtils;
 import lombok.RequiredArgsConstructor;
@@ -40,6 +41,10 @@ class UserServiceTest {
 	private JwtUtils jwtUtils;
 	@Mock
 	private AccessTokenService accessTokenService;
+	@Mock
+	private AccessTokenRevocationService accessTokenRevocationService;
+	@Mock
+	private UserDetailsCache userDetailsCache;
 	@InjectMocks
 	private UserService userService;
 	private UserDeleteByIdDTO userDeleteByIdDto;
@@ -72,7 +77,6 @@ class UserServiceTest {
 		void givenValidUserAndPassword_whenDeleteUser_thenReturnOk() {
 			// Given
 			when(userRepository.findById(userId)).thenReturn(Optional.of(user));
-			when(refreshTokenRepository.findByUserEmail(email)).thenReturn(Optional.of(new RefreshToken()));
 			when(encoder.matches("rawPassword", "encodedPassword")).thenReturn(true);
 			// When
 			ResponseEntity<ApiResponse<Object>> response = deleteUserById(userDeleteByIdDto);
@@ -80,7 +84,10 @@ class UserServiceTest {
 			assertEquals(HttpStatus.OK, response.getStatusCode());
 			assertNotNull(response.getBody());
 			assertEquals(Messages.USER_DELETED, response.getBody().getMessage());
+			verify(refreshTokenRepository).deleteAllByUserId(userId);
 			verify(userRepository).delete(user);
+			verify(accessTokenRevocationService).revokeAllForUser(userId);
+			verify(userDetailsCache).evict(email);
 		}
 
 		@Test
@@ -127,9 +134,9 @@ class UserServiceTest {
 		@DisplayName("✅ Happy Case: Set user's birthdate successfully")
 		void givenValidUserAndBirthdate_whenSetUserBirthdate_thenReturnOk() {
 			// Given
-			when(jwtUtils.extractSubject(refreshToken)).thenReturn(userEmail);
+			when(jwtUtils.parse(refreshToken)).thenReturn(new JwtToken(userEmail, null, null, null));
 			when(userRepository.findByEmail(userEmail)).thenReturn(Optional.of(user));
-			when(accessTokenService.generateAccessToken(userEmail)).thenReturn("newAccessToken");
+			when(accessTokenService.generateAccessToken(user)).thenReturn("newAccessToken");
 			when(userRepository.save(user)).thenReturn(user);
 			// When
 			ResponseEntity<ApiResponse<Object>> response = userService.setUserBirthdate(birthdateDTO, refreshToken);
@@ -142,13 +149,14 @@ class UserServiceTest {
 			UserDTO responseUserDTO = (UserDTO) response.getBody().getData();
 			assertEquals(user.getBirthdate(), responseUserDTO.getBirthdate());
 			verify(userRepository).save(user);
+			verify(userDetailsCache).evict(userEmail);
 		}
 
 		@Test
 		@DisplayName("❌ Negative Case: User not found")
 		void givenNonExistingUser_whenSetUserBirthdate_thenThrowUsernameNotFoundException() {
 			// Given
-			when(jwtUtils.extractSubject(refreshToken)).thenReturn(userEmail);
+			when(jwtUtils.parse(refreshToken)).thenReturn(new JwtToken(userEmail, null, null, null));
 			when(userRepository.findByEmail(userEmail)).thenReturn(Optional.empty());
 			// When / Then
 			UsernameNotFoundException exception = assertThrows(UsernameNotFoundException.class,
@@ -176,9 +184,9 @@ class UserServiceTest {
 		@DisplayName("✅ Happy Case: Set user's cali start date successfully")
 		void givenValidUserAndCaliStartDate_whenSetUserCaliStartDate_thenReturnOk() {
 			// Given
-			when(jwtUtils.extractSubject(refreshToken)).thenReturn(userEmail);
+			when(jwtUtils.parse(refreshToken)).thenReturn(new JwtToken(userEmail, null, null, null));
 			when(userRepository.findByEmail(userEmail)).thenReturn(Optional.of(user));
-			when(accessTokenService.generateAccessToken(userEmail)).thenReturn("newAccessToken");
+			when(accessTokenService.generateAccessToken(user)).thenReturn("newAccessToken");
 			when(userRepository.save(user)).thenReturn(user);
 			// When
 			ResponseEntity<ApiResponse<Object>> response = userService.setUserCaliStartDate(caliStartDateDTO, refreshToken);
@@ -197,7 +205,7 @@ class UserServiceTest {
 		@DisplayName("❌ Negative Case: User not found")
 		void givenNonExistingUser_whenSetUserCaliStartDate_thenThrowUsernameNotFoundException() {
 			// Given
-			when(jwtUtils.extractSubject(refreshToken)).thenReturn(userEmail);
+			when(jwtUtils.parse(refreshToken)).thenReturn(new JwtToken(userEmail, null, null, null));
 			when(userRepository.findByEmail(userEmail)).thenReturn(Optional.empty());
 			// When / Then
 			UsernameNotFoundException exception = assertThrows(UsernameNotFoundException.class,
@@ -0,0 +1,156 @@
+package com.CalisthenicList.CaliList.service.tokens;
+
+import com.CalisthenicList.CaliList.model.JwtToken;
+import com.CalisthenicList.CaliList.service.PostgresNotificationListener;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AccessTokenRevocationServiceTest {
+	@Mock
+	private JdbcTemplate jdbcTemplate;
+	@Mock
+	private PostgresNotificationListener notificationListener;
+	@Mock
+	private ResultSet resultSet;
+	@InjectMocks
+	private AccessTokenRevocationService revocationService;
+	private final UUID userId = UUID.randomUUID();
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(revocationService, "accessTokenDuration", 15);
+	}
+
+	private JwtToken issuedAt(Instant issuedAt) {
+		return new JwtToken("user@example.com", issuedAt, null, null);
+	}
+
+	private void storedRevocation(UUID userId, Instant revokedAt) throws Exception {
+		when(resultSet.getObject("user_id", UUID.class)).thenReturn(userId);
+		when(resultSet.getTimestamp("revoked_at")).thenReturn(Timestamp.from(revokedAt));
+		doAnswer(inv -> {
+			inv.getArgument(1, RowCallbackHandler.class).processRow(resultSet);
+			return null;
+		}).when(jdbcTemplate).query(eq(AccessTokenRevocationService.SELECT_REVOKED), any(RowCallbackHandler.class),
+				any(Timestamp.class));
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Revocations stored by other instances are loaded at startup")
+	void givenStoredRevocation_whenInit_thenRevokedAndSubscribed() throws Exception {
+		// Given
+		Instant revokedAt = Instant.now().minusSeconds(60);
+		storedRevocation(userId, revokedAt);
+		// When
+		revocationService.init();
+		// Then
+		assertTrue(revocationService.isRevoked(userId, issuedAt(revokedAt.minusSeconds(60))));
+		assertFalse(revocationService.isRevoked(userId, issuedAt(revokedAt.plusSeconds(1))));
+		verify(notificationListener).subscribe(eq(AccessTokenRevocationService.CHANNEL), any(), any());
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Revoking stores the revocation and notifies other instances")
+	void givenUser_whenRevokeAllForUser_thenStoreAndNotify() {
+		// Given
+		revocationService.init();
+		Instant issued = Instant.now().minusSeconds(60);
+		// When
+		revocationService.revokeAllForUser(userId);
+		// Then
+		assertTrue(revocationService.isRevoked(userId, issuedAt(issued)));
+		verify(jdbcTemplate).update(eq(AccessTokenRevocationService.UPSERT_REVOKED), eq(userId), any(Timestamp.class));
+		verify(jdbcTemplate).query(eq(AccessTokenRevocationService.NOTIFY), any(RowCallbackHandler.class),
+				eq(AccessTokenRevocationService.CHANNEL), startsWith(userId + ","));
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: A notification from another instance revokes older tokens of the user")
+	void givenNotification_whenOnNotification_thenRevoked() {
+		// Given
+		revocationService.init();
+		Instant revokedAt = Instant.now();
+		// When
+		revocationService.onNotification(userId + "," + revokedAt.toEpochMilli());
+		// Then
+		assertTrue(revocationService.isRevoked(userId, issuedAt(revokedAt.minusSeconds(60))));
+		assertFalse(revocationService.isRevoked(UUID.randomUUID(), issuedAt(revokedAt.minusSeconds(60))));
+	}
+
+	@Test
+	@DisplayName("❌ Negative Case: A reload never replaces a newer revocation with an older one")
+	void givenNewerLocalRevocation_whenReload_thenKept() throws Exception {
+		// Given
+		revocationService.init();
+		revocationService.revokeAllForUser(userId);
+		storedRevocation(userId, Instant.now().minusSeconds(600));
+		// When
+		revocationService.reload();
+		// Then
+		assertTrue(revocationService.isRevoked(userId, issuedAt(Instant.now().minusSeconds(60))));
+	}
+
+	@Test
+	@DisplayName("❌ Negative Case: Malformed notifications are ignored")
+	void givenMalformedNotification_whenOnNotification_thenIgnored() {
+		// Given
+		revocationService.init();
+		// When / Then
+		assertDoesNotThrow(() -> revocationService.onNotification("not-a-uuid"));
+		assertDoesNotThrow(() -> revocationService.onNotification(userId + ",not-a-number"));
+		assertFalse(revocationService.isRevoked(userId, issuedAt(Instant.now().minusSeconds(60))));
+	}
+
+	@Test
+	@DisplayName("❌ Negative Case: With the listener and a loaded table the scheduled reload is skipped")
+	void givenListenerEnabled_whenScheduledReload_thenNoQuery() {
+		// Given
+		revocationService.init();
+		when(notificationListener.isEnabled()).thenReturn(true);
+		clearInvocations(jdbcTemplate);
+		// When
+		revocationService.scheduledReload();
+		// Then
+		verifyNoInteractions(jdbcTemplate);
+	}
+
+	@Test
+	@DisplayName("❌ Negative Case: A missing table does not stop startup and the scheduled reload recovers")
+	void givenMissingTable_whenInit_thenStartsAndScheduledReloadRecovers() throws Exception {
+		// Given
+		doThrow(new BadSqlGrammarException("reload", AccessTokenRevocationService.SELECT_REVOKED,
+				new SQLException("relation \"revoked_access_tokens\" does not exist")))
+				.when(jdbcTemplate).query(eq(AccessTokenRevocationService.SELECT_REVOKED), any(RowCallbackHandler.class),
+						any(Timestamp.class));
+		// When
+		assertDoesNotThrow(() -> revocationService.init());
+		// Then
+		verify(notificationListener).subscribe(eq(AccessTokenRevocationService.CHANNEL), any(), any());
+		Instant revokedAt = Instant.now().minusSeconds(60);
+		storedRevocation(userId, revokedAt);
+		when(notificationListener.isEnabled()).thenReturn(true);
+		revocationService.scheduledReload();
+		assertTrue(revocationService.isRevoked(userId, issuedAt(revokedAt.minusSeconds(60))));
+	}
+}
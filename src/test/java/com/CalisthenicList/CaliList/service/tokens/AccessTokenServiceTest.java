@@ -1,4 +1,7 @@
 package com.CalisthenicList.CaliList.service.tokens;
+import com.CalisthenicList.CaliList.enums.Roles;
+import com.CalisthenicList.CaliList.model.AccessTokenPrincipal;
+import com.CalisthenicList.CaliList.model.JwtToken;
 import com.CalisthenicList.CaliList.utils.JwtUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -10,9 +13,11 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
@@ -60,4 +65,42 @@ class AccessTokenServiceTest {
 		assertThrows(IllegalStateException.class, () -> generateAccessToken(email),
 				"Should propagate exception from JwtUtils");
 	}
-}
\ No newline at end of file
+
+	@Test
+	@DisplayName("✅ Happy Case: Access token for a user carries user id and role claims")
+	void givenUser_whenGenerateAccessToken_thenAddsUserIdAndRoleClaims() {
+		// Given
+		UUID userId = UUID.randomUUID();
+		String email = "test@example.com";
+		Duration expectedDuration = Duration.ofMinutes(durationOfMinutes);
+		Map<String, Object> expectedClaims = Map.of("uid", userId.toString(), "role", Roles.ROLE_USER.name());
+		when(jwtUtils.generateJwt(email, expectedDuration, expectedClaims)).thenReturn("header.payload.signature");
+		// When
+		String token = accessTokenService.generateAccessToken(userId, email, Roles.ROLE_USER);
+		// Then
+		assertEquals("header.payload.signature", token);
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Principal is rebuilt from access token claims")
+	void givenTokenWithClaims_whenToPrincipal_thenReturnPrincipal() {
+		// Given
+		UUID userId = UUID.randomUUID();
+		JwtToken token = new JwtToken("test@example.com", null, null,
+				Map.of("uid", userId.toString(), "role", Roles.ROLE_ADMIN.name()));
+		// When
+		Optional<AccessTokenPrincipal> principal = accessTokenService.toPrincipal(token);
+		// Then
+		assertTrue(principal.isPresent());
+		assertEquals(new AccessTokenPrincipal(userId, "test@example.com", Roles.ROLE_ADMIN), principal.get());
+	}
+
+	@Test
+	@DisplayName("❌ Negative Case: Token without claims has no stateless principal")
+	void givenTokenWithoutClaims_whenToPrincipal_thenEmpty() {
+		// Given
+		JwtToken token = new JwtToken("test@example.com", null, null, null);
+		// When / Then
+		assertTrue(accessTokenService.toPrincipal(token).isEmpty());
+	}
+}
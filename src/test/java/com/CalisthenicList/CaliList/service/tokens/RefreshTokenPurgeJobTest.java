@@ -0,0 +1,110 @@
+package com.CalisthenicList.CaliList.service.tokens;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.*;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RefreshTokenPurgeJobTest {
+	@Mock
+	private JdbcTemplate jdbcTemplate;
+	@Mock
+	private Connection connection;
+	@Mock
+	private PreparedStatement lockStatement;
+	@Mock
+	private PreparedStatement unlockStatement;
+	@Mock
+	private PreparedStatement deleteStatement;
+	@Mock
+	private ResultSet lockResult;
+	@InjectMocks
+	private RefreshTokenPurgeJob purgeJob;
+	private final Instant now = Instant.parse("2025-01-01T12:00:00Z");
+
+	@BeforeEach
+	void setUp() throws SQLException {
+		ReflectionTestUtils.setField(purgeJob, "batchSize", 2);
+		ReflectionTestUtils.setField(purgeJob, "pauseMillis", 0L);
+		ReflectionTestUtils.setField(purgeJob, "maxBatches", 10);
+		when(connection.prepareStatement(RefreshTokenPurgeJob.TRY_LOCK)).thenReturn(lockStatement);
+		when(lockStatement.executeQuery()).thenReturn(lockResult);
+		when(lockResult.next()).thenReturn(true);
+	}
+
+	private void lockAcquired() throws SQLException {
+		when(lockResult.getBoolean(1)).thenReturn(true);
+		when(connection.prepareStatement(RefreshTokenPurgeJob.UNLOCK)).thenReturn(unlockStatement);
+		when(unlockStatement.executeQuery()).thenReturn(lockResult);
+		when(connection.prepareStatement(RefreshTokenPurgeJob.DELETE_EXPIRED_BATCH)).thenReturn(deleteStatement);
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Expired rows are deleted in batches until a batch comes back short")
+	void givenExpiredRows_whenPurge_thenDeleteInBatchesAndUnlock() throws SQLException {
+		// Given
+		lockAcquired();
+		when(deleteStatement.executeUpdate()).thenReturn(2, 2, 1);
+		// When
+		int purged = purgeJob.purge(connection, now);
+		// Then
+		assertEquals(5, purged);
+		verify(deleteStatement).setTimestamp(1, Timestamp.from(now));
+		verify(deleteStatement).setInt(2, 2);
+		verify(deleteStatement, times(3)).executeUpdate();
+		verify(unlockStatement).setLong(1, RefreshTokenPurgeJob.PURGE_LOCK_KEY);
+		verify(unlockStatement).executeQuery();
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: One run stops after the maximum number of batches")
+	void givenBacklog_whenPurge_thenStopAtMaxBatches() throws SQLException {
+		// Given
+		ReflectionTestUtils.setField(purgeJob, "maxBatches", 3);
+		lockAcquired();
+		when(deleteStatement.executeUpdate()).thenReturn(2);
+		// When
+		int purged = purgeJob.purge(connection, now);
+		// Then
+		assertEquals(6, purged);
+		verify(deleteStatement, times(3)).executeUpdate();
+		verify(unlockStatement).executeQuery();
+	}
+
+	@Test
+	@DisplayName("❌ Negative Case: Another instance holds the lock, nothing is deleted")
+	void givenLockHeldElsewhere_whenPurge_thenSkip() throws SQLException {
+		// Given
+		when(lockResult.getBoolean(1)).thenReturn(false);
+		// When
+		int purged = purgeJob.purge(connection, now);
+		// Then
+		assertEquals(-1, purged);
+		verify(lockStatement).setLong(1, RefreshTokenPurgeJob.PURGE_LOCK_KEY);
+		verify(connection, never()).prepareStatement(RefreshTokenPurgeJob.DELETE_EXPIRED_BATCH);
+		verify(connection, never()).prepareStatement(RefreshTokenPurgeJob.UNLOCK);
+	}
+
+	@Test
+	@DisplayName("❌ Negative Case: A failing batch still releases the lock")
+	void givenFailingDelete_whenPurge_thenUnlockAndRethrow() throws SQLException {
+		// Given
+		lockAcquired();
+		when(deleteStatement.executeUpdate()).thenThrow(new SQLException("canceling statement due to lock timeout"));
+		// When / Then
+		assertThrows(SQLException.class, () -> purgeJob.purge(connection, now));
+		verify(unlockStatement).executeQuery();
+	}
+}
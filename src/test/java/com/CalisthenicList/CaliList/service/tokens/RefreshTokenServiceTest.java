@@ -1,10 +1,19 @@
 package com.CalisthenicList.CaliList.service.tokens;
+import com.CalisthenicList.CaliList.constants.Messages;
+import com.CalisthenicList.CaliList.enums.Roles;
+import com.CalisthenicList.CaliList.model.AccessTokenPrincipal;
 import com.CalisthenicList.CaliList.model.ApiResponse;
+import com.CalisthenicList.CaliList.model.JwtToken;
 import com.CalisthenicList.CaliList.model.RefreshToken;
+import com.CalisthenicList.CaliList.model.RefreshTokenRotation;
+import com.CalisthenicList.CaliList.model.SessionDTO;
 import com.CalisthenicList.CaliList.model.User;
+import com.CalisthenicList.CaliList.model.UserDTO;
 import com.CalisthenicList.CaliList.repositories.RefreshTokenRepository;
 import com.CalisthenicList.CaliList.repositories.UserRepository;
+import com.CalisthenicList.CaliList.utils.HashUtils;
 import com.CalisthenicList.CaliList.utils.JwtUtils;
+import io.jsonwebtoken.MalformedJwtException;
 import jakarta.servlet.http.HttpServletResponse;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -14,6 +23,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.stubbing.OngoingStubbing;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseCookie;
@@ -23,14 +33,15 @@ import org.springframework.test.util.ReflectionTestUtils;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
+import static com.CalisthenicList.CaliList.constants.TokenConstants.FAMILY_CLAIM;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
-import static org.mockito.Mockito.verify;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class RefreshTokenServiceTest {
@@ -44,6 +55,8 @@ class RefreshTokenServiceTest {
 	private UserRepository userRepository;
 	@Mock
 	private HttpServletResponse httpResponse;
+	@Mock
+	private TokenFamilyRevocationService tokenFamilyRevocationService;
 	@InjectMocks
 	private RefreshTokenService refreshTokenService;
 	private final Instant duration = Instant.now().plus(Duration.ofDays(30));
@@ -53,6 +66,8 @@ class RefreshTokenServiceTest {
 	@BeforeEach
 	void setUp() {
 		ReflectionTestUtils.setField(refreshTokenService, "refreshTokenDuration", 30);
+		ReflectionTestUtils.setField(refreshTokenService, "maxSessions", 5);
+		ReflectionTestUtils.setField(refreshTokenService, "reuseGraceSeconds", 10);
 		refreshTokenService.init();
 		user = new User("testuser", "test@example.com", "pass");
 		refreshToken = new RefreshToken(UUID.randomUUID(), user, "refresh.jwt.token", duration);
@@ -66,8 +81,7 @@ class RefreshTokenServiceTest {
 		void givenUser_whenCreateCookieWithRefreshToken_thenReturnCookie() {
 			// Given
 			String jwt = "jwt.token";
-			when(jwtUtils.generateJwt(eq(user.getEmail()), any())).thenReturn(jwt);
-			when(refreshTokenRepository.findByUserEmail(user.getEmail())).thenReturn(Optional.empty());
+			when(jwtUtils.generateJwt(eq(user.getEmail()), any(), anyMap())).thenReturn(jwt);
 			when(refreshTokenRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
 			// When
 			ResponseCookie cookie = refreshTokenService.createCookieWithRefreshToken(user.getEmail(), user);
@@ -89,35 +103,46 @@ class RefreshTokenServiceTest {
 		}
 
 		@Test
-		@DisplayName("✅ Should create new refresh token if none exists")
-		void givenNoExistingToken_whenCreateRefreshToken_thenNewTokenSaved() {
+		@DisplayName("✅ Should create a new session for every sign-in")
+		void givenSignIn_whenCreateRefreshToken_thenNewTokenSaved() {
 			// Given
 			String jwt = "new.jwt.token";
-			when(jwtUtils.generateJwt(eq(user.getEmail()), any())).thenReturn(jwt);
-			when(refreshTokenRepository.findByUserEmail(user.getEmail())).thenReturn(Optional.empty());
+			when(jwtUtils.generateJwt(eq(user.getEmail()), any(), anyMap())).thenReturn(jwt);
 			when(refreshTokenRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
 			// When
 			RefreshToken token = createRefreshToken(user.getEmail(), user);
 			// Then
 			assertEquals(jwt, token.getToken());
 			assertEquals(user, token.getUser());
+			assertNull(token.getId());
 			assertTrue(token.getExpiryDate().isAfter(Instant.now()));
 			verify(refreshTokenRepository).save(token);
 		}
 
 		@Test
-		@DisplayName("✅ Should update existing refresh token")
-		void givenExistingToken_whenCreateRefreshToken_thenUpdateAndSave() {
+		@DisplayName("✅ Should evict the least recently used sessions over the limit")
+		void givenSignIn_whenCreateRefreshToken_thenOldestSessionsEvicted() {
+			// Given
+			when(jwtUtils.generateJwt(eq(user.getEmail()), any(), anyMap())).thenReturn("new.jwt.token");
+			when(refreshTokenRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+			// When
+			createRefreshToken(user.getEmail(), user);
+			// Then
+			verify(refreshTokenRepository).deleteOldestSessions(user.getId(), 5);
+			verify(refreshTokenRepository, never()).findByUserEmail(anyString());
+		}
+
+		@Test
+		@DisplayName("✅ Should start a new token family and put it in the fid claim")
+		void givenSignIn_whenCreateRefreshToken_thenFamilyClaimMatchesRow() {
 			// Given
-			when(refreshTokenRepository.findByUserEmail(user.getEmail())).thenReturn(Optional.of(refreshToken));
-			when(jwtUtils.generateJwt(eq(user.getEmail()), any())).thenReturn("updated.jwt.token");
+			when(jwtUtils.generateJwt(eq(user.getEmail()), any(), anyMap())).thenReturn("new.jwt.token");
 			when(refreshTokenRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
 			// When
-			RefreshToken updated = createRefreshToken(user.getEmail(), user);
+			RefreshToken token = createRefreshToken(user.getEmail(), user);
 			// Then
-			assertEquals("updated.jwt.token", updated.getToken());
-			assertTrue(updated.getExpiryDate().isAfter(Instant.now()));
-			verify(refreshTokenRepository).save(refreshToken);
+			assertNotNull(token.getFamilyId());
+			verify(jwtUtils).generateJwt(eq(user.getEmail()), any(), eq(Map.of(FAMILY_CLAIM, token.getFamilyId().toString())));
 		}
 	}
 
@@ -136,24 +161,38 @@ class RefreshTokenServiceTest {
 			assertEquals(HttpStatus.UNAUTHORIZED, response.getStatusCode());
 		}
 
+		private RefreshTokenRotation rotation() {
+			return new RefreshTokenRotation(user.getId(), user.getUsername(), user.getEmail(), Roles.ROLE_USER,
+					true, null, null, null);
+		}
+
+		private OngoingStubbing<Optional<RefreshTokenRotation>> rotate() {
+			return when(refreshTokenRepository.rotate(any(byte[].class), any(byte[].class), any(UUID.class), any(Instant.class),
+					any(Instant.class), anyString()));
+		}
+
 		@Test
 		@DisplayName("❌ Should return UNAUTHORIZED if token not found in DB")
 		void givenNonexistentToken_whenRefreshAccessToken_thenUnauthorized() {
+			when(jwtUtils.parse("bad.token")).thenThrow(new MalformedJwtException("Malformed token"));
 			when(refreshTokenRepository.findByToken("bad.token")).thenReturn(Optional.empty());
 			assertThrows(UsernameNotFoundException.class, () -> refreshAccessToken("bad.token", httpResponse));
+			verify(refreshTokenRepository, never()).rotate(any(), any(), any(), any(), any(), any());
 		}
 
 		@Test
 		@DisplayName("❌ Should return UNAUTHORIZED if JWT subject is invalid")
 		void givenInvalidJwtSubject_whenRefreshAccessToken_thenUnauthorized() {
 			//Given
+			when(jwtUtils.parse(refreshToken.getToken())).thenReturn(new JwtToken("other@example.com", null, null, null));
+			when(jwtUtils.generateJwt(eq("other@example.com"), any(), anyMap())).thenReturn("new.refresh.jwt");
+			rotate().thenReturn(Optional.empty());
 			when(refreshTokenRepository.findByToken(refreshToken.getToken())).thenReturn(Optional.of(refreshToken));
-			when(jwtUtils.extractSubject(refreshToken.getToken())).thenReturn("other@example.com");
-			when(jwtUtils.validateIfJwtSubjectMatchTheUser("other@example.com", user.getEmail())).thenReturn(false);
 			//When
 			ResponseEntity<?> response = refreshAccessToken(refreshToken.getToken(), httpResponse);
 			//Then
 			assertEquals(HttpStatus.UNAUTHORIZED, response.getStatusCode());
+			verify(httpResponse, never()).addHeader(any(), any());
 		}
 
 		@Test
@@ -162,9 +201,10 @@ class RefreshTokenServiceTest {
 			//Given
 			RefreshToken expired = new RefreshToken(UUID.randomUUID(), user, "expired.jwt",
 					Instant.now().minus(Duration.ofDays(1)));
+			when(jwtUtils.parse(expired.getToken())).thenReturn(new JwtToken(user.getEmail(), null, null, null));
+			when(jwtUtils.generateJwt(eq(user.getEmail()), any(), anyMap())).thenReturn("new.refresh.jwt");
+			rotate().thenReturn(Optional.empty());
 			when(refreshTokenRepository.findByToken(expired.getToken())).thenReturn(Optional.of(expired));
-			when(jwtUtils.extractSubject(expired.getToken())).thenReturn(user.getEmail());
-			when(jwtUtils.validateIfJwtSubjectMatchTheUser(user.getEmail(), user.getEmail())).thenReturn(true);
 			//When
 			ResponseEntity<?> response = refreshAccessToken(expired.getToken(), httpResponse);
 			//Then
@@ -173,17 +213,28 @@ class RefreshTokenServiceTest {
 		}
 
 		@Test
-		@DisplayName("✅ Should refresh access token when valid")
+		@DisplayName("❌ Should reject a cookie that was already rotated by a concurrent refresh")
+		void givenAlreadyRotatedToken_whenRefreshAccessToken_thenNotFound() {
+			//Given
+			when(jwtUtils.parse(refreshToken.getToken())).thenReturn(new JwtToken(user.getEmail(), null, null, null));
+			when(jwtUtils.generateJwt(eq(user.getEmail()), any(), anyMap())).thenReturn("new.refresh.jwt");
+			rotate().thenReturn(Optional.empty());
+			when(refreshTokenRepository.findByToken(refreshToken.getToken())).thenReturn(Optional.empty());
+			//When / Then
+			assertThrows(UsernameNotFoundException.class, () -> refreshAccessToken(refreshToken.getToken(), httpResponse));
+			verify(httpResponse, never()).addHeader(any(), any());
+		}
+
+		@Test
+		@DisplayName("✅ Should refresh access token when valid in a single rotation query")
 		void givenValidToken_whenRefreshAccessToken_thenReturnNewAccessToken() {
 			//Given
-			when(refreshTokenRepository.findByToken(refreshToken.getToken())).thenReturn(Optional.of(refreshToken));
-			when(jwtUtils.extractSubject(refreshToken.getToken())).thenReturn(user.getEmail());
-			when(jwtUtils.validateIfJwtSubjectMatchTheUser(user.getEmail(), user.getEmail())).thenReturn(true);
-			when(accessTokenService.generateAccessToken(user.getEmail())).thenReturn("new.access.token");
-			when(userRepository.findByEmail(user.getEmail())).thenReturn(Optional.of(user));
-			when(jwtUtils.generateJwt(any(), any())).thenReturn("new.refresh.jwt");
-			when(refreshTokenRepository.findByUserEmail(user.getEmail())).thenReturn(Optional.of(refreshToken));
-			when(refreshTokenRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+			when(jwtUtils.parse(refreshToken.getToken())).thenReturn(new JwtToken(user.getEmail(), null, null, null));
+			when(jwtUtils.generateJwt(eq(user.getEmail()), any(), anyMap())).thenReturn("new.refresh.jwt");
+			when(refreshTokenRepository.rotate(eq(refreshToken.getTokenHash()), eq(HashUtils.sha256("new.refresh.jwt")), any(UUID.class),
+					any(Instant.class), any(Instant.class), eq(user.getEmail()))).thenReturn(Optional.of(rotation()));
+			when(accessTokenService.generateAccessToken(eq(user.getId()), eq(user.getEmail()), eq(Roles.ROLE_USER), any(UUID.class)))
+					.thenReturn("new.access.token");
 			//When
 			ResponseEntity<ApiResponse<Object>> response = refreshAccessToken(refreshToken.getToken(), httpResponse);
 			//Then
@@ -191,7 +242,114 @@ class RefreshTokenServiceTest {
 			assertNotNull(response.getBody());
 			ApiResponse<Object> responseBody = response.getBody();
 			assertEquals("new.access.token", responseBody.getAccessToken());
-			verify(httpResponse).addHeader(eq(HttpHeaders.SET_COOKIE), contains("refreshToken="));
+			UserDTO userDTO = (UserDTO) responseBody.getData();
+			assertEquals(user.getEmail(), userDTO.getEmail());
+			assertEquals("0 Days", userDTO.getTrainingDuration());
+			verify(httpResponse).addHeader(eq(HttpHeaders.SET_COOKIE), contains("refreshToken=new.refresh.jwt"));
+			verify(refreshTokenRepository, never()).findByToken(anyString());
+			verifyNoInteractions(userRepository);
+		}
+
+		@Test
+		@DisplayName("✅ Should keep the token family across a rotation")
+		void givenFamilyClaim_whenRefreshAccessToken_thenNewTokensKeepFamily() {
+			//Given
+			UUID familyId = UUID.randomUUID();
+			Map<String, Object> familyClaim = Map.of(FAMILY_CLAIM, familyId.toString());
+			when(jwtUtils.parse(refreshToken.getToken())).thenReturn(new JwtToken(user.getEmail(), null, null, familyClaim));
+			when(jwtUtils.generateJwt(eq(user.getEmail()), any(), eq(familyClaim))).thenReturn("new.refresh.jwt");
+			when(refreshTokenRepository.rotate(any(byte[].class), any(byte[].class), eq(familyId), any(Instant.class),
+					any(Instant.class), eq(user.getEmail()))).thenReturn(Optional.of(rotation()));
+			when(accessTokenService.generateAccessToken(user.getId(), user.getEmail(), Roles.ROLE_USER, familyId))
+					.thenReturn("new.access.token");
+			//When
+			ResponseEntity<ApiResponse<Object>> response = refreshAccessToken(refreshToken.getToken(), httpResponse);
+			//Then
+			assertEquals(HttpStatus.OK, response.getStatusCode());
+			verify(tokenFamilyRevocationService).isRevoked(familyId);
+		}
+
+		//The family's live row was last rotated at rotatedAt from previousTokenHash, no live row when rotatedAt is null
+		private UUID replayedFamily(Instant rotatedAt, byte[] previousTokenHash) {
+			UUID familyId = UUID.randomUUID();
+			Map<String, Object> familyClaim = Map.of(FAMILY_CLAIM, familyId.toString());
+			when(jwtUtils.parse(refreshToken.getToken())).thenReturn(new JwtToken(user.getEmail(), null, null, familyClaim));
+			when(jwtUtils.generateJwt(eq(user.getEmail()), any(), anyMap())).thenReturn("new.refresh.jwt");
+			rotate().thenReturn(Optional.empty());
+			when(refreshTokenRepository.findByToken(refreshToken.getToken())).thenReturn(Optional.empty());
+			Optional<RefreshToken> successor = Optional.empty();
+			if(rotatedAt != null) {
+				RefreshToken rotated = new RefreshToken(UUID.randomUUID(), user, "new.refresh.jwt", duration);
+				rotated.setFamilyId(familyId);
+				rotated.setPreviousTokenHash(previousTokenHash);
+				rotated.setRotatedAt(rotatedAt);
+				successor = Optional.of(rotated);
+			}
+			when(refreshTokenRepository.findByFamilyId(familyId)).thenReturn(successor);
+			return familyId;
+		}
+
+		@Test
+		@DisplayName("❌ Should revoke the whole family when a rotated token is replayed after the grace window")
+		void givenReplayedToken_whenRefreshAccessToken_thenRevokeFamily() {
+			//Given
+			UUID familyId = replayedFamily(Instant.now().minus(Duration.ofMinutes(5)), refreshToken.getTokenHash());
+			//When
+			ResponseEntity<?> response = refreshAccessToken(refreshToken.getToken(), httpResponse);
+			//Then
+			assertEquals(HttpStatus.UNAUTHORIZED, response.getStatusCode());
+			verify(tokenFamilyRevocationService).revokeFamily(familyId);
+			verify(httpResponse, never()).addHeader(any(), any());
+		}
+
+		@Test
+		@DisplayName("❌ Should revoke the whole family when a token two rotations old is replayed")
+		void givenTokenTwoRotationsOld_whenRefreshAccessToken_thenRevokeFamily() {
+			//Given: the live row was rotated just now, but from a newer token than the replayed one
+			UUID familyId = replayedFamily(Instant.now().minusSeconds(1), HashUtils.sha256("intermediate.refresh.jwt"));
+			//When
+			ResponseEntity<?> response = refreshAccessToken(refreshToken.getToken(), httpResponse);
+			//Then
+			assertEquals(HttpStatus.UNAUTHORIZED, response.getStatusCode());
+			verify(tokenFamilyRevocationService).revokeFamily(familyId);
+		}
+
+		@Test
+		@DisplayName("❌ Should reject a concurrent refresh within the grace window without revoking the family")
+		void givenTokenRotatedJustNow_whenRefreshAccessToken_thenUnauthorizedWithoutRevocation() {
+			//Given
+			replayedFamily(Instant.now().minusSeconds(1), refreshToken.getTokenHash());
+			//When
+			ResponseEntity<?> response = refreshAccessToken(refreshToken.getToken(), httpResponse);
+			//Then
+			assertEquals(HttpStatus.UNAUTHORIZED, response.getStatusCode());
+			verify(tokenFamilyRevocationService, never()).revokeFamily(any());
+		}
+
+		@Test
+		@DisplayName("❌ Should not revoke the family of a signed-out, revoked or evicted session")
+		void givenDeletedSession_whenRefreshAccessToken_thenNotFoundWithoutRevocation() {
+			//Given
+			replayedFamily(null, null);
+			//When / Then
+			assertThrows(UsernameNotFoundException.class, () -> refreshAccessToken(refreshToken.getToken(), httpResponse));
+			verify(tokenFamilyRevocationService, never()).revokeFamily(any());
+		}
+
+		@Test
+		@DisplayName("❌ Should reject a token of a revoked family without touching the database")
+		void givenRevokedFamily_whenRefreshAccessToken_thenUnauthorized() {
+			//Given
+			UUID familyId = UUID.randomUUID();
+			when(jwtUtils.parse(refreshToken.getToken()))
+					.thenReturn(new JwtToken(user.getEmail(), null, null, Map.of(FAMILY_CLAIM, familyId.toString())));
+			when(tokenFamilyRevocationService.isRevoked(familyId)).thenReturn(true);
+			//When
+			ResponseEntity<?> response = refreshAccessToken(refreshToken.getToken(), httpResponse);
+			//Then
+			assertEquals(HttpStatus.UNAUTHORIZED, response.getStatusCode());
+			verifyNoInteractions(refreshTokenRepository, userRepository);
+			verify(tokenFamilyRevocationService, never()).revokeFamily(any());
 		}
 	}
 
@@ -224,6 +382,60 @@ class RefreshTokenServiceTest {
 		}
 	}
 
+	@Nested
+	@DisplayName("sessions")
+	class SessionsTest {
+		private final AccessTokenPrincipal principal = new AccessTokenPrincipal(UUID.randomUUID(), "test@example.com", Roles.ROLE_USER);
+
+		@Test
+		@DisplayName("✅ Should list the user's sessions and mark the current one")
+		void givenSessions_whenListSessions_thenMarkCurrent() {
+			// Given
+			RefreshToken other = new RefreshToken(UUID.randomUUID(), user, "other.device.jwt", duration);
+			when(refreshTokenRepository.findByUserIdOrderByLastUsedDesc(principal.id())).thenReturn(List.of(refreshToken, other));
+			// When
+			ResponseEntity<ApiResponse<Object>> response = refreshTokenService.listSessions(principal, refreshToken.getToken());
+			// Then
+			assertEquals(HttpStatus.OK, response.getStatusCode());
+			assertNotNull(response.getBody());
+			List<?> sessions = (List<?>) response.getBody().getData();
+			assertEquals(List.of(
+					new SessionDTO(refreshToken.getId(), refreshToken.getCreatedAt(), refreshToken.getLastUsed(), duration, true),
+					new SessionDTO(other.getId(), other.getCreatedAt(), other.getLastUsed(), duration, false)), sessions);
+		}
+
+		@Test
+		@DisplayName("✅ Should revoke a session of the user")
+		void givenOwnSession_whenRevokeSession_thenOk() {
+			// Given
+			UUID sessionId = UUID.randomUUID();
+			when(refreshTokenRepository.deleteSession(sessionId, principal.id())).thenReturn(1);
+			// When
+			ResponseEntity<ApiResponse<Object>> response = refreshTokenService.revokeSession(principal, sessionId);
+			// Then
+			assertEquals(HttpStatus.OK, response.getStatusCode());
+			assertNotNull(response.getBody());
+			assertEquals(Messages.SESSION_REVOKED, response.getBody().getMessage());
+		}
+
+		@Test
+		@DisplayName("❌ Should not revoke an unknown or foreign session")
+		void givenForeignSession_whenRevokeSession_thenNotFound() {
+			// Given
+			UUID sessionId = UUID.randomUUID();
+			when(refreshTokenRepository.deleteSession(sessionId, principal.id())).thenReturn(0);
+			// When / Then
+			assertThrows(UsernameNotFoundException.class, () -> refreshTokenService.revokeSession(principal, sessionId));
+		}
+
+		@Test
+		@DisplayName("❌ Should reject a request without an authenticated user")
+		void givenNoPrincipal_whenListSessions_thenUnauthorized() {
+			assertThrows(UsernameNotFoundException.class, () -> refreshTokenService.listSessions(null, null));
+			verifyNoInteractions(refreshTokenRepository);
+		}
+	}
+
 	@Nested
 	@DisplayName("isRefreshTokenExpired")
 	class IsRefreshTokenExpiredTest {
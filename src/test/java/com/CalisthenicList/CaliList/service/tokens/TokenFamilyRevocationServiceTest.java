@@ -0,0 +1,179 @@
+package com.CalisthenicList.CaliList.service.tokens;
+
+import com.CalisthenicList.CaliList.model.JwtToken;
+import com.CalisthenicList.CaliList.service.PostgresNotificationListener;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+
+import static com.CalisthenicList.CaliList.constants.TokenConstants.FAMILY_CLAIM;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TokenFamilyRevocationServiceTest {
+	@Mock
+	private JdbcTemplate jdbcTemplate;
+	@Mock
+	private PostgresNotificationListener notificationListener;
+	@Mock
+	private ResultSet resultSet;
+	@InjectMocks
+	private TokenFamilyRevocationService revocationService;
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(revocationService, "refreshTokenDuration", 30);
+		ReflectionTestUtils.setField(revocationService, "expectedInsertions", 100);
+		ReflectionTestUtils.setField(revocationService, "falsePositiveRate", 0.01);
+	}
+
+	private void storedFamily(UUID familyId, Instant expiresAt) throws Exception {
+		when(resultSet.getObject("family_id", UUID.class)).thenReturn(familyId);
+		when(resultSet.getTimestamp("expires_at")).thenReturn(Timestamp.from(expiresAt));
+		doAnswer(inv -> {
+			inv.getArgument(1, RowCallbackHandler.class).processRow(resultSet);
+			return null;
+		}).when(jdbcTemplate).query(eq(TokenFamilyRevocationService.SELECT_REVOKED), any(RowCallbackHandler.class),
+				any(Timestamp.class));
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Families stored in the database are revoked in memory after a reload")
+	void givenStoredFamily_whenReload_thenRevoked() throws Exception {
+		// Given
+		UUID familyId = UUID.randomUUID();
+		storedFamily(familyId, Instant.now().plus(Duration.ofDays(1)));
+		// When
+		revocationService.reload();
+		// Then
+		assertTrue(revocationService.isRevoked(familyId));
+		assertFalse(revocationService.isRevoked(UUID.randomUUID()));
+		assertFalse(revocationService.isRevoked((UUID) null));
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Startup loads the table and subscribes to revocations of other instances")
+	void givenStartup_whenInit_thenReloadAndSubscribe() {
+		// When
+		revocationService.init();
+		// Then
+		verify(jdbcTemplate).query(eq(TokenFamilyRevocationService.SELECT_REVOKED), any(RowCallbackHandler.class),
+				any(Timestamp.class));
+		verify(notificationListener).subscribe(eq(TokenFamilyRevocationService.CHANNEL), any(), any());
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Without the listener the table is reloaded on schedule")
+	void givenListenerDisabled_whenScheduledReload_thenReload() throws Exception {
+		// Given
+		revocationService.reload();
+		UUID familyId = UUID.randomUUID();
+		storedFamily(familyId, Instant.now().plus(Duration.ofDays(1)));
+		when(notificationListener.isEnabled()).thenReturn(false);
+		// When
+		revocationService.scheduledReload();
+		// Then
+		assertTrue(revocationService.isRevoked(familyId));
+	}
+
+	@Test
+	@DisplayName("❌ Negative Case: With the listener and a loaded table the scheduled reload is skipped")
+	void givenListenerEnabled_whenScheduledReload_thenNoQuery() {
+		// Given
+		revocationService.init();
+		when(notificationListener.isEnabled()).thenReturn(true);
+		clearInvocations(jdbcTemplate);
+		// When
+		revocationService.scheduledReload();
+		// Then
+		verifyNoInteractions(jdbcTemplate);
+	}
+
+	@Test
+	@DisplayName("❌ Negative Case: A missing table does not stop startup and the scheduled reload recovers")
+	void givenMissingTable_whenInit_thenStartsAndScheduledReloadRecovers() throws Exception {
+		// Given
+		doThrow(new BadSqlGrammarException("reload", TokenFamilyRevocationService.SELECT_REVOKED,
+				new SQLException("relation \"revoked_token_families\" does not exist")))
+				.when(jdbcTemplate).query(eq(TokenFamilyRevocationService.SELECT_REVOKED), any(RowCallbackHandler.class),
+						any(Timestamp.class));
+		// When
+		assertDoesNotThrow(() -> revocationService.init());
+		// Then
+		UUID familyId = UUID.randomUUID();
+		assertFalse(revocationService.isRevoked(familyId));
+		storedFamily(familyId, Instant.now().plus(Duration.ofDays(1)));
+		when(notificationListener.isEnabled()).thenReturn(true);
+		revocationService.scheduledReload();
+		assertTrue(revocationService.isRevoked(familyId));
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Revoking a family deletes its tokens, stores it and notifies other instances")
+	void givenFamily_whenRevokeFamily_thenDeleteInsertAndNotify() {
+		// Given
+		revocationService.reload();
+		UUID familyId = UUID.randomUUID();
+		// When
+		revocationService.revokeFamily(familyId);
+		// Then
+		assertTrue(revocationService.isRevoked(familyId));
+		verify(jdbcTemplate).update(TokenFamilyRevocationService.DELETE_FAMILY_TOKENS, familyId);
+		verify(jdbcTemplate).update(eq(TokenFamilyRevocationService.INSERT_REVOKED), eq(familyId),
+				any(Timestamp.class), any(Timestamp.class));
+		verify(jdbcTemplate).query(eq(TokenFamilyRevocationService.NOTIFY), any(RowCallbackHandler.class),
+				eq(TokenFamilyRevocationService.CHANNEL), eq(familyId.toString()));
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: A notification from another instance revokes the family and survives a reload")
+	void givenNotification_whenReload_thenStillRevoked() {
+		// Given
+		revocationService.reload();
+		UUID familyId = UUID.randomUUID();
+		// When
+		revocationService.onNotification(familyId.toString());
+		revocationService.reload();
+		// Then
+		assertTrue(revocationService.isRevoked(familyId));
+		assertTrue(revocationService.isRevoked(new JwtToken("user@example.com", null, null,
+				Map.of(FAMILY_CLAIM, familyId.toString()))));
+	}
+
+	@Test
+	@DisplayName("❌ Negative Case: A malformed notification is ignored")
+	void givenMalformedNotification_whenOnNotification_thenNothingRevoked() {
+		// Given
+		revocationService.reload();
+		// When / Then
+		assertDoesNotThrow(() -> revocationService.onNotification("not-a-uuid"));
+	}
+
+	@Test
+	@DisplayName("❌ Negative Case: Tokens without a valid family claim have no family")
+	void givenTokenWithoutFamily_whenFamilyId_thenNull() {
+		// When / Then
+		assertNull(TokenFamilyRevocationService.familyId(new JwtToken("user@example.com", null, null, null)));
+		assertNull(TokenFamilyRevocationService.familyId(new JwtToken("user@example.com", null, null,
+				Map.of(FAMILY_CLAIM, "not-a-uuid"))));
+	}
+}
@@ -0,0 +1,58 @@
+package com.CalisthenicList.CaliList.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class Argon2CalibratorTest {
+	private final Argon2Calibrator.Parameters fallback = new Argon2Calibrator.Parameters(12_288, 3, 1);
+	private final List<Argon2Calibrator.Parameters> grid = Argon2Calibrator.grid(
+			new int[]{12_288, 47_104, 65_536}, new int[]{1, 2, 3}, new int[]{1});
+
+	//Fake host: 1 ms per MiB per iteration
+	private long fakeEncodeNanos(Argon2Calibrator.Parameters parameters) {
+		return Duration.ofMillis((long) parameters.memory() / 1024 * parameters.iterations()).toNanos();
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Strongest parameters within the latency budget are chosen")
+	void givenLatencyBudget_whenCalibrate_thenStrongestFittingChosen() {
+		// Given
+		Argon2Calibrator calibrator = new Argon2Calibrator(Duration.ofMillis(100), 65_536, 20, this::fakeEncodeNanos);
+		// When
+		Argon2Calibrator.Parameters chosen = calibrator.calibrate(grid, fallback);
+		// Then
+		assertEquals(new Argon2Calibrator.Parameters(47_104, 2, 1), chosen);
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Candidates over the memory budget are never measured")
+	void givenMemoryBudget_whenCalibrate_thenLargerMemorySkipped() {
+		// Given
+		List<Argon2Calibrator.Parameters> measured = new ArrayList<>();
+		Argon2Calibrator calibrator = new Argon2Calibrator(Duration.ofSeconds(10), 47_104, 20, parameters -> {
+			measured.add(parameters);
+			return fakeEncodeNanos(parameters);
+		});
+		// When
+		Argon2Calibrator.Parameters chosen = calibrator.calibrate(grid, fallback);
+		// Then
+		assertEquals(new Argon2Calibrator.Parameters(47_104, 3, 1), chosen);
+		assertFalse(measured.stream().anyMatch(parameters -> parameters.memory() > 47_104));
+	}
+
+	@Test
+	@DisplayName("❌ Negative Case: Nothing fits, fallback is used")
+	void givenTooSmallBudget_whenCalibrate_thenFallback() {
+		// Given
+		Argon2Calibrator calibrator = new Argon2Calibrator(Duration.ofMillis(1), 65_536, 20, this::fakeEncodeNanos);
+		// When / Then
+		assertEquals(fallback, calibrator.calibrate(grid, fallback));
+	}
+}
@@ -0,0 +1,56 @@
+package com.CalisthenicList.CaliList.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.util.HtmlUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompiledTemplateTest {
+
+	@Test
+	@DisplayName("✅ Happy Case: Variables are substituted between literals")
+	void givenTemplate_whenRender_thenVariablesSubstituted() {
+		// Given
+		CompiledTemplate template = CompiledTemplate.compile("Hello {{ name }}, open {{url}}!");
+		// When
+		String rendered = template.render(Map.of("name", "Ala", "url", "http://x"), UnaryOperator.identity());
+		// Then
+		assertEquals("Hello Ala, open http://x!", rendered);
+		assertEquals(List.of("name", "url"), template.variables());
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Escaper applies to values, not to template text")
+	void givenHtmlEscaper_whenRender_thenOnlyValuesEscaped() {
+		// Given
+		CompiledTemplate template = CompiledTemplate.compile("<a href=\"{{url}}\">link</a>");
+		// When
+		String rendered = template.render(Map.of("url", "http://x?a=1&b=<2>"), HtmlUtils::htmlEscape);
+		// Then
+		assertEquals("<a href=\"http://x?a=1&amp;b=&lt;2&gt;\">link</a>", rendered);
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Template without variables renders as is")
+	void givenPlainText_whenRender_thenUnchanged() {
+		assertEquals("plain", CompiledTemplate.compile("plain").render(Map.of(), UnaryOperator.identity()));
+	}
+
+	@Test
+	@DisplayName("❌ Negative Case: Unclosed variable fails at compile time")
+	void givenUnclosedVariable_whenCompile_thenThrow() {
+		assertThrows(IllegalArgumentException.class, () -> CompiledTemplate.compile("Hello {{name"));
+	}
+
+	@Test
+	@DisplayName("❌ Negative Case: Missing value fails at render time")
+	void givenMissingValue_whenRender_thenThrow() {
+		CompiledTemplate template = CompiledTemplate.compile("Hello {{name}}");
+		assertThrows(IllegalArgumentException.class, () -> template.render(Map.of(), UnaryOperator.identity()));
+	}
+}
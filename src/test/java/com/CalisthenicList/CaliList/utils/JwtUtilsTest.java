@@ -1,4 +1,5 @@
 package com.CalisthenicList.CaliList.utils;
+import com.CalisthenicList.CaliList.model.JwtToken;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.security.SignatureException;
 import org.junit.jupiter.api.BeforeEach;
@@ -34,6 +35,22 @@ class JwtUtilsTest {
 		assertEquals(email, subject);
 	}
 
+	@Test
+	@DisplayName("✅ parse returns subject, issuedAt and expiration of a verified token")
+	void parse_returnsTokenView() {
+		// Given
+		String email = "test@example.com";
+		String token = jwtUtils.generateJwt(email, Duration.ofMinutes(5));
+		// When
+		JwtToken jwtToken = jwtUtils.parse(token);
+		// Then
+		assertEquals(email, jwtToken.subject());
+		assertNotNull(jwtToken.issuedAt());
+		assertTrue(jwtToken.expiration().isAfter(jwtToken.issuedAt()));
+		assertFalse(jwtToken.isExpired());
+		assertTrue(jwtToken.claims().isEmpty(), "Registered claims should not be duplicated as custom claims");
+	}
+
 	@Test
 	@DisplayName("✅ validateIfJwtSubjectMatchTheUser returns true when subject matches email")
 	void validateIfJwtSubjectMatchTheUser_match() {
@@ -69,4 +86,36 @@ class JwtUtilsTest {
 		String badToken = token.substring(0, token.length() - 2) + "xx";
 		assertThrows(SignatureException.class, () -> jwtUtils.extractSubject(badToken));
 	}
+
+	@Test
+	@DisplayName("✅ parse serves repeated tokens from the verified-token cache when enabled")
+	void parse_withVerifiedTokenCache_hitsCache() {
+		// Given
+		ReflectionTestUtils.setField(jwtUtils, "verifiedTokenCacheEnabled", true);
+		ReflectionTestUtils.setField(jwtUtils, "verifiedTokenCacheMaximumSize", 100L);
+		jwtUtils.init();
+		String token = jwtUtils.generateJwt("cached@example.com", Duration.ofMinutes(5));
+		// When
+		JwtToken first = jwtUtils.parse(token);
+		JwtToken second = jwtUtils.parse(token);
+		// Then
+		assertSame(first, second);
+		assertEquals(1, jwtUtils.verifiedTokenCacheStats().missCount());
+		assertEquals(1, jwtUtils.verifiedTokenCacheStats().hitCount());
+	}
+
+	@Test
+	@DisplayName("❌ parse does not cache tokens with an invalid signature")
+	void parse_withVerifiedTokenCache_invalidSignatureNotCached() {
+		// Given
+		ReflectionTestUtils.setField(jwtUtils, "verifiedTokenCacheEnabled", true);
+		ReflectionTestUtils.setField(jwtUtils, "verifiedTokenCacheMaximumSize", 100L);
+		jwtUtils.init();
+		String token = jwtUtils.generateJwt("invalid@example.com", Duration.ofMinutes(5));
+		String badToken = token.substring(0, token.length() - 2) + "xx";
+		// When + Then
+		assertThrows(SignatureException.class, () -> jwtUtils.parse(badToken));
+		assertThrows(SignatureException.class, () -> jwtUtils.parse(badToken));
+		assertEquals(0, jwtUtils.verifiedTokenCacheStats().hitCount());
+	}
 }
@@ -0,0 +1,37 @@
+package com.CalisthenicList.CaliList.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TunableArgon2PasswordEncoderTest {
+	private final TunableArgon2PasswordEncoder encoder = new TunableArgon2PasswordEncoder(16, 32, 1, 1024, 1);
+
+	@Test
+	@DisplayName("✅ Happy Case: Hash with current parameters needs no upgrade")
+	void givenCurrentParameters_whenUpgradeEncoding_thenFalse() {
+		assertFalse(encoder.upgradeEncoding(encoder.encode("password")));
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Weaker and stronger parameters both need an upgrade")
+	void givenDifferentParameters_whenUpgradeEncoding_thenTrue() {
+		// Given
+		String weakerHash = new TunableArgon2PasswordEncoder(16, 32, 1, 512, 1).encode("password");
+		String strongerHash = new TunableArgon2PasswordEncoder(16, 32, 2, 2048, 2).encode("password");
+		// When / Then
+		assertTrue(encoder.upgradeEncoding(weakerHash));
+		assertTrue(encoder.upgradeEncoding(strongerHash));
+	}
+
+	@Test
+	@DisplayName("❌ Negative Case: Non-Argon2 or malformed hash is never upgraded")
+	void givenForeignOrMalformedHash_whenUpgradeEncoding_thenFalse() {
+		assertFalse(encoder.upgradeEncoding(null));
+		assertFalse(encoder.upgradeEncoding("$2a$10$abcdefghijklmnopqrstuv"));
+		assertFalse(encoder.upgradeEncoding("$argon2id$v=19$m=x,t=1,p=1$salt$hash"));
+		assertFalse(encoder.upgradeEncoding("$argon2id$v=19$m=1024$salt$hash"));
+	}
+}
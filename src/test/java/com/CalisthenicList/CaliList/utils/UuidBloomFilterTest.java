@@ -0,0 +1,66 @@
+package com.CalisthenicList.CaliList.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UuidBloomFilterTest {
+
+	@Test
+	@DisplayName("✅ Happy Case: Every added id is reported as possibly contained")
+	void givenAddedIds_whenMightContain_thenNoFalseNegatives() {
+		// Given
+		UuidBloomFilter filter = new UuidBloomFilter(1_000, 0.01);
+		List<UUID> ids = new ArrayList<>();
+		for(int i = 0; i < 1_000; i++) {
+			UUID id = UUID.randomUUID();
+			ids.add(id);
+			filter.put(id);
+		}
+		// When / Then
+		ids.forEach(id -> assertTrue(filter.mightContain(id)));
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Unknown ids rarely hit at the configured false positive rate")
+	void givenFullFilter_whenMightContainUnknown_thenFalsePositiveRateHolds() {
+		// Given
+		UuidBloomFilter filter = new UuidBloomFilter(10_000, 0.01);
+		for(int i = 0; i < 10_000; i++) {
+			filter.put(UUID.randomUUID());
+		}
+		// When
+		int falsePositives = 0;
+		for(int i = 0; i < 100_000; i++) {
+			if(filter.mightContain(UUID.randomUUID())) {
+				falsePositives++;
+			}
+		}
+		// Then
+		assertTrue(falsePositives < 2_000, "False positives: " + falsePositives);
+		assertEquals(7, filter.hashFunctions());
+	}
+
+	@Test
+	@DisplayName("✅ Happy Case: Empty filter contains nothing")
+	void givenEmptyFilter_whenMightContain_thenFalse() {
+		// Given
+		UuidBloomFilter filter = new UuidBloomFilter(100, 0.01);
+		// When / Then
+		assertFalse(filter.mightContain(UUID.randomUUID()));
+	}
+
+	@Test
+	@DisplayName("❌ Negative Case: Invalid sizing is rejected")
+	void givenInvalidArguments_whenCreate_thenThrow() {
+		// When / Then
+		assertThrows(IllegalArgumentException.class, () -> new UuidBloomFilter(0, 0.01));
+		assertThrows(IllegalArgumentException.class, () -> new UuidBloomFilter(100, 0));
+		assertThrows(IllegalArgumentException.class, () -> new UuidBloomFilter(100, 1));
+	}
+}